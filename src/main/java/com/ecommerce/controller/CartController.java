@@ -101,11 +101,11 @@ public class CartController extends HttpServlet {
                 totalPrice = calculateSessionCartTotalPrice(sessionCartItems);
             }
         } else {
-            // 登录用户，从数据库获取购物车
+            // 登录用户，从数据库获取购物车（购物车、商品项与商品信息一次查询加载）
             Cart cart = cartService.findByUserId(user.getId());
             if (cart != null) {
-                cartItems = cartService.getCartItems(cart.getId());
-                totalPrice = cartService.calculateTotalPrice(cart.getId());
+                cartItems = cart.getCartItems();
+                totalPrice = calculateSessionCartTotalPrice(cartItems);
             }
         }
 
@@ -115,7 +115,7 @@ public class CartController extends HttpServlet {
     }
 
     /**
-     * 计算Session购物车总价
+     * 计算购物车商品项总价（Session购物车与已加载的数据库购物车通用）
      */
     private double calculateSessionCartTotalPrice(List<CartItem> cartItems) {
         BigDecimal totalPrice = BigDecimal.ZERO;
@@ -139,9 +139,9 @@ public class CartController extends HttpServlet {
         Integer productId = Integer.parseInt(productIdStr);
         Integer quantity = Integer.parseInt(quantityStr);
 
-        // 验证商品是否存在
+        // 验证商品是否存在（库存校验需读取最新数据，不走缓存）
         ProductService productService = new ProductServiceImpl();
-        Product product = productService.findById(productId);
+        Product product = productService.findByIdUncached(productId);
         if (product == null) {
             out.println("商品不存在！<a href='../product/list'>继续购物</a>");
             return;
@@ -333,8 +333,8 @@ public class CartController extends HttpServlet {
         } else {
             Cart cart = cartService.findByUserId(user.getId());
             if (cart != null) {
-                cartItems = cartService.getCartItems(cart.getId());
-                totalPrice = cartService.calculateTotalPrice(cart.getId());
+                cartItems = cart.getCartItems();
+                totalPrice = calculateSessionCartTotalPrice(cartItems);
             }
         }
         StringBuilder sb = new StringBuilder();
@@ -1,69 +1,182 @@
 package com.ecommerce.controller;
 
-import com.ecommerce.dao.CategoryDao;
-import com.ecommerce.dao.OrderDao;
-import com.ecommerce.dao.ProductDao;
-import com.ecommerce.dao.UserDao;
-import com.ecommerce.dao.impl.CategoryDaoImpl;
-import com.ecommerce.dao.impl.OrderDaoImpl;
-import com.ecommerce.dao.impl.ProductDaoImpl;
-import com.ecommerce.dao.impl.UserDaoImpl;
-import com.ecommerce.pojo.Category;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.ecommerce.pojo.DashboardStats;
+import com.ecommerce.pojo.SalesSeries;
+import com.ecommerce.pojo.User;
+import com.ecommerce.service.DashboardStatsService;
+import com.ecommerce.service.impl.DashboardStatsServiceImpl;
+import com.ecommerce.utils.CSRFTokenUtils;
+import com.ecommerce.utils.JDBCUtils;
+import com.ecommerce.utils.ProductCache;
+import com.ecommerce.utils.ValidationUtils;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 import java.io.IOException;
-import java.util.List;
+import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
 
 /**
  * 仪表盘控制器
  */
-@WebServlet(name = "DashboardController", urlPatterns = "/dashboard")
+@WebServlet(name = "DashboardController", urlPatterns = {"/dashboard", "/dashboard/*"})
 public class DashboardController extends HttpServlet {
-    private UserDao userDao = new UserDaoImpl();
-    private OrderDao orderDao = new OrderDaoImpl();
-    private ProductDao productDao = new ProductDaoImpl();
-    private CategoryDao categoryDao = new CategoryDaoImpl();
+    // 时间序列默认范围（30天）、最大范围（5年）与目标点数
+    private static final long DEFAULT_RANGE_MILLIS = 30L * 24 * 3600 * 1000;
+    private static final long MAX_RANGE_MILLIS = 5L * 366 * 24 * 3600 * 1000;
+    private static final int DEFAULT_BUCKETS = 200;
+    private static final int MAX_BUCKETS = 2000;
+
+    private DashboardStatsService dashboardStatsService = new DashboardStatsServiceImpl();
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-        // 统计数据
-        int userCount = userDao.countAll();
-        int orderCount = orderDao.countAll();
-        double totalSales = orderDao.getTotalSales();
-        int lowStockCount = productDao.countLowStockProducts();
-
-        // 各分类商品数量
-        List<Category> categories = categoryDao.findAll();
-        StringBuilder categoryNames = new StringBuilder("[");
-        StringBuilder productCounts = new StringBuilder("[");
-        for (int i = 0; i < categories.size(); i++) {
-            Category category = categories.get(i);
-            int productCount = productDao.countByCategoryId(category.getId());
-            
-            categoryNames.append("'").append(category.getName()).append("'");
-            productCounts.append(productCount);
-            
-            if (i < categories.size() - 1) {
-                categoryNames.append(",");
-                productCounts.append(",");
-            }
+        if (request.getRequestURI().endsWith("/series.json")) {
+            seriesJson(request, response);
+            return;
         }
-        categoryNames.append("]");
-        productCounts.append("]");
 
-        // 设置请求属性
-        request.setAttribute("userCount", userCount);
-        request.setAttribute("orderCount", orderCount);
-        request.setAttribute("totalSales", String.format("%.2f", totalSales));
-        request.setAttribute("lowStockCount", lowStockCount);
-        request.setAttribute("categoryNames", categoryNames.toString());
-        request.setAttribute("productCounts", productCounts.toString());
+        // 统计数据（各项并行查询）
+        DashboardStats stats = dashboardStatsService.getStats();
+        request.setAttribute("stats", stats);
+
+        // 各分类商品数量，序列化为图表数据（转义<>等字符，可安全嵌入脚本）
+        JSONArray chartData = new JSONArray();
+        for (DashboardStats.CategoryCount count : stats.getCategoryCounts()) {
+            JSONObject item = new JSONObject();
+            item.put("name", count.getName());
+            item.put("value", count.getProductCount());
+            chartData.add(item);
+        }
+        request.setAttribute("categoryChartData", JSON.toJSONString(chartData, SerializerFeature.BrowserSecure));
+        // 连接池统计
+        request.setAttribute("poolStats", JDBCUtils.getPoolStats());
+        request.setAttribute("productCacheStats", ProductCache.getStats());
 
         // 转发到仪表盘页面
         request.getRequestDispatcher("/dashboard.jsp").forward(request, response);
     }
+
+    /**
+     * 销售时间序列（JSON，列式数组）
+     * 参数：metric=revenue|orders|items，from/to为毫秒时间戳或yyyy-MM-dd（默认最近30天），buckets为目标点数
+     */
+    private void seriesJson(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!isAdmin(request)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        response.setContentType("application/json;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+        JSONObject result = new JSONObject();
+
+        String metric = request.getParameter("metric");
+        if (metric == null || metric.isEmpty()) {
+            metric = "revenue";
+        }
+        Long to = parseTime(request.getParameter("to"));
+        Long from = parseTime(request.getParameter("from"));
+        if (to == null) {
+            to = System.currentTimeMillis();
+        }
+        if (from == null) {
+            from = to - DEFAULT_RANGE_MILLIS;
+        }
+        if (from < 0 || to < 0 || from >= to || to - from > MAX_RANGE_MILLIS) {
+            result.put("success", false);
+            result.put("message", "时间范围无效（from需早于to，且跨度不超过5年）");
+            out.print(result.toJSONString());
+            return;
+        }
+        int buckets = DEFAULT_BUCKETS;
+        String bucketsStr = request.getParameter("buckets");
+        if (bucketsStr != null && ValidationUtils.isValidPositiveInteger(bucketsStr)) {
+            buckets = Math.max(3, Math.min(Integer.parseInt(bucketsStr), MAX_BUCKETS));
+        }
+
+        SalesSeries series = dashboardStatsService.getSalesSeries(metric, new Date(from), new Date(to), buckets);
+        if (series == null) {
+            result.put("success", false);
+            result.put("message", "不支持的指标：" + metric);
+            out.print(result.toJSONString());
+            return;
+        }
+        result.put("success", true);
+        result.put("metric", series.getMetric());
+        result.put("resolution", series.getResolution());
+        result.put("rawPoints", series.getRawPoints());
+        result.put("t", series.getTimes());
+        result.put("v", series.getValues());
+        out.print(result.toJSONString());
+    }
+
+    /**
+     * 解析毫秒时间戳或yyyy-MM-dd日期，格式不正确时返回null
+     */
+    private static Long parseTime(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        if (value.matches("\\d{1,15}")) {
+            return Long.parseLong(value);
+        }
+        if (value.matches("\\d{4}-\\d{2}-\\d{2}")) {
+            try {
+                return LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        String uri = request.getRequestURI();
+        if (uri.endsWith("/rollup/rebuild")) {
+            rebuildSalesRollup(request, response);
+        } else {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+    /**
+     * 重建销售汇总（管理员操作）
+     */
+    private void rebuildSalesRollup(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        if (!isAdmin(request)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        String csrfToken = request.getParameter("csrfToken");
+        if (!CSRFTokenUtils.validateCSRFToken(request.getSession(), csrfToken)) {
+            request.setAttribute("errorMessage", "CSRF验证失败，请重新提交表单");
+            request.getRequestDispatcher("/error.jsp").forward(request, response);
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int rows = dashboardStatsService.rebuildSalesRollup();
+        System.out.println("销售汇总重建完成，生成" + rows + "行，耗时" + (System.currentTimeMillis() - start) + "ms");
+        response.sendRedirect(request.getContextPath() + "/dashboard?rollupRebuilt=" + (rows >= 0));
+    }
+
+    /**
+     * 当前用户是否为管理员（AuthFilter按原始URI匹配，不能只依赖过滤器）
+     */
+    private static boolean isAdmin(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        User user = session != null ? (User) session.getAttribute("user") : null;
+        return user != null && "admin".equals(user.getRole());
+    }
 }
@@ -0,0 +1,231 @@
+package com.ecommerce.controller;
+
+import com.alibaba.fastjson.JSONObject;
+import com.ecommerce.pojo.FlashSale;
+import com.ecommerce.pojo.FlashSaleTicket;
+import com.ecommerce.pojo.User;
+import com.ecommerce.service.FlashSaleService;
+import com.ecommerce.service.impl.FlashSaleServiceImpl;
+import com.ecommerce.utils.CSRFTokenUtils;
+import com.ecommerce.utils.ValidationUtils;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * 秒杀控制器（JSON接口）
+ * 抢购接口只在内存中扣减名额并立即返回订单号，客户端轮询result.json获取落库结果
+ */
+@WebServlet(name = "FlashSaleController", urlPatterns = {"/flash/*"})
+public class FlashSaleController extends HttpServlet {
+    private FlashSaleService flashSaleService = new FlashSaleServiceImpl();
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        response.setContentType("application/json;charset=UTF-8");
+        String uri = request.getRequestURI();
+        if (uri.endsWith("/status.json")) {
+            statusJson(request, response);
+        } else if (uri.endsWith("/result.json")) {
+            resultJson(request, response);
+        } else {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        request.setCharacterEncoding("UTF-8");
+        response.setContentType("application/json;charset=UTF-8");
+        String uri = request.getRequestURI();
+        if (uri.endsWith("/buy")) {
+            buy(request, response);
+        } else if (uri.endsWith("/start")) {
+            start(request, response);
+        } else if (uri.endsWith("/end")) {
+            end(request, response);
+        } else {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+    /**
+     * 秒杀剩余名额
+     */
+    private void statusJson(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Integer productId = parseId(request.getParameter("productId"));
+        if (productId == null) {
+            writeError(response, "无效的商品ID");
+            return;
+        }
+        int remaining = flashSaleService.getRemaining(productId);
+        JSONObject result = new JSONObject();
+        result.put("success", true);
+        result.put("active", remaining >= 0);
+        result.put("remaining", Math.max(remaining, 0));
+        response.getWriter().print(result.toJSONString());
+    }
+
+    /**
+     * 抢购（需登录，每人限购一件）
+     */
+    private void buy(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        User user = (User) request.getSession().getAttribute("user");
+        if (user == null) {
+            writeError(response, "请先登录");
+            return;
+        }
+        Integer productId = parseId(request.getParameter("productId"));
+        String receiverName = request.getParameter("receiverName");
+        String receiverPhone = request.getParameter("receiverPhone");
+        String receiverAddress = request.getParameter("receiverAddress");
+        if (productId == null ||
+            receiverName == null || receiverName.trim().isEmpty() ||
+            receiverPhone == null || receiverPhone.trim().isEmpty() ||
+            receiverAddress == null || receiverAddress.trim().isEmpty()) {
+            writeError(response, "参数不完整");
+            return;
+        }
+
+        FlashSaleTicket ticket = flashSaleService.purchase(user.getId(), productId,
+                receiverName.trim(), receiverPhone.trim(), receiverAddress.trim());
+        JSONObject result = new JSONObject();
+        result.put("success", ticket.getStatus() == FlashSaleTicket.Status.QUEUED);
+        result.put("status", ticket.getStatus().name());
+        result.put("orderNo", ticket.getOrderNo());
+        result.put("message", messageOf(ticket.getStatus()));
+        response.getWriter().print(result.toJSONString());
+    }
+
+    /**
+     * 抢购结果（订单落库状态）
+     */
+    private void resultJson(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        User user = (User) request.getSession().getAttribute("user");
+        if (user == null) {
+            writeError(response, "请先登录");
+            return;
+        }
+        FlashSaleTicket ticket = flashSaleService.getTicket(request.getParameter("orderNo"), user.getId());
+        if (ticket == null) {
+            writeError(response, "抢购记录不存在或已过期");
+            return;
+        }
+        JSONObject result = new JSONObject();
+        result.put("success", true);
+        result.put("status", ticket.getStatus().name());
+        result.put("orderNo", ticket.getOrderNo());
+        result.put("orderId", ticket.getOrderId());
+        result.put("message", messageOf(ticket.getStatus()));
+        response.getWriter().print(result.toJSONString());
+    }
+
+    /**
+     * 开始秒杀（管理员操作）
+     * 参数：productId、quantity为参与秒杀的件数，price为秒杀价（可选，默认商品原价）
+     */
+    private void start(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        User user = (User) request.getSession().getAttribute("user");
+        if (user == null || !"admin".equals(user.getRole())) {
+            writeError(response, "无权限操作");
+            return;
+        }
+        if (!CSRFTokenUtils.validateCSRFToken(request.getSession(), request.getParameter("csrfToken"))) {
+            writeError(response, "CSRF验证失败");
+            return;
+        }
+        Integer productId = parseId(request.getParameter("productId"));
+        String quantityStr = request.getParameter("quantity");
+        String priceStr = request.getParameter("price");
+        // 秒杀件数不受购物车单次数量上限限制
+        if (productId == null || !ValidationUtils.isValidPositiveInteger(quantityStr) || quantityStr.length() > 9
+                || Integer.parseInt(quantityStr) <= 0) {
+            writeError(response, "无效的商品ID或数量");
+            return;
+        }
+        BigDecimal price = null;
+        if (priceStr != null && !priceStr.trim().isEmpty()) {
+            if (!ValidationUtils.isValidPrice(priceStr.trim())) {
+                writeError(response, "无效的秒杀价");
+                return;
+            }
+            price = new BigDecimal(priceStr.trim());
+        }
+
+        FlashSale flashSale = flashSaleService.startSale(productId, Integer.parseInt(quantityStr), price);
+        if (flashSale == null) {
+            writeError(response, "开始秒杀失败：商品不存在、库存不足或已有进行中的秒杀");
+            return;
+        }
+        JSONObject result = new JSONObject();
+        result.put("success", true);
+        result.put("flashSaleId", flashSale.getId());
+        result.put("reserved", flashSale.getReserved());
+        result.put("price", flashSale.getPrice());
+        response.getWriter().print(result.toJSONString());
+    }
+
+    /**
+     * 结束秒杀（管理员操作），未售出的库存退回商品表
+     */
+    private void end(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        User user = (User) request.getSession().getAttribute("user");
+        if (user == null || !"admin".equals(user.getRole())) {
+            writeError(response, "无权限操作");
+            return;
+        }
+        if (!CSRFTokenUtils.validateCSRFToken(request.getSession(), request.getParameter("csrfToken"))) {
+            writeError(response, "CSRF验证失败");
+            return;
+        }
+        Integer productId = parseId(request.getParameter("productId"));
+        if (productId == null) {
+            writeError(response, "无效的商品ID");
+            return;
+        }
+        if (!flashSaleService.endSale(productId)) {
+            writeError(response, "结束秒杀失败：没有进行中的秒杀或订单仍在落库，请稍后重试");
+            return;
+        }
+        JSONObject result = new JSONObject();
+        result.put("success", true);
+        response.getWriter().print(result.toJSONString());
+    }
+
+    private static String messageOf(FlashSaleTicket.Status status) {
+        switch (status) {
+            case QUEUED:
+                return "抢购成功，订单处理中";
+            case SUCCESS:
+                return "下单成功，请在30分钟内付款";
+            case FAILED:
+                return "下单失败，名额已退回";
+            case NOT_ACTIVE:
+                return "秒杀未开始或已结束";
+            case SOLD_OUT:
+                return "已售罄";
+            case DUPLICATE:
+                return "每人限购一件";
+            case BUSY:
+                return "抢购人数过多，请稍后重试";
+            default:
+                return "";
+        }
+    }
+
+    private static Integer parseId(String value) {
+        return value != null && ValidationUtils.isValidId(value) ? Integer.parseInt(value) : null;
+    }
+
+    private static void writeError(HttpServletResponse response, String message) throws IOException {
+        JSONObject error = new JSONObject();
+        error.put("success", false);
+        error.put("message", message);
+        response.getWriter().print(error.toJSONString());
+    }
+}
@@ -4,6 +4,8 @@ import com.ecommerce.pojo.Order;
 import com.ecommerce.pojo.User;
 import com.ecommerce.service.OrderService;
 import com.ecommerce.service.impl.OrderServiceImpl;
+import com.ecommerce.utils.OrderCursor;
+import com.ecommerce.utils.ValidationUtils;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -12,12 +14,22 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
 import java.util.List;
 
 /**
  * 订单控制器
  */
 public class OrderController extends HttpServlet {
+    // 后台订单列表每页数量
+    private static final int ADMIN_PAGE_SIZE = 20;
+    private static final int MAX_ADMIN_PAGE_SIZE = 100;
+    private static final String[] STATUS_NAMES = {"待付款", "待发货", "待收货", "已完成", "已取消"};
+
     private OrderService orderService = new OrderServiceImpl();
 
     @Override
@@ -61,6 +73,9 @@ public class OrderController extends HttpServlet {
                 case "receive":
                     receiveOrder(request, response);
                     break;
+                case "export.csv":
+                    exportOrders(request, response);
+                    break;
                 default:
                     out.println("无效的请求");
             }
@@ -123,9 +138,33 @@ public class OrderController extends HttpServlet {
         }
         
         List<Order> orders;
-        // 管理员查看所有订单，普通用户查看自己的订单
+        // 管理员按条件分页查看所有订单，普通用户查看自己的订单
         if ("admin".equals(user.getRole())) {
-            orders = orderService.findAll();
+            Integer status = parseStatus(request.getParameter("status"));
+            Integer userId = parseId(request.getParameter("userId"));
+            Date startTime = parseDate(request.getParameter("startDate"), 0);
+            Date endTime = parseDate(request.getParameter("endDate"), 1);
+            OrderCursor after = OrderCursor.parse(request.getParameter("after"));
+
+            int pageSize = ADMIN_PAGE_SIZE;
+            String pageSizeStr = request.getParameter("pageSize");
+            if (ValidationUtils.isValidId(pageSizeStr)) {
+                pageSize = Math.min(Integer.parseInt(pageSizeStr), MAX_ADMIN_PAGE_SIZE);
+            }
+
+            // 多取一条用于判断是否还有下一页
+            orders = orderService.findByCursor(status, userId, startTime, endTime, after, pageSize + 1);
+            boolean hasMore = orders.size() > pageSize;
+            if (hasMore) {
+                orders = orders.subList(0, pageSize);
+                request.setAttribute("nextCursor", OrderCursor.of(orders.get(orders.size() - 1)).toString());
+            }
+            request.setAttribute("hasMore", hasMore);
+            request.setAttribute("firstPage", after == null);
+            request.setAttribute("filterStatus", status);
+            request.setAttribute("filterUserId", userId);
+            request.setAttribute("filterStartDate", startTime != null ? request.getParameter("startDate") : null);
+            request.setAttribute("filterEndDate", endTime != null ? request.getParameter("endDate") : null);
         } else {
             orders = orderService.findByUserId(user.getId());
         }
@@ -135,6 +174,99 @@ public class OrderController extends HttpServlet {
         request.getRequestDispatcher("/order_list.jsp").forward(request, response);
     }
 
+    /**
+     * 导出订单CSV（管理员），筛选条件与后台订单列表相同
+     * 订单逐行从数据库流式读取并直接写入响应，不在内存中汇总整个结果
+     */
+    private void exportOrders(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        User user = (User) request.getSession().getAttribute("user");
+        if (user == null || !"admin".equals(user.getRole())) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        Integer status = parseStatus(request.getParameter("status"));
+        Integer userId = parseId(request.getParameter("userId"));
+        Date startTime = parseDate(request.getParameter("startDate"), 0);
+        Date endTime = parseDate(request.getParameter("endDate"), 1);
+
+        response.setContentType("text/csv;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"orders.csv\"");
+        PrintWriter out = response.getWriter();
+        // UTF-8 BOM，Excel打开时才能正确识别中文
+        out.print('\uFEFF');
+        out.print("订单ID,订单号,用户ID,商品件数,订单金额,状态,收货人,联系电话,收货地址,下单时间\r\n");
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        StringBuilder line = new StringBuilder();
+        orderService.streamOrders(status, userId, startTime, endTime, order -> {
+            line.setLength(0);
+            line.append(order.getId()).append(',');
+            appendCsvField(line, order.getOrderNo()).append(',');
+            line.append(order.getUserId()).append(',');
+            line.append(order.getItemCount()).append(',');
+            line.append(order.getTotalPrice() != null ? order.getTotalPrice().toPlainString() : "").append(',');
+            appendCsvField(line, statusName(order.getStatus())).append(',');
+            appendCsvField(line, order.getReceiverName()).append(',');
+            appendCsvField(line, order.getReceiverPhone()).append(',');
+            appendCsvField(line, order.getReceiverAddress()).append(',');
+            line.append(order.getCreateTime() != null ? format.format(order.getCreateTime()) : "").append("\r\n");
+            out.write(line.toString());
+        });
+        out.flush();
+    }
+
+    /**
+     * 追加CSV字段：含逗号、引号或换行时加引号转义；以=、+、-、@开头时加单引号前缀，防止表格软件当作公式执行
+     */
+    private static StringBuilder appendCsvField(StringBuilder line, String value) {
+        if (value == null) {
+            return line;
+        }
+        if (!value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+        return line.append(value);
+    }
+
+    private static String statusName(Integer status) {
+        return status != null && status >= 0 && status < STATUS_NAMES.length ? STATUS_NAMES[status] : "未知";
+    }
+
+    /**
+     * 解析订单状态筛选，无效时返回null（不限）
+     */
+    private static Integer parseStatus(String value) {
+        if (value == null || !value.matches("[0-4]")) {
+            return null;
+        }
+        return Integer.parseInt(value);
+    }
+
+    private static Integer parseId(String value) {
+        if (!ValidationUtils.isValidId(value)) {
+            return null;
+        }
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * 解析yyyy-MM-dd日期，返回该日期加offsetDays天的零点；截止日期传1，使当天的订单包含在内
+     */
+    private static Date parseDate(String value, int offsetDays) {
+        if (value == null || !value.matches("\\d{4}-\\d{2}-\\d{2}")) {
+            return null;
+        }
+        try {
+            LocalDate date = LocalDate.parse(value).plusDays(offsetDays);
+            return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
     /**
      * 订单详情
      */
@@ -222,12 +354,13 @@ public class OrderController extends HttpServlet {
         
         try {
             Integer orderId = Integer.parseInt(idStr);
-            boolean success = orderService.updateOrderStatus(orderId, 1); // 1表示待发货
+            // 待付款→待发货，订单已取消或已超过支付期限时失败
+            boolean success = orderService.payOrder(orderId, user.getId());
             
             if (success) {
                 out.println("订单支付成功！<a href='" + request.getContextPath() + "/order/list'>返回订单列表</a>");
             } else {
-                out.println("订单支付失败！<a href='" + request.getContextPath() + "/order/list'>返回订单列表</a>");
+                out.println("订单支付失败，订单可能已超时取消！<a href='" + request.getContextPath() + "/order/list'>返回订单列表</a>");
             }
         } catch (NumberFormatException e) {
             out.println("无效的订单ID格式！<a href='" + request.getContextPath() + "/order/list'>返回订单列表</a>");
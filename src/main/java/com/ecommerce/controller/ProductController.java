@@ -1,8 +1,17 @@
 package com.ecommerce.controller;
 
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.ecommerce.pojo.Category;
+import com.ecommerce.pojo.PageResult;
 import com.ecommerce.pojo.Product;
+import com.ecommerce.pojo.User;
+import com.ecommerce.search.ProductFacetIndex;
+import com.ecommerce.search.ProductSuggester;
 import com.ecommerce.service.ProductService;
 import com.ecommerce.service.impl.ProductServiceImpl;
+import com.ecommerce.utils.CSRFTokenUtils;
+import com.ecommerce.utils.ProductCursor;
 import com.ecommerce.utils.ValidationUtils;
 import com.ecommerce.service.CategoryService;
 import com.ecommerce.service.impl.CategoryServiceImpl;
@@ -12,10 +21,13 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 import javax.servlet.http.Part;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class ProductController extends HttpServlet {
     private ProductService productService = new ProductServiceImpl();
@@ -53,6 +65,18 @@ public class ProductController extends HttpServlet {
                 case "search":
                     searchProducts(request, response);
                     break;
+                case "feed.json":
+                    productFeedJson(request, response);
+                    break;
+                case "suggest.json":
+                    suggestJson(request, response);
+                    break;
+                case "facets.json":
+                    facetsJson(request, response);
+                    break;
+                case "stockShards.json":
+                    stockShardsJson(request, response);
+                    break;
                 case "save":
                     saveProduct(request, response);
                     break;
@@ -97,21 +121,11 @@ public class ProductController extends HttpServlet {
             categoryId = Integer.parseInt(categoryIdStr);
         }
 
-        List<Product> products;
-        int totalCount;
-
-        if (categoryId != null) {
-            // 获取分类及其所有子分类的ID列表
-            List<Integer> categoryIds = categoryService.getCategoryIdsWithChildren(categoryId);
-            System.out.println("分类ID列表：" + categoryIds);
-            
-            // 根据分类ID列表查询商品
-            products = productService.findByCategoryIdsAndPage(categoryIds, page, pageSize);
-            totalCount = productService.countByCategoryIds(categoryIds);
-        } else {
-            products = productService.findByPage(page, pageSize);
-            totalCount = productService.countAll();
-        }
+        // 当前页与总数一次查询，子分类通过分类闭包表关联
+        boolean exactCount = isExactCountRequested(request);
+        PageResult<Product> result = productService.findProductPage(categoryId, null, page, pageSize, exactCount);
+        List<Product> products = result.getItems();
+        int totalCount = result.getTotal();
 
         int totalPages = (int) Math.ceil((double) totalCount / pageSize);
         if (totalPages == 0) totalPages = 1;
@@ -127,10 +141,24 @@ public class ProductController extends HttpServlet {
         request.setAttribute("totalCount", totalCount);
         request.setAttribute("pageSize", pageSize);
         request.setAttribute("categoryId", categoryId);
+        request.setAttribute("exactTotal", result.isExactTotal());
 
         request.getRequestDispatcher("/product_list.jsp").forward(request, response);
     }
 
+    /**
+     * 是否需要精确总数：管理员可通过count=exact参数获取实时精确总数，
+     * 其他情况使用短时缓存的近似总数
+     */
+    private boolean isExactCountRequested(HttpServletRequest request) {
+        if (!"exact".equalsIgnoreCase(request.getParameter("count"))) {
+            return false;
+        }
+        HttpSession session = request.getSession(false);
+        User user = session != null ? (User) session.getAttribute("user") : null;
+        return user != null && "admin".equals(user.getRole());
+    }
+
     /**
      * 商品详情
      */
@@ -176,8 +204,11 @@ public class ProductController extends HttpServlet {
             if (pageSize < 1 || pageSize > 100) pageSize = 12;
         }
 
-        List<Product> products = productService.searchByPage(safeKeyword, page, pageSize);
-        int totalCount = productService.countSearchResults(safeKeyword);
+        // 优先走倒排索引，索引未就绪时回退SQL查询
+        boolean exactCount = isExactCountRequested(request);
+        PageResult<Product> result = productService.searchProducts(safeKeyword, page, pageSize, exactCount);
+        List<Product> products = result.getItems();
+        int totalCount = result.getTotal();
         int totalPages = (int) Math.ceil((double) totalCount / pageSize);
         if (totalPages == 0) totalPages = 1;
         if (page > totalPages) page = totalPages;
@@ -192,10 +223,288 @@ public class ProductController extends HttpServlet {
         request.setAttribute("totalPages", totalPages);
         request.setAttribute("totalCount", totalCount);
         request.setAttribute("pageSize", pageSize);
+        request.setAttribute("exactTotal", result.isExactTotal());
 
         request.getRequestDispatcher("/product_list.jsp").forward(request, response);
     }
 
+    /**
+     * 商品信息流（JSON，用于无限滚动）
+     * 按(create_time, id)游标分页：after为上一页返回的nextCursor，为空时返回第一页
+     */
+    private void productFeedJson(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+
+        String afterStr = request.getParameter("after");
+        String categoryIdStr = request.getParameter("categoryId");
+        String pageSizeStr = request.getParameter("pageSize");
+        String keyword = ValidationUtils.sanitizeInput(request.getParameter("keyword"));
+
+        ProductCursor after = ProductCursor.parse(afterStr);
+        if (afterStr != null && !afterStr.trim().isEmpty() && after == null) {
+            JSONObject error = new JSONObject();
+            error.put("success", false);
+            error.put("message", "无效的游标");
+            out.print(error.toJSONString());
+            return;
+        }
+
+        int pageSize = 12;
+        if (pageSizeStr != null && ValidationUtils.isValidPositiveInteger(pageSizeStr)) {
+            pageSize = Integer.parseInt(pageSizeStr);
+            if (pageSize < 1 || pageSize > 100) pageSize = 12;
+        }
+
+        Integer categoryId = null;
+        if (categoryIdStr != null && ValidationUtils.isValidPositiveInteger(categoryIdStr)) {
+            categoryId = Integer.parseInt(categoryIdStr);
+        }
+
+        // 多取一条用于判断是否还有下一页
+        List<Product> products = productService.findByCursor(categoryId, keyword, after, pageSize + 1);
+        boolean hasMore = products.size() > pageSize;
+        if (hasMore) {
+            products = products.subList(0, pageSize);
+        }
+
+        JSONArray items = new JSONArray();
+        for (Product p : products) {
+            JSONObject item = new JSONObject();
+            item.put("id", p.getId());
+            item.put("name", p.getName());
+            item.put("categoryId", p.getCategoryId());
+            item.put("price", p.getPrice());
+            item.put("stock", p.getStock());
+            item.put("image", p.getImage());
+            items.add(item);
+        }
+        ProductCursor next = hasMore ? ProductCursor.of(products.get(products.size() - 1)) : null;
+
+        JSONObject result = new JSONObject();
+        result.put("success", true);
+        result.put("items", items);
+        result.put("hasMore", hasMore);
+        result.put("nextCursor", next != null ? next.toString() : null);
+        out.print(result.toJSONString());
+    }
+
+    /**
+     * 搜索输入联想（JSON），按销量返回名称以输入开头（或名称中某个词以输入开头）的商品
+     */
+    private void suggestJson(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+
+        String q = request.getParameter("q");
+        int limit = 8;
+        String limitStr = request.getParameter("limit");
+        if (limitStr != null && ValidationUtils.isValidPositiveInteger(limitStr)) {
+            limit = Math.min(Integer.parseInt(limitStr), ProductSuggester.TOP_K);
+        }
+
+        JSONObject result = new JSONObject();
+        JSONArray items = new JSONArray();
+        Map<Integer, String> suggestions = ProductSuggester.getInstance().suggest(q, limit);
+        if (suggestions != null) {
+            for (Map.Entry<Integer, String> entry : suggestions.entrySet()) {
+                JSONObject item = new JSONObject();
+                item.put("id", entry.getKey());
+                item.put("name", entry.getValue());
+                items.add(item);
+            }
+        }
+        result.put("success", true);
+        result.put("ready", suggestions != null);
+        result.put("items", items);
+        out.print(result.toJSONString());
+    }
+
+    /**
+     * 设置商品库存分片数（JSON，管理员操作）
+     * 参数：id、shards（小于等于1表示关闭分片）、csrfToken
+     */
+    private void stockShardsJson(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+        JSONObject result = new JSONObject();
+
+        String idStr = request.getParameter("id");
+        String shardsStr = request.getParameter("shards");
+        User user = (User) request.getSession().getAttribute("user");
+        if (user == null || !"admin".equals(user.getRole())) {
+            result.put("success", false);
+            result.put("message", "无权限操作");
+        } else if (!CSRFTokenUtils.validateCSRFToken(request.getSession(), request.getParameter("csrfToken"))) {
+            result.put("success", false);
+            result.put("message", "CSRF验证失败");
+        } else if (idStr == null || !ValidationUtils.isValidId(idStr)
+                || !ValidationUtils.isValidPositiveInteger(shardsStr) || shardsStr.length() > 3) {
+            result.put("success", false);
+            result.put("message", "无效的商品ID或分片数");
+        } else {
+            boolean ok = productService.setStockShards(Integer.parseInt(idStr), Integer.parseInt(shardsStr));
+            result.put("success", ok);
+            if (!ok) {
+                result.put("message", "商品不存在");
+            }
+        }
+        out.print(result.toJSONString());
+    }
+
+    /**
+     * 分面筛选（JSON）
+     * 参数：categoryId（含子分类）、price（价格区间序号，可多个）、inStock=1（只看有货）、page、pageSize；
+     * 返回当前页商品及分类、价格区间、有货状态的实时计数
+     */
+    private void facetsJson(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+
+        int page = 1;
+        int pageSize = 12;
+        String pageStr = request.getParameter("page");
+        String pageSizeStr = request.getParameter("pageSize");
+        if (pageStr != null && ValidationUtils.isValidPositiveInteger(pageStr)) {
+            page = Integer.parseInt(pageStr);
+        }
+        if (pageSizeStr != null && ValidationUtils.isValidPositiveInteger(pageSizeStr)) {
+            pageSize = Integer.parseInt(pageSizeStr);
+            if (pageSize < 1 || pageSize > 100) pageSize = 12;
+        }
+
+        // 分类树只查询一次，子分类展开与计数汇总都在内存中完成
+        List<Category> categoryTree = categoryService.getCategoryTree();
+        List<Integer> categoryIds = null;
+        String categoryIdStr = request.getParameter("categoryId");
+        if (categoryIdStr != null && ValidationUtils.isValidPositiveInteger(categoryIdStr)) {
+            categoryIds = new ArrayList<>();
+            Category selected = findCategory(categoryTree, Integer.parseInt(categoryIdStr));
+            if (selected != null) {
+                collectCategoryIds(selected, categoryIds);
+            }
+        }
+        List<Integer> priceBands = new ArrayList<>();
+        String[] priceValues = request.getParameterValues("price");
+        if (priceValues != null) {
+            for (String value : priceValues) {
+                if (value != null && value.matches("\\d{1,2}")) {
+                    priceBands.add(Integer.parseInt(value));
+                }
+            }
+        }
+        boolean inStockOnly = "1".equals(request.getParameter("inStock")) || "true".equals(request.getParameter("inStock"));
+
+        ProductFacetIndex.Result facets = ProductFacetIndex.getInstance().query(new ProductFacetIndex.Query()
+                .categoryIds(categoryIds)
+                .priceBands(priceBands)
+                .inStockOnly(inStockOnly)
+                .page((page - 1) * pageSize, pageSize));
+        JSONObject result = new JSONObject();
+        if (facets == null) {
+            result.put("success", false);
+            result.put("ready", false);
+            result.put("message", "商品索引正在构建，请稍后再试");
+            out.print(result.toJSONString());
+            return;
+        }
+
+        // 当前页商品按ID顺序批量加载
+        Map<Integer, Product> products = productService.findByIds(facets.getProductIds());
+        JSONArray items = new JSONArray();
+        for (Integer id : facets.getProductIds()) {
+            Product p = products.get(id);
+            if (p == null) {
+                continue;
+            }
+            JSONObject item = new JSONObject();
+            item.put("id", p.getId());
+            item.put("name", p.getName());
+            item.put("categoryId", p.getCategoryId());
+            item.put("price", p.getPrice());
+            item.put("stock", p.getStock());
+            item.put("image", p.getImage());
+            items.add(item);
+        }
+
+        // 分类计数汇总到祖先分类（父分类的计数包含全部子分类）
+        JSONArray categoryFacets = new JSONArray();
+        for (Category top : categoryTree) {
+            rollUpCategoryCount(top, facets.getCategoryCounts(), categoryFacets);
+        }
+        JSONArray priceFacets = new JSONArray();
+        String[] labels = ProductFacetIndex.getPriceBandLabels();
+        for (int i = 0; i < labels.length; i++) {
+            JSONObject band = new JSONObject();
+            band.put("band", i);
+            band.put("label", labels[i]);
+            band.put("count", facets.getPriceBandCounts()[i]);
+            band.put("selected", priceBands.contains(i));
+            priceFacets.add(band);
+        }
+
+        result.put("success", true);
+        result.put("ready", true);
+        result.put("total", facets.getTotal());
+        result.put("page", page);
+        result.put("pageSize", pageSize);
+        result.put("items", items);
+        result.put("categories", categoryFacets);
+        result.put("priceBands", priceFacets);
+        result.put("inStockCount", facets.getInStockCount());
+        out.print(result.toJSONString());
+    }
+
+    private Category findCategory(List<Category> nodes, int id) {
+        if (nodes == null) {
+            return null;
+        }
+        for (Category node : nodes) {
+            if (node.getId() == id) {
+                return node;
+            }
+            Category found = findCategory(node.getChildren(), id);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    private void collectCategoryIds(Category node, List<Integer> ids) {
+        ids.add(node.getId());
+        if (node.getChildren() != null) {
+            for (Category child : node.getChildren()) {
+                collectCategoryIds(child, ids);
+            }
+        }
+    }
+
+    /**
+     * 计算分类（含子分类）的商品数，有商品的分类按先序加入结果
+     */
+    private int rollUpCategoryCount(Category node, Map<Integer, Integer> ownCounts, JSONArray out) {
+        JSONObject facet = new JSONObject();
+        out.add(facet);
+        int position = out.size() - 1;
+        Integer own = ownCounts.get(node.getId());
+        int count = own != null ? own : 0;
+        if (node.getChildren() != null) {
+            for (Category child : node.getChildren()) {
+                count += rollUpCategoryCount(child, ownCounts, out);
+            }
+        }
+        if (count == 0) {
+            out.remove(position);
+        } else {
+            facet.put("id", node.getId());
+            facet.put("name", node.getName());
+            facet.put("parentId", node.getParentId());
+            facet.put("count", count);
+        }
+        return count;
+    }
+
     private void saveProduct(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         PrintWriter out = response.getWriter();
         
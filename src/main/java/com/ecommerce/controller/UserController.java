@@ -1,6 +1,5 @@
 package com.ecommerce.controller;
 
-import com.ecommerce.pojo.Cart;
 import com.ecommerce.pojo.CartItem;
 import com.ecommerce.pojo.Product;
 import com.ecommerce.pojo.User;
@@ -21,7 +20,10 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 用户控制器
@@ -229,27 +231,26 @@ public class UserController extends HttpServlet {
             return;
         }
         
-        // 获取或创建用户的数据库购物车
-        Cart cart = cartService.findByUserId(user.getId());
-        if (cart == null) {
-            cart = new Cart();
-            cart.setUserId(user.getId());
-            cartService.save(cart);
-            // 重新获取购物车以获取生成的ID
-            cart = cartService.findByUserId(user.getId());
+        // 一次加载所有Session购物车商品
+        List<Integer> productIds = new ArrayList<>();
+        for (CartItem sessionItem : sessionCartItems) {
+            productIds.add(sessionItem.getProductId());
         }
-        
-        // 合并购物车商品
+        Map<Integer, Product> products = productService.findByIds(productIds);
+
+        // 汇总需要合并的商品数量
+        Map<Integer, Integer> quantities = new LinkedHashMap<>();
         for (CartItem sessionItem : sessionCartItems) {
             // 验证商品库存
-            Product product = productService.findById(sessionItem.getProductId());
+            Product product = products.get(sessionItem.getProductId());
             if (product == null || product.getStock() < sessionItem.getQuantity()) {
                 continue; // 跳过库存不足的商品
             }
-            
-            // 添加到数据库购物车
-            cartService.addToCart(user.getId(), sessionItem.getProductId(), sessionItem.getQuantity());
+            quantities.merge(sessionItem.getProductId(), sessionItem.getQuantity(), Integer::sum);
         }
+
+        // 一次批处理合并到数据库购物车（购物车不存在时自动创建）
+        cartService.mergeItems(user.getId(), quantities);
         
         // 清空Session购物车
         session.removeAttribute("cartItems");
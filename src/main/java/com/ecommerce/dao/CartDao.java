@@ -4,6 +4,7 @@ import com.ecommerce.pojo.Cart;
 import com.ecommerce.pojo.CartItem;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 购物车数据访问接口
@@ -26,7 +27,7 @@ public interface CartDao {
     /**
      * 保存购物车
      * @param cart 购物车对象
-     * @return 影响的行数
+     * @return 数据库生成的ID（同时回填到对象中），保存失败返回0
      */
     int save(Cart cart);
 
@@ -66,6 +67,15 @@ public interface CartDao {
      */
     int saveCartItem(CartItem cartItem);
 
+    /**
+     * 批量合并商品到购物车：不存在的商品新增，已存在的商品累加数量
+     * 基于(cart_id, product_id)唯一键的INSERT ... ON DUPLICATE KEY UPDATE批处理，一次往返
+     * @param cartId 购物车ID
+     * @param quantities 商品ID到数量的映射
+     * @return 全部合并成功返回true
+     */
+    boolean mergeItems(Integer cartId, Map<Integer, Integer> quantities);
+
     /**
      * 更新购物车商品项
      * @param cartItem 购物车商品项
@@ -31,7 +31,7 @@ public interface CategoryDao {
     /**
      * 保存分类
      * @param category 分类对象
-     * @return 影响的行数
+     * @return 数据库生成的ID（同时回填到对象中），保存失败返回0
      */
     int save(Category category);
 
@@ -48,4 +48,19 @@ public interface CategoryDao {
      * @return 影响的行数
      */
     int delete(Integer id);
+
+    /**
+     * 调整分类及其所有祖先分类的商品计数，需与商品写入在同一事务中调用
+     * @param categoryId 商品所属分类ID
+     * @param productDelta 商品数量变化
+     * @param activeDelta 上架商品数量变化
+     * @return 影响的行数
+     */
+    int adjustProductCounts(Integer categoryId, int productDelta, int activeDelta);
+
+    /**
+     * 按商品表重新计算所有分类的商品计数，只更新与实际不符的分类
+     * @return 修正的分类数量，失败返回-1
+     */
+    int repairProductCounts();
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.ecommerce.dao;
+
+import com.ecommerce.pojo.FlashSale;
+
+import java.util.List;
+
+/**
+ * 秒杀活动数据访问接口
+ */
+public interface FlashSaleDao {
+    /**
+     * 保存秒杀活动
+     * @param flashSale 秒杀活动
+     * @return 数据库生成的ID（同时回填到对象中），保存失败返回0
+     */
+    int save(FlashSale flashSale);
+
+    /**
+     * 根据ID查询秒杀活动并加行锁（需在事务中调用）
+     * @param id 活动ID
+     * @return 秒杀活动
+     */
+    FlashSale findByIdForUpdate(Integer id);
+
+    /**
+     * 查询进行中的秒杀活动
+     * @return 秒杀活动列表
+     */
+    List<FlashSale> findActive();
+
+    /**
+     * 累加已售件数，需与订单落库在同一事务中调用
+     * @param id 活动ID
+     * @param quantity 件数
+     * @return 影响的行数
+     */
+    int addSold(Integer id, int quantity);
+
+    /**
+     * 将进行中的活动标记为已结束
+     * @param id 活动ID
+     * @return 影响的行数，0表示活动已结束
+     */
+    int finish(Integer id);
+}
@@ -2,8 +2,13 @@ package com.ecommerce.dao;
 
 import com.ecommerce.pojo.Order;
 import com.ecommerce.pojo.OrderItem;
+import com.ecommerce.utils.OrderCursor;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 订单数据访问接口
@@ -31,15 +36,33 @@ public interface OrderDao {
     List<Order> findByUserId(Integer userId);
 
     /**
-     * 查询所有订单
+     * 游标（keyset）分页查询订单（不含商品项），按(create_time, id)倒序，翻页代价与页码深度无关
+     * @param status 订单状态，null表示不限
+     * @param userId 用户ID，null表示不限
+     * @param startTime 起始下单时间（含），null表示不限
+     * @param endTime 截止下单时间（不含），null表示不限
+     * @param after 上一页最后一个订单的游标，null表示第一页
+     * @param limit 查询条数
      * @return 订单列表
      */
-    List<Order> findAll();
+    List<Order> findByCursor(Integer status, Integer userId, Date startTime, Date endTime, OrderCursor after, int limit);
+
+    /**
+     * 以流式游标逐行读取符合条件的订单（不含商品项），按(create_time, id)倒序，内存占用与结果行数无关
+     * 读取期间连接被结果集占用，handler中不能再访问数据库
+     * @param status 订单状态，null表示不限
+     * @param userId 用户ID，null表示不限
+     * @param startTime 起始下单时间（含），null表示不限
+     * @param endTime 截止下单时间（不含），null表示不限
+     * @param handler 逐行处理订单
+     * @return 读取的订单数
+     */
+    int streamFiltered(Integer status, Integer userId, Date startTime, Date endTime, Consumer<Order> handler);
 
     /**
      * 保存订单
      * @param order 订单对象
-     * @return 影响的行数
+     * @return 数据库生成的ID（同时回填到对象中），保存失败返回0
      */
     int save(Order order);
 
@@ -50,6 +73,15 @@ public interface OrderDao {
      */
     int update(Order order);
 
+    /**
+     * 仅当订单处于指定状态时更新状态，用于防止并发下重复流转（如重复取消导致重复恢复库存）
+     * @param id 订单ID
+     * @param expectedStatus 期望的当前状态
+     * @param newStatus 新状态
+     * @return 影响的行数，0表示订单状态已变化
+     */
+    int updateStatusIfMatch(Integer id, Integer expectedStatus, Integer newStatus);
+
     /**
      * 删除订单
      * @param id 订单ID
@@ -64,12 +96,26 @@ public interface OrderDao {
      */
     List<OrderItem> findOrderItemsByOrderId(Integer orderId);
 
+    /**
+     * 根据多个订单ID批量查询订单商品项（一条IN查询）
+     * @param orderIds 订单ID集合
+     * @return 订单ID到商品项列表的映射，没有商品项的订单不在映射中
+     */
+    Map<Integer, List<OrderItem>> findOrderItemsByOrderIds(Collection<Integer> orderIds);
+
     /**
      * 保存订单商品项
      * @param orderItem 订单商品项
      * @return 影响的行数
      */
     int saveOrderItem(OrderItem orderItem);
+
+    /**
+     * 批量保存订单商品项（JDBC批处理，一次往返）
+     * @param orderItems 订单商品项列表
+     * @return 保存的商品项数量
+     */
+    int saveOrderItems(List<OrderItem> orderItems);
     
     /**
      * 获取订单总数
@@ -82,4 +128,10 @@ public interface OrderDao {
      * @return 总销售额
      */
     double getTotalSales();
+
+    /**
+     * 统计各商品的累计销量（不含已取消订单）
+     * @return 商品ID到销量的映射
+     */
+    Map<Integer, Integer> sumQuantityByProduct();
 }
\ No newline at end of file
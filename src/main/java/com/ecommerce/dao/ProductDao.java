@@ -1,8 +1,12 @@
 package com.ecommerce.dao;
 
+import com.ecommerce.pojo.PageResult;
 import com.ecommerce.pojo.Product;
+import com.ecommerce.utils.ProductCursor;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 商品数据访问接口
@@ -15,6 +19,20 @@ public interface ProductDao {
      */
     Product findById(Integer id);
 
+    /**
+     * 根据ID查询商品并加行锁（需在事务中调用）
+     * @param id 商品ID
+     * @return 商品对象
+     */
+    Product findByIdForUpdate(Integer id);
+
+    /**
+     * 根据ID集合批量查询商品，ID较多时按批拆分为多个IN查询
+     * @param ids 商品ID集合
+     * @return 商品ID到商品对象的映射，不存在的商品不在映射中
+     */
+    Map<Integer, Product> findByIds(Collection<Integer> ids);
+
     /**
      * 查询所有商品
      * @return 商品列表
@@ -61,6 +79,27 @@ public interface ProductDao {
      */
     List<Product> searchByPage(String keyword, int offset, int limit);
 
+    /**
+     * 分页查询上架商品，可在同一条语句中通过COUNT(*) OVER()返回总数
+     * @param categoryId 分类ID（包含其所有子孙分类，通过分类闭包表关联），null表示不限分类
+     * @param keyword 名称关键词，null表示不限
+     * @param offset 偏移量
+     * @param limit 查询条数
+     * @param withTotal 是否同时返回总数，为false时结果总数为-1
+     * @return 分页结果
+     */
+    PageResult<Product> findPage(Integer categoryId, String keyword, int offset, int limit, boolean withTotal);
+
+    /**
+     * 游标（keyset）分页查询上架商品，按(create_time, id)倒序，翻页代价与页码深度无关
+     * @param categoryId 分类ID（包含其所有子孙分类），null表示不限分类
+     * @param keyword 名称关键词，null表示不限
+     * @param after 上一页最后一个商品的游标，null表示第一页
+     * @param limit 查询条数
+     * @return 商品列表
+     */
+    List<Product> findByCursor(Integer categoryId, String keyword, ProductCursor after, int limit);
+
     /**
      * 获取商品总数
      * @return 商品总数
@@ -107,7 +146,7 @@ public interface ProductDao {
     /**
      * 保存商品
      * @param product 商品对象
-     * @return 影响的行数
+     * @return 数据库生成的ID（同时回填到对象中），保存失败返回0
      */
     int save(Product product);
 
@@ -119,13 +158,50 @@ public interface ProductDao {
     int update(Product product);
 
     /**
-     * 更新商品库存
+     * 更新商品库存，分片商品把新库存均分到各分片
      * @param id 商品ID
      * @param stock 新库存数量
      * @return 影响的行数
      */
     int updateStock(Integer id, Integer stock);
 
+    /**
+     * 设置商品的库存分片数（按当前总库存均分），热门商品分片后并发扣减分散到多行，不再争用同一商品行
+     * @param id 商品ID
+     * @param shards 分片数，小于等于1表示关闭分片（分片库存合并回product.stock）
+     * @return 是否设置成功，商品不存在时返回false
+     */
+    boolean setStockShards(Integer id, int shards);
+
+    /**
+     * 均衡库存分片：有分片库存过低的商品重新均分，并把各分片合计同步到product.stock（列表展示与筛选使用）
+     * @return 库存同步值发生变化的商品ID到最新库存的映射
+     */
+    Map<Integer, Integer> rebalanceStockShards();
+
+    /**
+     * 按商品ID升序对商品行加锁（SELECT ... FOR UPDATE）并返回当前库存，须在事务中调用
+     * 固定的加锁顺序可避免并发下单时互相死锁；分片商品不锁商品行，返回分片合计
+     * @param ids 商品ID集合
+     * @return 商品ID到库存的映射，不存在的商品不在映射中
+     */
+    Map<Integer, Integer> lockStock(Collection<Integer> ids);
+
+    /**
+     * 批量扣减库存，每个商品仅在库存充足时扣减（stock = stock - ? WHERE id = ? AND stock >= ?）
+     * 分片商品随机扣减一个库存充足的分片，没有时再尝试其他分片或跨分片扣减
+     * @param quantities 商品ID到扣减数量的映射
+     * @return 全部商品扣减成功返回true，任意商品库存不足返回false（调用方应回滚事务）
+     */
+    boolean decreaseStock(Map<Integer, Integer> quantities);
+
+    /**
+     * 批量恢复库存（stock = stock + ?）
+     * @param quantities 商品ID到恢复数量的映射
+     * @return 全部商品恢复成功返回true
+     */
+    boolean increaseStock(Map<Integer, Integer> quantities);
+
     /**
      * 删除商品
      * @param id 商品ID
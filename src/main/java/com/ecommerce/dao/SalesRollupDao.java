@@ -0,0 +1,46 @@
+package com.ecommerce.dao;
+
+import com.ecommerce.pojo.SalesPoint;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 销售汇总数据访问接口
+ * sales_rollup按(小时, 分类, 订单状态)预聚合订单数、商品件数与金额，
+ * category_id为0的行是整单合计（金额取订单total_amount），其余行按订单商品项下单时的分类快照汇总
+ */
+public interface SalesRollupDao {
+    /**
+     * 将一个订单计入（或移出）指定状态的汇总，需与订单状态变更在同一事务中调用
+     * @param orderId 订单ID
+     * @param status 订单状态
+     * @param sign 1表示计入，-1表示移出
+     * @return 影响的行数
+     */
+    int applyOrder(Integer orderId, int status, int sign);
+
+    /**
+     * 清空并由订单表重新生成全部汇总数据（用于首次回填或修复）
+     * @return 生成的汇总行数，失败返回-1
+     */
+    int rebuild();
+
+    /**
+     * 统计指定订单状态的销售总额
+     * @param status 订单状态
+     * @return 销售总额
+     */
+    BigDecimal sumAmount(int status);
+
+    /**
+     * 查询整单合计的时间序列，只返回有数据的时间桶
+     * @param daily true读取按天汇总，false读取按小时汇总
+     * @param from 起始时间（含）
+     * @param to 结束时间（不含）
+     * @param statuses 计入的订单状态
+     * @return 按时间升序的汇总点
+     */
+    List<SalesPoint> findSeries(boolean daily, Date from, Date to, int[] statuses);
+}
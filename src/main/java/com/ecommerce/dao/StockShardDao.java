@@ -0,0 +1,69 @@
+package com.ecommerce.dao;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 商品库存分片数据访问接口
+ * 分片编号从0开始连续，数组下标即分片编号
+ */
+public interface StockShardDao {
+    /**
+     * 查询商品的分片库存（一致性读，不加锁），用于挑选可扣减的分片
+     * @param productIds 商品ID集合
+     * @return 商品ID到各分片库存的映射，未分片的商品不在映射中
+     */
+    Map<Integer, int[]> findQuantities(Collection<Integer> productIds);
+
+    /**
+     * 查询全部分片商品的分片库存（一致性读，不加锁）
+     * @return 商品ID到各分片库存的映射
+     */
+    Map<Integer, int[]> findAllQuantities();
+
+    /**
+     * 按分片编号升序锁定商品的全部分片并返回最新库存，须在事务中调用
+     * @param productId 商品ID
+     * @return 各分片库存，商品未分片时返回空数组
+     */
+    int[] lockQuantities(Integer productId);
+
+    /**
+     * 在库存充足时扣减一个分片（quantity = quantity - ? WHERE ... AND quantity >= ?）
+     * @param productId 商品ID
+     * @param shardNo 分片编号
+     * @param quantity 扣减数量
+     * @return 是否扣减成功
+     */
+    boolean tryDecrease(Integer productId, int shardNo, int quantity);
+
+    /**
+     * 增加一个分片的库存
+     * @param productId 商品ID
+     * @param shardNo 分片编号
+     * @param quantity 增加数量
+     * @return 是否更新成功，分片不存在时返回false
+     */
+    boolean increase(Integer productId, int shardNo, int quantity);
+
+    /**
+     * 批量设置各分片库存，须先通过lockQuantities锁定分片
+     * @param productId 商品ID
+     * @param quantities 各分片库存
+     */
+    void setQuantities(Integer productId, int[] quantities);
+
+    /**
+     * 创建分片
+     * @param productId 商品ID
+     * @param quantities 各分片初始库存
+     */
+    void create(Integer productId, int[] quantities);
+
+    /**
+     * 删除商品的全部分片
+     * @param productId 商品ID
+     * @return 删除的分片数
+     */
+    int deleteByProductId(Integer productId);
+}
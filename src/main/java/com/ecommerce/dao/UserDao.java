@@ -30,7 +30,7 @@ public interface UserDao {
     /**
      * 保存用户
      * @param user 用户对象
-     * @return 影响的行数
+     * @return 数据库生成的ID（同时回填到对象中），保存失败返回0
      */
     int save(User user);
 
@@ -10,23 +10,44 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * 购物车数据访问实现类
  */
 public class CartDaoImpl implements CartDao {
-    private static final String FIND_BY_ID = "SELECT id, user_id, create_time, update_time FROM cart WHERE id = ?";
-    private static final String FIND_BY_USER_ID = "SELECT id, user_id, create_time, update_time FROM cart WHERE user_id = ?";
     private static final String SAVE = "INSERT INTO cart (user_id, create_time, update_time) VALUES (?, ?, ?)";
     private static final String UPDATE = "UPDATE cart SET update_time = ? WHERE id = ?";
     private static final String DELETE = "DELETE FROM cart WHERE id = ?";
     
-    private static final String FIND_CART_ITEMS_BY_CART_ID = "SELECT id, cart_id, product_id, quantity FROM cart_item WHERE cart_id = ?";
-    private static final String FIND_CART_ITEM_BY_CART_ID_AND_PRODUCT_ID = "SELECT id, cart_id, product_id, quantity FROM cart_item WHERE cart_id = ? AND product_id = ?";
-    private static final String FIND_CART_ITEM_BY_ID = "SELECT id, cart_id, product_id, quantity FROM cart_item WHERE id = ?";
+    // 购物车商品项与商品信息的列，cart_item JOIN product一次查出，避免逐条加载商品（N+1查询）
+    private static final String CART_ITEM_COLUMNS = "ci.id as item_id, ci.cart_id, ci.product_id, ci.quantity, " +
+            "p.id as p_id, p.name as p_name, p.category_id as p_category_id, p.price as p_price, p.stock as p_stock, " +
+            "p.description as p_description, p.image as p_image, p.status as p_status, p.create_time as p_create_time, p.update_time as p_update_time";
+
+    // 购物车、商品项、商品一次性查询
+    private static final String FIND_CART_WITH_ITEMS_BY_ID = "SELECT c.id, c.user_id, c.create_time, c.update_time, " + CART_ITEM_COLUMNS + " " +
+            "FROM cart c " +
+            "LEFT JOIN cart_item ci ON c.id = ci.cart_id " +
+            "LEFT JOIN product p ON ci.product_id = p.id " +
+            "WHERE c.id = ? " +
+            "ORDER BY ci.id ASC";
+    private static final String FIND_CART_WITH_ITEMS_BY_USER_ID = "SELECT c.id, c.user_id, c.create_time, c.update_time, " + CART_ITEM_COLUMNS + " " +
+            "FROM cart c " +
+            "LEFT JOIN cart_item ci ON c.id = ci.cart_id " +
+            "LEFT JOIN product p ON ci.product_id = p.id " +
+            "WHERE c.user_id = ? " +
+            "ORDER BY c.id ASC, ci.id ASC";
+
+    private static final String FIND_CART_ITEMS_BY_CART_ID = "SELECT " + CART_ITEM_COLUMNS + " FROM cart_item ci LEFT JOIN product p ON ci.product_id = p.id WHERE ci.cart_id = ? ORDER BY ci.id ASC";
+    private static final String FIND_CART_ITEM_BY_CART_ID_AND_PRODUCT_ID = "SELECT " + CART_ITEM_COLUMNS + " FROM cart_item ci LEFT JOIN product p ON ci.product_id = p.id WHERE ci.cart_id = ? AND ci.product_id = ?";
+    private static final String FIND_CART_ITEM_BY_ID = "SELECT " + CART_ITEM_COLUMNS + " FROM cart_item ci LEFT JOIN product p ON ci.product_id = p.id WHERE ci.id = ?";
     private static final String SAVE_CART_ITEM = "INSERT INTO cart_item (cart_id, product_id, quantity) VALUES (?, ?, ?)";
+    private static final String MERGE_CART_ITEM = "INSERT INTO cart_item (cart_id, product_id, quantity) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)";
     private static final String UPDATE_CART_ITEM = "UPDATE cart_item SET quantity = ? WHERE id = ?";
     private static final String DELETE_CART_ITEM = "DELETE FROM cart_item WHERE id = ?";
     private static final String DELETE_CART_ITEMS_BY_CART_ID = "DELETE FROM cart_item WHERE cart_id = ?";
@@ -39,21 +60,12 @@ public class CartDaoImpl implements CartDao {
         Cart cart = null;
         try {
             conn = JDBCUtils.getConnection();
-            ps = conn.prepareStatement(FIND_BY_ID);
+            ps = conn.prepareStatement(FIND_CART_WITH_ITEMS_BY_ID);
             ps.setInt(1, id);
             rs = ps.executeQuery();
-            if (rs.next()) {
-                cart = new Cart();
-                cart.setId(rs.getInt("id"));
-                cart.setUserId(rs.getInt("user_id"));
-                cart.setCreateTime(rs.getTimestamp("create_time"));
-                cart.setUpdateTime(rs.getTimestamp("update_time"));
-                // 加载购物车商品项
-                List<CartItem> cartItems = findCartItemsByCartId(cart.getId());
-                cart.setCartItems(cartItems);
-            }
+            cart = mapCartWithItems(rs);
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -68,21 +80,12 @@ public class CartDaoImpl implements CartDao {
         Cart cart = null;
         try {
             conn = JDBCUtils.getConnection();
-            ps = conn.prepareStatement(FIND_BY_USER_ID);
+            ps = conn.prepareStatement(FIND_CART_WITH_ITEMS_BY_USER_ID);
             ps.setInt(1, userId);
             rs = ps.executeQuery();
-            if (rs.next()) {
-                cart = new Cart();
-                cart.setId(rs.getInt("id"));
-                cart.setUserId(rs.getInt("user_id"));
-                cart.setCreateTime(rs.getTimestamp("create_time"));
-                cart.setUpdateTime(rs.getTimestamp("update_time"));
-                // 加载购物车商品项
-                List<CartItem> cartItems = findCartItemsByCartId(cart.getId());
-                cart.setCartItems(cartItems);
-            }
+            cart = mapCartWithItems(rs);
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -93,20 +96,30 @@ public class CartDaoImpl implements CartDao {
     public int save(Cart cart) {
         Connection conn = null;
         PreparedStatement ps = null;
+        ResultSet rs = null;
         int result = 0;
+        int generatedId = 0;
         try {
             conn = JDBCUtils.getConnection();
-            ps = conn.prepareStatement(SAVE);
+            ps = conn.prepareStatement(SAVE, Statement.RETURN_GENERATED_KEYS);
             ps.setInt(1, cart.getUserId());
             ps.setTimestamp(2, new java.sql.Timestamp(System.currentTimeMillis()));
             ps.setTimestamp(3, new java.sql.Timestamp(System.currentTimeMillis()));
             result = ps.executeUpdate();
+            // 读取自增主键，避免插入后再按业务字段回查
+            if (result > 0) {
+                rs = ps.getGeneratedKeys();
+                if (rs.next()) {
+                    generatedId = rs.getInt(1);
+                    cart.setId(generatedId);
+                }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
-            JDBCUtils.close(conn, ps, null);
+            JDBCUtils.close(conn, ps, rs);
         }
-        return result;
+        return generatedId;
     }
 
     @Override
@@ -121,7 +134,7 @@ public class CartDaoImpl implements CartDao {
             ps.setInt(2, cart.getId());
             result = ps.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, null);
         }
@@ -142,7 +155,7 @@ public class CartDaoImpl implements CartDao {
             ps.setInt(1, id);
             result = ps.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, null);
         }
@@ -161,23 +174,10 @@ public class CartDaoImpl implements CartDao {
             ps.setInt(1, cartId);
             rs = ps.executeQuery();
             while (rs.next()) {
-                CartItem cartItem = new CartItem();
-                cartItem.setId(rs.getInt("id"));
-                cartItem.setCartId(rs.getInt("cart_id"));
-                cartItem.setProductId(rs.getInt("product_id"));
-                cartItem.setQuantity(rs.getInt("quantity"));
-                // 加载商品信息
-                ProductDaoImpl productDao = new ProductDaoImpl();
-                Product product = productDao.findById(cartItem.getProductId());
-                cartItem.setProduct(product);
-                if (product != null) {
-                    cartItem.setPrice(product.getPrice());
-                    cartItem.setProductName(product.getName());
-                }
-                cartItems.add(cartItem);
+                cartItems.add(mapCartItem(rs));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -197,22 +197,10 @@ public class CartDaoImpl implements CartDao {
             ps.setInt(2, productId);
             rs = ps.executeQuery();
             if (rs.next()) {
-                cartItem = new CartItem();
-                cartItem.setId(rs.getInt("id"));
-                cartItem.setCartId(rs.getInt("cart_id"));
-                cartItem.setProductId(rs.getInt("product_id"));
-                cartItem.setQuantity(rs.getInt("quantity"));
-                // 加载商品信息
-                ProductDaoImpl productDao = new ProductDaoImpl();
-                Product product = productDao.findById(cartItem.getProductId());
-                cartItem.setProduct(product);
-                if (product != null) {
-                    cartItem.setPrice(product.getPrice());
-                    cartItem.setProductName(product.getName());
-                }
+                cartItem = mapCartItem(rs);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -232,13 +220,46 @@ public class CartDaoImpl implements CartDao {
             ps.setInt(3, cartItem.getQuantity());
             result = ps.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, null);
         }
         return result;
     }
 
+    @Override
+    public boolean mergeItems(Integer cartId, Map<Integer, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            return true;
+        }
+        Connection conn = null;
+        PreparedStatement ps = null;
+        boolean success = false;
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(MERGE_CART_ITEM);
+            // 按商品ID顺序写入，减少并发合并时的锁冲突
+            for (Map.Entry<Integer, Integer> entry : new TreeMap<>(quantities).entrySet()) {
+                ps.setInt(1, cartId);
+                ps.setInt(2, entry.getKey());
+                ps.setInt(3, entry.getValue());
+                ps.addBatch();
+            }
+            success = true;
+            for (int count : ps.executeBatch()) {
+                if (count == Statement.EXECUTE_FAILED) {
+                    success = false;
+                }
+            }
+        } catch (SQLException e) {
+            success = false;
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, null);
+        }
+        return success;
+    }
+
     @Override
     public int updateCartItem(CartItem cartItem) {
         Connection conn = null;
@@ -251,7 +272,7 @@ public class CartDaoImpl implements CartDao {
             ps.setInt(2, cartItem.getId());
             result = ps.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, null);
         }
@@ -269,7 +290,7 @@ public class CartDaoImpl implements CartDao {
             ps.setInt(1, id);
             result = ps.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, null);
         }
@@ -287,7 +308,7 @@ public class CartDaoImpl implements CartDao {
             ps.setInt(1, cartId);
             result = ps.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, null);
         }
@@ -306,25 +327,74 @@ public class CartDaoImpl implements CartDao {
             ps.setInt(1, id);
             rs = ps.executeQuery();
             if (rs.next()) {
-                cartItem = new CartItem();
-                cartItem.setId(rs.getInt("id"));
-                cartItem.setCartId(rs.getInt("cart_id"));
-                cartItem.setProductId(rs.getInt("product_id"));
-                cartItem.setQuantity(rs.getInt("quantity"));
-                // 加载商品信息
-                ProductDaoImpl productDao = new ProductDaoImpl();
-                Product product = productDao.findById(cartItem.getProductId());
-                cartItem.setProduct(product);
-                if (product != null) {
-                    cartItem.setPrice(product.getPrice());
-                    cartItem.setProductName(product.getName());
-                }
+                cartItem = mapCartItem(rs);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
         return cartItem;
     }
+
+    /**
+     * 将购物车JOIN查询结果组装为购物车对象（含商品项及商品信息）
+     * 同一用户存在多个购物车时，只取ID最小的一个
+     * @param rs 查询结果集
+     * @return 购物车对象，不存在时返回null
+     */
+    private Cart mapCartWithItems(ResultSet rs) throws SQLException {
+        Cart cart = null;
+        while (rs.next()) {
+            int cartId = rs.getInt("id");
+            if (cart == null) {
+                cart = new Cart();
+                cart.setId(cartId);
+                cart.setUserId(rs.getInt("user_id"));
+                cart.setCreateTime(rs.getTimestamp("create_time"));
+                cart.setUpdateTime(rs.getTimestamp("update_time"));
+                cart.setCartItems(new ArrayList<>());
+            } else if (cart.getId() != cartId) {
+                break;
+            }
+            // LEFT JOIN时空购物车的商品项列为null
+            rs.getInt("item_id");
+            if (!rs.wasNull()) {
+                cart.getCartItems().add(mapCartItem(rs));
+            }
+        }
+        return cart;
+    }
+
+    /**
+     * 从当前行读取购物车商品项及其商品信息
+     * @param rs 查询结果集
+     * @return 购物车商品项
+     */
+    private CartItem mapCartItem(ResultSet rs) throws SQLException {
+        CartItem cartItem = new CartItem();
+        cartItem.setId(rs.getInt("item_id"));
+        cartItem.setCartId(rs.getInt("cart_id"));
+        cartItem.setProductId(rs.getInt("product_id"));
+        cartItem.setQuantity(rs.getInt("quantity"));
+        // 商品可能已被删除，此时LEFT JOIN的商品列为null
+        rs.getInt("p_id");
+        if (!rs.wasNull()) {
+            Product product = new Product();
+            product.setId(rs.getInt("p_id"));
+            product.setName(rs.getString("p_name"));
+            product.setCategoryId(rs.getInt("p_category_id"));
+            product.setPrice(rs.getBigDecimal("p_price"));
+            product.setStock(rs.getInt("p_stock"));
+            product.setDescription(rs.getString("p_description"));
+            product.setImage(rs.getString("p_image"));
+            product.setStatus(rs.getInt("p_status"));
+            product.setCreateTime(rs.getTimestamp("p_create_time"));
+            product.setUpdateTime(rs.getTimestamp("p_update_time"));
+            cartItem.setProduct(product);
+            cartItem.setPrice(product.getPrice());
+            cartItem.setProductName(product.getName());
+        }
+        return cartItem;
+    }
 }
\ No newline at end of file
@@ -3,11 +3,13 @@ package com.ecommerce.dao.impl;
 import com.ecommerce.dao.CategoryDao;
 import com.ecommerce.pojo.Category;
 import com.ecommerce.utils.JDBCUtils;
+import com.ecommerce.utils.TransactionTemplate;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,12 +17,44 @@ import java.util.List;
  * 商品分类数据访问实现类
  */
 public class CategoryDaoImpl implements CategoryDao {
-    private static final String FIND_BY_ID = "SELECT id, name, parent_id, level, sort, icon, description, create_time, update_time FROM category WHERE id = ?";
-    private static final String FIND_ALL = "SELECT id, name, parent_id, level, sort, icon, description, create_time, update_time FROM category ORDER BY parent_id ASC, sort ASC, id ASC";
-    private static final String FIND_BY_PARENT_ID = "SELECT id, name, parent_id, level, sort, icon, description, create_time, update_time FROM category WHERE parent_id = ? ORDER BY sort ASC";
+    private static final String FIND_BY_ID = "SELECT id, name, parent_id, level, sort, icon, description, create_time, update_time, product_count, active_product_count FROM category WHERE id = ?";
+    private static final String FIND_ALL = "SELECT id, name, parent_id, level, sort, icon, description, create_time, update_time, product_count, active_product_count FROM category ORDER BY parent_id ASC, sort ASC, id ASC";
+    private static final String FIND_BY_PARENT_ID = "SELECT id, name, parent_id, level, sort, icon, description, create_time, update_time, product_count, active_product_count FROM category WHERE parent_id = ? ORDER BY sort ASC";
     private static final String SAVE = "INSERT INTO category (name, parent_id, level, sort, icon, description, create_time, update_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
     private static final String UPDATE = "UPDATE category SET name = ?, parent_id = ?, level = ?, sort = ?, icon = ?, description = ?, update_time = ? WHERE id = ?";
     private static final String DELETE = "DELETE FROM category WHERE id = ?";
+    private static final String FIND_PARENT_ID_FOR_UPDATE = "SELECT parent_id FROM category WHERE id = ? FOR UPDATE";
+    // 闭包表：新分类继承父分类的全部祖先，并加入指向自身的深度为0的记录
+    private static final String INSERT_CLOSURE = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) "
+            + "SELECT ancestor_id, ?, depth + 1 FROM category_closure WHERE descendant_id = ? "
+            + "UNION ALL SELECT ?, ?, 0";
+    private static final String IS_DESCENDANT = "SELECT 1 FROM category_closure WHERE ancestor_id = ? AND descendant_id = ?";
+    // 移动子树：删除子树外祖先到子树内节点的关系，再与新父分类的祖先做笛卡尔积重新插入
+    private static final String DETACH_SUBTREE = "DELETE link FROM category_closure link "
+            + "JOIN category_closure sub ON link.descendant_id = sub.descendant_id "
+            + "LEFT JOIN category_closure inner_link ON inner_link.ancestor_id = sub.ancestor_id AND inner_link.descendant_id = link.ancestor_id "
+            + "WHERE sub.ancestor_id = ? AND inner_link.ancestor_id IS NULL";
+    private static final String ATTACH_SUBTREE = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) "
+            + "SELECT super.ancestor_id, sub.descendant_id, super.depth + sub.depth + 1 "
+            + "FROM category_closure super JOIN category_closure sub "
+            + "WHERE super.descendant_id = ? AND sub.ancestor_id = ?";
+    // 商品计数沿闭包表累加到分类自身及所有祖先
+    private static final String ADJUST_PRODUCT_COUNTS = "UPDATE category c JOIN category_closure cc ON cc.ancestor_id = c.id "
+            + "SET c.product_count = c.product_count + ?, c.active_product_count = c.active_product_count + ? "
+            + "WHERE cc.descendant_id = ?";
+    // 子树移动时，把子树根的累计计数从原祖先扣除（sign=-1）或加到新祖先（sign=1）
+    private static final String SHIFT_SUBTREE_COUNTS = "UPDATE category a JOIN category_closure cc ON cc.ancestor_id = a.id "
+            + "JOIN category s ON s.id = cc.descendant_id "
+            + "SET a.product_count = a.product_count + ? * s.product_count, "
+            + "a.active_product_count = a.active_product_count + ? * s.active_product_count "
+            + "WHERE cc.descendant_id = ? AND cc.depth > 0";
+    private static final String REPAIR_PRODUCT_COUNTS = "UPDATE category c LEFT JOIN ("
+            + "SELECT cc.ancestor_id, COUNT(*) AS total, SUM(p.status = 1) AS active "
+            + "FROM category_closure cc JOIN product p ON p.category_id = cc.descendant_id GROUP BY cc.ancestor_id"
+            + ") t ON t.ancestor_id = c.id "
+            + "SET c.product_count = COALESCE(t.total, 0), c.active_product_count = COALESCE(t.active, 0) "
+            + "WHERE c.product_count <> COALESCE(t.total, 0) OR c.active_product_count <> COALESCE(t.active, 0)";
+    private static final String DELETE_CLOSURE = "DELETE FROM category_closure WHERE descendant_id = ? OR ancestor_id = ?";
 
     @Override
     public Category findById(Integer id) {
@@ -44,9 +78,11 @@ public class CategoryDaoImpl implements CategoryDao {
                 category.setDescription(rs.getString("description"));
                 category.setCreateTime(rs.getTimestamp("create_time"));
                 category.setUpdateTime(rs.getTimestamp("update_time"));
+                category.setProductCount(rs.getInt("product_count"));
+                category.setActiveProductCount(rs.getInt("active_product_count"));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -74,10 +110,12 @@ public class CategoryDaoImpl implements CategoryDao {
                 category.setDescription(rs.getString("description"));
                 category.setCreateTime(rs.getTimestamp("create_time"));
                 category.setUpdateTime(rs.getTimestamp("update_time"));
+                category.setProductCount(rs.getInt("product_count"));
+                category.setActiveProductCount(rs.getInt("active_product_count"));
                 categories.add(category);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -106,10 +144,12 @@ public class CategoryDaoImpl implements CategoryDao {
                 category.setDescription(rs.getString("description"));
                 category.setCreateTime(rs.getTimestamp("create_time"));
                 category.setUpdateTime(rs.getTimestamp("update_time"));
+                category.setProductCount(rs.getInt("product_count"));
+                category.setActiveProductCount(rs.getInt("active_product_count"));
                 categories.add(category);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -118,48 +158,187 @@ public class CategoryDaoImpl implements CategoryDao {
 
     @Override
     public int save(Category category) {
-        Connection conn = null;
-        PreparedStatement ps = null;
-        int result = 0;
         try {
-            conn = JDBCUtils.getConnection();
-            ps = conn.prepareStatement(SAVE);
-            ps.setString(1, category.getName());
-            ps.setInt(2, category.getParentId());
-            ps.setInt(3, category.getLevel());
-            ps.setInt(4, category.getSort());
-            ps.setString(5, category.getIcon());
-            ps.setString(6, category.getDescription());
-            ps.setTimestamp(7, new java.sql.Timestamp(System.currentTimeMillis()));
-            ps.setTimestamp(8, new java.sql.Timestamp(System.currentTimeMillis()));
-            result = ps.executeUpdate();
+            // 分类与闭包表记录在同一事务中写入
+            return new TransactionTemplate().execute(status -> {
+                Connection conn = null;
+                PreparedStatement ps = null;
+                ResultSet rs = null;
+                int generatedId = 0;
+                try {
+                    conn = JDBCUtils.getConnection();
+                    ps = conn.prepareStatement(SAVE, Statement.RETURN_GENERATED_KEYS);
+                    ps.setString(1, category.getName());
+                    ps.setInt(2, category.getParentId());
+                    ps.setInt(3, category.getLevel());
+                    ps.setInt(4, category.getSort());
+                    ps.setString(5, category.getIcon());
+                    ps.setString(6, category.getDescription());
+                    ps.setTimestamp(7, new java.sql.Timestamp(System.currentTimeMillis()));
+                    ps.setTimestamp(8, new java.sql.Timestamp(System.currentTimeMillis()));
+                    int result = ps.executeUpdate();
+                    // 读取自增主键，避免插入后再按业务字段回查
+                    if (result > 0) {
+                        rs = ps.getGeneratedKeys();
+                        if (rs.next()) {
+                            generatedId = rs.getInt(1);
+                        }
+                    }
+                    if (generatedId > 0) {
+                        JDBCUtils.close(null, ps, rs);
+                        rs = null;
+                        ps = conn.prepareStatement(INSERT_CLOSURE);
+                        ps.setInt(1, generatedId);
+                        ps.setInt(2, category.getParentId());
+                        ps.setInt(3, generatedId);
+                        ps.setInt(4, generatedId);
+                        ps.executeUpdate();
+                        category.setId(generatedId);
+                    }
+                } finally {
+                    JDBCUtils.close(conn, ps, rs);
+                }
+                return generatedId;
+            });
         } catch (SQLException e) {
-            e.printStackTrace();
-        } finally {
-            JDBCUtils.close(conn, ps, null);
+            JDBCUtils.handleSQLException(e);
         }
-        return result;
+        return 0;
     }
 
     @Override
     public int update(Category category) {
+        try {
+            return new TransactionTemplate().execute(status -> {
+                Connection conn = null;
+                PreparedStatement ps = null;
+                ResultSet rs = null;
+                try {
+                    conn = JDBCUtils.getConnection();
+                    // 锁定分类行，读取原父分类
+                    ps = conn.prepareStatement(FIND_PARENT_ID_FOR_UPDATE);
+                    ps.setInt(1, category.getId());
+                    rs = ps.executeQuery();
+                    if (!rs.next()) {
+                        return 0;
+                    }
+                    int oldParentId = rs.getInt(1);
+                    JDBCUtils.close(null, ps, rs);
+                    rs = null;
+                    ps = null;
+
+                    int newParentId = category.getParentId();
+                    if (newParentId != oldParentId) {
+                        // 不能移动到自身或自身的子孙分类下
+                        ps = conn.prepareStatement(IS_DESCENDANT);
+                        ps.setInt(1, category.getId());
+                        ps.setInt(2, newParentId);
+                        rs = ps.executeQuery();
+                        boolean cyclic = rs.next();
+                        JDBCUtils.close(null, ps, rs);
+                        rs = null;
+                        ps = null;
+                        if (cyclic) {
+                            return 0;
+                        }
+                        moveSubtree(conn, category.getId(), newParentId);
+                    }
+
+                    ps = conn.prepareStatement(UPDATE);
+                    ps.setString(1, category.getName());
+                    ps.setInt(2, category.getParentId());
+                    ps.setInt(3, category.getLevel());
+                    ps.setInt(4, category.getSort());
+                    ps.setString(5, category.getIcon());
+                    ps.setString(6, category.getDescription());
+                    ps.setTimestamp(7, new java.sql.Timestamp(System.currentTimeMillis()));
+                    ps.setInt(8, category.getId());
+                    return ps.executeUpdate();
+                } finally {
+                    JDBCUtils.close(conn, ps, rs);
+                }
+            });
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        }
+        return 0;
+    }
+
+    /**
+     * 在闭包表中把分类子树移动到新的父分类下，子树的商品计数随之从原祖先迁移到新祖先
+     */
+    private void moveSubtree(Connection conn, int categoryId, int newParentId) throws SQLException {
+        shiftSubtreeCounts(conn, categoryId, -1);
+        try (PreparedStatement detach = conn.prepareStatement(DETACH_SUBTREE)) {
+            detach.setInt(1, categoryId);
+            detach.executeUpdate();
+        }
+        try (PreparedStatement attach = conn.prepareStatement(ATTACH_SUBTREE)) {
+            attach.setInt(1, newParentId);
+            attach.setInt(2, categoryId);
+            attach.executeUpdate();
+        }
+        shiftSubtreeCounts(conn, categoryId, 1);
+    }
+
+    private void shiftSubtreeCounts(Connection conn, int categoryId, int sign) throws SQLException {
+        try (PreparedStatement shift = conn.prepareStatement(SHIFT_SUBTREE_COUNTS)) {
+            shift.setInt(1, sign);
+            shift.setInt(2, sign);
+            shift.setInt(3, categoryId);
+            shift.executeUpdate();
+        }
+    }
+
+    @Override
+    public int delete(Integer id) {
+        try {
+            return new TransactionTemplate().execute(status -> {
+                Connection conn = null;
+                PreparedStatement ps = null;
+                try {
+                    conn = JDBCUtils.getConnection();
+                    ps = conn.prepareStatement(DELETE_CLOSURE);
+                    ps.setInt(1, id);
+                    ps.setInt(2, id);
+                    ps.executeUpdate();
+                    JDBCUtils.close(null, ps, null);
+                    ps = null;
+
+                    ps = conn.prepareStatement(DELETE);
+                    ps.setInt(1, id);
+                    int result = ps.executeUpdate();
+                    if (result == 0) {
+                        status.setRollbackOnly();
+                    }
+                    return result;
+                } finally {
+                    JDBCUtils.close(conn, ps, null);
+                }
+            });
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        }
+        return 0;
+    }
+
+    @Override
+    public int adjustProductCounts(Integer categoryId, int productDelta, int activeDelta) {
+        if (categoryId == null || (productDelta == 0 && activeDelta == 0)) {
+            return 0;
+        }
         Connection conn = null;
         PreparedStatement ps = null;
         int result = 0;
         try {
             conn = JDBCUtils.getConnection();
-            ps = conn.prepareStatement(UPDATE);
-            ps.setString(1, category.getName());
-            ps.setInt(2, category.getParentId());
-            ps.setInt(3, category.getLevel());
-            ps.setInt(4, category.getSort());
-            ps.setString(5, category.getIcon());
-            ps.setString(6, category.getDescription());
-            ps.setTimestamp(7, new java.sql.Timestamp(System.currentTimeMillis()));
-            ps.setInt(8, category.getId());
+            ps = conn.prepareStatement(ADJUST_PRODUCT_COUNTS);
+            ps.setInt(1, productDelta);
+            ps.setInt(2, activeDelta);
+            ps.setInt(3, categoryId);
             result = ps.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, null);
         }
@@ -167,17 +346,16 @@ public class CategoryDaoImpl implements CategoryDao {
     }
 
     @Override
-    public int delete(Integer id) {
+    public int repairProductCounts() {
         Connection conn = null;
         PreparedStatement ps = null;
-        int result = 0;
+        int result = -1;
         try {
             conn = JDBCUtils.getConnection();
-            ps = conn.prepareStatement(DELETE);
-            ps.setInt(1, id);
+            ps = conn.prepareStatement(REPAIR_PRODUCT_COUNTS);
             result = ps.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, null);
         }
@@ -0,0 +1,146 @@
+package com.ecommerce.dao.impl;
+
+import com.ecommerce.dao.FlashSaleDao;
+import com.ecommerce.pojo.FlashSale;
+import com.ecommerce.utils.JDBCUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 秒杀活动数据访问实现类
+ */
+public class FlashSaleDaoImpl implements FlashSaleDao {
+    private static final String SAVE = "INSERT INTO flash_sale (product_id, price, reserved, sold, status, start_time) VALUES (?, ?, ?, 0, 1, ?)";
+    private static final String FIND_BY_ID_FOR_UPDATE = "SELECT id, product_id, price, reserved, sold, status, start_time, end_time FROM flash_sale WHERE id = ? FOR UPDATE";
+    private static final String FIND_ACTIVE = "SELECT id, product_id, price, reserved, sold, status, start_time, end_time FROM flash_sale WHERE status = 1 ORDER BY id";
+    private static final String ADD_SOLD = "UPDATE flash_sale SET sold = sold + ? WHERE id = ?";
+    private static final String FINISH = "UPDATE flash_sale SET status = 2, end_time = ? WHERE id = ? AND status = 1";
+
+    @Override
+    public int save(FlashSale flashSale) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        int generatedId = 0;
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(SAVE, Statement.RETURN_GENERATED_KEYS);
+            ps.setInt(1, flashSale.getProductId());
+            ps.setBigDecimal(2, flashSale.getPrice());
+            ps.setInt(3, flashSale.getReserved());
+            ps.setTimestamp(4, new java.sql.Timestamp(System.currentTimeMillis()));
+            if (ps.executeUpdate() > 0) {
+                rs = ps.getGeneratedKeys();
+                if (rs.next()) {
+                    generatedId = rs.getInt(1);
+                    flashSale.setId(generatedId);
+                }
+            }
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, rs);
+        }
+        return generatedId;
+    }
+
+    @Override
+    public FlashSale findByIdForUpdate(Integer id) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        FlashSale flashSale = null;
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(FIND_BY_ID_FOR_UPDATE);
+            ps.setInt(1, id);
+            rs = ps.executeQuery();
+            if (rs.next()) {
+                flashSale = mapFlashSale(rs);
+            }
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, rs);
+        }
+        return flashSale;
+    }
+
+    @Override
+    public List<FlashSale> findActive() {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        List<FlashSale> flashSales = new ArrayList<>();
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(FIND_ACTIVE);
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                flashSales.add(mapFlashSale(rs));
+            }
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, rs);
+        }
+        return flashSales;
+    }
+
+    @Override
+    public int addSold(Integer id, int quantity) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        int result = 0;
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(ADD_SOLD);
+            ps.setInt(1, quantity);
+            ps.setInt(2, id);
+            result = ps.executeUpdate();
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, null);
+        }
+        return result;
+    }
+
+    @Override
+    public int finish(Integer id) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        int result = 0;
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(FINISH);
+            ps.setTimestamp(1, new java.sql.Timestamp(System.currentTimeMillis()));
+            ps.setInt(2, id);
+            result = ps.executeUpdate();
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, null);
+        }
+        return result;
+    }
+
+    private FlashSale mapFlashSale(ResultSet rs) throws SQLException {
+        FlashSale flashSale = new FlashSale();
+        flashSale.setId(rs.getInt("id"));
+        flashSale.setProductId(rs.getInt("product_id"));
+        flashSale.setPrice(rs.getBigDecimal("price"));
+        flashSale.setReserved(rs.getInt("reserved"));
+        flashSale.setSold(rs.getInt("sold"));
+        flashSale.setStatus(rs.getInt("status"));
+        flashSale.setStartTime(rs.getTimestamp("start_time"));
+        flashSale.setEndTime(rs.getTimestamp("end_time"));
+        return flashSale;
+    }
+}
@@ -3,50 +3,47 @@ package com.ecommerce.dao.impl;
 import com.ecommerce.dao.OrderDao;
 import com.ecommerce.pojo.Order;
 import com.ecommerce.pojo.OrderItem;
-import com.ecommerce.pojo.Product;
 import com.ecommerce.utils.JDBCUtils;
+import com.ecommerce.utils.OrderCursor;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 订单数据访问实现类
  */
 public class OrderDaoImpl implements OrderDao {
-    private static final String FIND_BY_ID = "SELECT id, order_no, user_id, total_amount, status, receiver_name, receiver_phone, receiver_address, create_time, update_time FROM `order` WHERE id = ?";
-    private static final String FIND_BY_ORDER_NO = "SELECT id, order_no, user_id, total_amount, status, receiver_name, receiver_phone, receiver_address, create_time, update_time FROM `order` WHERE order_no = ?";
-    private static final String FIND_BY_USER_ID = "SELECT id, order_no, user_id, total_amount, status, receiver_name, receiver_phone, receiver_address, create_time, update_time FROM `order` WHERE user_id = ? ORDER BY create_time DESC";
-    private static final String FIND_ALL = "SELECT id, order_no, user_id, total_amount, status, receiver_name, receiver_phone, receiver_address, create_time, update_time FROM `order` ORDER BY create_time DESC";
-    private static final String SAVE = "INSERT INTO `order` (order_no, user_id, total_amount, status, receiver_name, receiver_phone, receiver_address, create_time, update_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String FIND_BY_ID = "SELECT id, order_no, user_id, total_amount, status, receiver_name, receiver_phone, receiver_address, item_count, create_time, update_time FROM `order` WHERE id = ?";
+    private static final String FIND_BY_ORDER_NO = "SELECT id, order_no, user_id, total_amount, status, receiver_name, receiver_phone, receiver_address, item_count, create_time, update_time FROM `order` WHERE order_no = ?";
+    private static final String FIND_BY_USER_ID = "SELECT id, order_no, user_id, total_amount, status, receiver_name, receiver_phone, receiver_address, item_count, create_time, update_time FROM `order` WHERE user_id = ? ORDER BY create_time DESC";
+    private static final String FIND_FILTERED_SELECT = "SELECT id, order_no, user_id, total_amount, status, receiver_name, receiver_phone, receiver_address, item_count, create_time, update_time FROM `order` WHERE 1 = 1";
+    private static final String SAVE = "INSERT INTO `order` (order_no, user_id, total_amount, status, receiver_name, receiver_phone, receiver_address, item_count, create_time, update_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
     private static final String UPDATE = "UPDATE `order` SET status = ?, receiver_name = ?, receiver_phone = ?, receiver_address = ?, update_time = ? WHERE id = ?";
+    private static final String UPDATE_STATUS_IF_MATCH = "UPDATE `order` SET status = ?, update_time = ? WHERE id = ? AND status = ?";
     private static final String DELETE = "DELETE FROM `order` WHERE id = ?";
     private static final String COUNT_ALL = "SELECT COUNT(*) FROM `order`";
     private static final String GET_TOTAL_SALES = "SELECT COALESCE(SUM(total_amount), 0) FROM `order` WHERE status = 2";
+    private static final String SUM_QUANTITY_BY_PRODUCT = "SELECT oi.product_id, SUM(oi.quantity) FROM order_item oi JOIN `order` o ON o.id = oi.order_id WHERE o.status <> 4 GROUP BY oi.product_id";
     
-    private static final String FIND_ORDER_ITEMS_BY_ORDER_ID = "SELECT id, order_id, product_id, quantity, price FROM order_item WHERE order_id = ?";
-    private static final String SAVE_ORDER_ITEM = "INSERT INTO order_item (order_id, product_id, quantity, price) VALUES (?, ?, ?, ?)";
+    // 商品名称与图片取下单时的快照，不再关联product表
+    private static final String FIND_ORDER_ITEMS_SELECT = "SELECT id, order_id, product_id, product_name, product_image, category_id, quantity, price FROM order_item";
+    private static final String FIND_ORDER_ITEMS_BY_ORDER_ID = FIND_ORDER_ITEMS_SELECT + " WHERE order_id = ? ORDER BY id";
+    // 同时保存下单时的商品分类，销售汇总按该分类计入与移出
+    private static final String SAVE_ORDER_ITEM = "INSERT INTO order_item (order_id, product_id, product_name, product_image, category_id, quantity, price) VALUES (?, ?, ?, ?, ?, ?, ?)";
     
-    // 优化N+1查询：使用JOIN一次性查询订单和订单项
-    private static final String FIND_ORDERS_WITH_ITEMS = "SELECT o.id as order_id, o.order_no, o.user_id, o.total_amount, o.status, o.receiver_name, o.receiver_phone, o.receiver_address, o.create_time, o.update_time, " +
-            "oi.id as item_id, oi.product_id, oi.quantity, oi.price, " +
-            "p.name as product_name, p.image as product_image " +
-            "FROM `order` o " +
-            "LEFT JOIN order_item oi ON o.id = oi.order_id " +
-            "LEFT JOIN product p ON oi.product_id = p.id " +
-            "WHERE o.user_id = ? " +
-            "ORDER BY o.create_time DESC";
-    
-    private static final String FIND_ALL_ORDERS_WITH_ITEMS = "SELECT o.id as order_id, o.order_no, o.user_id, o.total_amount, o.status, o.receiver_name, o.receiver_phone, o.receiver_address, o.create_time, o.update_time, " +
-            "oi.id as item_id, oi.product_id, oi.quantity, oi.price, " +
-            "p.name as product_name, p.image as product_image " +
-            "FROM `order` o " +
-            "LEFT JOIN order_item oi ON o.id = oi.order_id " +
-            "LEFT JOIN product p ON oi.product_id = p.id " +
-            "ORDER BY o.create_time DESC";
+
 
     @Override
     public Order findById(Integer id) {
@@ -60,23 +57,13 @@ public class OrderDaoImpl implements OrderDao {
             ps.setInt(1, id);
             rs = ps.executeQuery();
             if (rs.next()) {
-                order = new Order();
-                order.setId(rs.getInt("id"));
-                order.setOrderNo(rs.getString("order_no"));
-                order.setUserId(rs.getInt("user_id"));
-                order.setTotalPrice(rs.getBigDecimal("total_amount"));
-                order.setStatus(rs.getInt("status"));
-                order.setReceiverName(rs.getString("receiver_name"));
-                order.setReceiverPhone(rs.getString("receiver_phone"));
-                order.setReceiverAddress(rs.getString("receiver_address"));
-                order.setCreateTime(rs.getTimestamp("create_time"));
-                order.setUpdateTime(rs.getTimestamp("update_time"));
+                order = mapOrder(rs);
                 // 加载订单商品项
                 List<OrderItem> orderItems = findOrderItemsByOrderId(order.getId());
                 order.setOrderItems(orderItems);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -95,23 +82,13 @@ public class OrderDaoImpl implements OrderDao {
             ps.setString(1, orderNo);
             rs = ps.executeQuery();
             if (rs.next()) {
-                order = new Order();
-                order.setId(rs.getInt("id"));
-                order.setOrderNo(rs.getString("order_no"));
-                order.setUserId(rs.getInt("user_id"));
-                order.setTotalPrice(rs.getBigDecimal("total_amount"));
-                order.setStatus(rs.getInt("status"));
-                order.setReceiverName(rs.getString("receiver_name"));
-                order.setReceiverPhone(rs.getString("receiver_phone"));
-                order.setReceiverAddress(rs.getString("receiver_address"));
-                order.setCreateTime(rs.getTimestamp("create_time"));
-                order.setUpdateTime(rs.getTimestamp("update_time"));
+                order = mapOrder(rs);
                 // 加载订单商品项
                 List<OrderItem> orderItems = findOrderItemsByOrderId(order.getId());
                 order.setOrderItems(orderItems);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -126,139 +103,165 @@ public class OrderDaoImpl implements OrderDao {
         List<Order> orders = new ArrayList<>();
         try {
             conn = JDBCUtils.getConnection();
-            ps = conn.prepareStatement(FIND_ORDERS_WITH_ITEMS);
+            ps = conn.prepareStatement(FIND_BY_USER_ID);
             ps.setInt(1, userId);
             rs = ps.executeQuery();
-            
-            // 使用Map缓存订单对象，避免重复创建
-            java.util.Map<Integer, Order> orderMap = new java.util.HashMap<>();
-            
             while (rs.next()) {
-                int orderId = rs.getInt("order_id");
-                Order order = orderMap.get(orderId);
-                
-                // 如果订单不存在，创建新订单对象
-                if (order == null) {
-                    order = new Order();
-                    order.setId(orderId);
-                    order.setOrderNo(rs.getString("order_no"));
-                    order.setUserId(rs.getInt("user_id"));
-                    order.setTotalPrice(rs.getBigDecimal("total_amount"));
-                    order.setStatus(rs.getInt("status"));
-                    order.setReceiverName(rs.getString("receiver_name"));
-                    order.setReceiverPhone(rs.getString("receiver_phone"));
-                    order.setReceiverAddress(rs.getString("receiver_address"));
-                    order.setCreateTime(rs.getTimestamp("create_time"));
-                    order.setUpdateTime(rs.getTimestamp("update_time"));
-                    order.setOrderItems(new ArrayList<>());
-                    orderMap.put(orderId, order);
-                    orders.add(order);
-                }
-                
-                // 获取订单项数据
-                int itemId = rs.getInt("item_id");
-                // 如果有订单项数据（LEFT JOIN可能返回null）
-                if (!rs.wasNull()) {
-                    OrderItem orderItem = new OrderItem();
-                    orderItem.setId(itemId);
-                    orderItem.setOrderId(orderId);
-                    orderItem.setProductId(rs.getInt("product_id"));
-                    orderItem.setQuantity(rs.getInt("quantity"));
-                    orderItem.setPrice(rs.getBigDecimal("price"));
-                    
-                    // 创建商品对象
-                    Product product = new Product();
-                    product.setId(rs.getInt("product_id"));
-                    product.setName(rs.getString("product_name"));
-                    product.setImage(rs.getString("product_image"));
-                    orderItem.setProduct(product);
-                    
-                    // 添加到订单的订单项列表
-                    order.getOrderItems().add(orderItem);
-                }
+                orders.add(mapOrder(rs));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
+        // 订单头与商品项各查一次，商品项按订单ID批量读取
+        List<Integer> orderIds = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            orderIds.add(order.getId());
+        }
+        Map<Integer, List<OrderItem>> itemsByOrder = findOrderItemsByOrderIds(orderIds);
+        for (Order order : orders) {
+            List<OrderItem> items = itemsByOrder.get(order.getId());
+            order.setOrderItems(items != null ? items : new ArrayList<>());
+        }
         return orders;
     }
 
     @Override
-    public List<Order> findAll() {
+    public List<Order> findByCursor(Integer status, Integer userId, Date startTime, Date endTime, OrderCursor after, int limit) {
         Connection conn = null;
         PreparedStatement ps = null;
         ResultSet rs = null;
         List<Order> orders = new ArrayList<>();
         try {
             conn = JDBCUtils.getConnection();
-            ps = conn.prepareStatement(FIND_ALL_ORDERS_WITH_ITEMS);
+            // 按(create_time, id)定位游标之后的数据，筛选条件各自对应以(create_time, id)结尾的索引
+            StringBuilder sql = new StringBuilder(FIND_FILTERED_SELECT);
+            appendFilters(sql, status, userId, startTime, endTime);
+            if (after != null) {
+                sql.append(" AND (create_time < ? OR (create_time = ? AND id < ?))");
+            }
+            sql.append(" ORDER BY create_time DESC, id DESC LIMIT ?");
+
+            ps = conn.prepareStatement(sql.toString());
+            int index = setFilterParameters(ps, status, userId, startTime, endTime);
+            if (after != null) {
+                ps.setTimestamp(index++, after.getCreateTime());
+                ps.setTimestamp(index++, after.getCreateTime());
+                ps.setInt(index++, after.getId());
+            }
+            ps.setInt(index, limit);
+
             rs = ps.executeQuery();
-            
-            // 使用Map缓存订单对象，避免重复创建
-            java.util.Map<Integer, Order> orderMap = new java.util.HashMap<>();
-            
             while (rs.next()) {
-                int orderId = rs.getInt("order_id");
-                Order order = orderMap.get(orderId);
-                
-                // 如果订单不存在，创建新订单对象
-                if (order == null) {
-                    order = new Order();
-                    order.setId(orderId);
-                    order.setOrderNo(rs.getString("order_no"));
-                    order.setUserId(rs.getInt("user_id"));
-                    order.setTotalPrice(rs.getBigDecimal("total_amount"));
-                    order.setStatus(rs.getInt("status"));
-                    order.setReceiverName(rs.getString("receiver_name"));
-                    order.setReceiverPhone(rs.getString("receiver_phone"));
-                    order.setReceiverAddress(rs.getString("receiver_address"));
-                    order.setCreateTime(rs.getTimestamp("create_time"));
-                    order.setUpdateTime(rs.getTimestamp("update_time"));
-                    order.setOrderItems(new ArrayList<>());
-                    orderMap.put(orderId, order);
-                    orders.add(order);
-                }
-                
-                // 获取订单项数据
-                int itemId = rs.getInt("item_id");
-                // 如果有订单项数据（LEFT JOIN可能返回null）
-                if (!rs.wasNull()) {
-                    OrderItem orderItem = new OrderItem();
-                    orderItem.setId(itemId);
-                    orderItem.setOrderId(orderId);
-                    orderItem.setProductId(rs.getInt("product_id"));
-                    orderItem.setQuantity(rs.getInt("quantity"));
-                    orderItem.setPrice(rs.getBigDecimal("price"));
-                    
-                    // 创建商品对象
-                    Product product = new Product();
-                    product.setId(rs.getInt("product_id"));
-                    product.setName(rs.getString("product_name"));
-                    product.setImage(rs.getString("product_image"));
-                    orderItem.setProduct(product);
-                    
-                    // 添加到订单的订单项列表
-                    order.getOrderItems().add(orderItem);
-                }
+                orders.add(mapOrder(rs));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
         return orders;
     }
 
+    @Override
+    public int streamFiltered(Integer status, Integer userId, Date startTime, Date endTime, Consumer<Order> handler) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        int count = 0;
+        try {
+            conn = JDBCUtils.getConnection();
+            StringBuilder sql = new StringBuilder(FIND_FILTERED_SELECT);
+            appendFilters(sql, status, userId, startTime, endTime);
+            sql.append(" ORDER BY create_time DESC, id DESC");
+
+            // 只进只读且fetchSize为Integer.MIN_VALUE时，MySQL驱动逐行读取结果，不把整个结果集缓存在内存中
+            ps = conn.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            setFilterParameters(ps, status, userId, startTime, endTime);
+
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                handler.accept(mapOrder(rs));
+                count++;
+            }
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, rs);
+        }
+        return count;
+    }
+
+    /**
+     * 追加订单筛选条件
+     */
+    private void appendFilters(StringBuilder sql, Integer status, Integer userId, Date startTime, Date endTime) {
+        if (status != null) {
+            sql.append(" AND status = ?");
+        }
+        if (userId != null) {
+            sql.append(" AND user_id = ?");
+        }
+        if (startTime != null) {
+            sql.append(" AND create_time >= ?");
+        }
+        if (endTime != null) {
+            sql.append(" AND create_time < ?");
+        }
+    }
+
+    /**
+     * 按appendFilters的顺序设置筛选参数
+     * @return 下一个参数的位置
+     */
+    private int setFilterParameters(PreparedStatement ps, Integer status, Integer userId, Date startTime, Date endTime) throws SQLException {
+        int index = 1;
+        if (status != null) {
+            ps.setInt(index++, status);
+        }
+        if (userId != null) {
+            ps.setInt(index++, userId);
+        }
+        if (startTime != null) {
+            ps.setTimestamp(index++, new Timestamp(startTime.getTime()));
+        }
+        if (endTime != null) {
+            ps.setTimestamp(index++, new Timestamp(endTime.getTime()));
+        }
+        return index;
+    }
+
+    /**
+     * 映射订单行（不含商品项）
+     */
+    private Order mapOrder(ResultSet rs) throws SQLException {
+        Order order = new Order();
+        order.setId(rs.getInt("id"));
+        order.setOrderNo(rs.getString("order_no"));
+        order.setUserId(rs.getInt("user_id"));
+        order.setTotalPrice(rs.getBigDecimal("total_amount"));
+        order.setStatus(rs.getInt("status"));
+        order.setReceiverName(rs.getString("receiver_name"));
+        order.setReceiverPhone(rs.getString("receiver_phone"));
+        order.setReceiverAddress(rs.getString("receiver_address"));
+        order.setItemCount(rs.getInt("item_count"));
+        order.setCreateTime(rs.getTimestamp("create_time"));
+        order.setUpdateTime(rs.getTimestamp("update_time"));
+        return order;
+    }
+
     @Override
     public int save(Order order) {
         Connection conn = null;
         PreparedStatement ps = null;
+        ResultSet rs = null;
         int result = 0;
+        int generatedId = 0;
         try {
             conn = JDBCUtils.getConnection();
-            ps = conn.prepareStatement(SAVE);
+            ps = conn.prepareStatement(SAVE, Statement.RETURN_GENERATED_KEYS);
             ps.setString(1, order.getOrderNo());
             ps.setInt(2, order.getUserId());
             ps.setBigDecimal(3, order.getTotalPrice());
@@ -266,15 +269,24 @@ public class OrderDaoImpl implements OrderDao {
             ps.setString(5, order.getReceiverName());
             ps.setString(6, order.getReceiverPhone());
             ps.setString(7, order.getReceiverAddress());
-            ps.setTimestamp(8, new java.sql.Timestamp(System.currentTimeMillis()));
+            ps.setInt(8, order.getItemCount() != null ? order.getItemCount() : 0);
             ps.setTimestamp(9, new java.sql.Timestamp(System.currentTimeMillis()));
+            ps.setTimestamp(10, new java.sql.Timestamp(System.currentTimeMillis()));
             result = ps.executeUpdate();
+            // 读取自增主键，避免插入后再按业务字段回查
+            if (result > 0) {
+                rs = ps.getGeneratedKeys();
+                if (rs.next()) {
+                    generatedId = rs.getInt(1);
+                    order.setId(generatedId);
+                }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
-            JDBCUtils.close(conn, ps, null);
+            JDBCUtils.close(conn, ps, rs);
         }
-        return result;
+        return generatedId;
     }
 
     @Override
@@ -293,7 +305,28 @@ public class OrderDaoImpl implements OrderDao {
             ps.setInt(6, order.getId());
             result = ps.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, null);
+        }
+        return result;
+    }
+
+    @Override
+    public int updateStatusIfMatch(Integer id, Integer expectedStatus, Integer newStatus) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        int result = 0;
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(UPDATE_STATUS_IF_MATCH);
+            ps.setInt(1, newStatus);
+            ps.setTimestamp(2, new java.sql.Timestamp(System.currentTimeMillis()));
+            ps.setInt(3, id);
+            ps.setInt(4, expectedStatus);
+            result = ps.executeUpdate();
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, null);
         }
@@ -316,7 +349,7 @@ public class OrderDaoImpl implements OrderDao {
             ps.setInt(1, id);
             result = ps.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, null);
         }
@@ -335,26 +368,63 @@ public class OrderDaoImpl implements OrderDao {
             ps.setInt(1, orderId);
             rs = ps.executeQuery();
             while (rs.next()) {
-                OrderItem orderItem = new OrderItem();
-                orderItem.setId(rs.getInt("id"));
-                orderItem.setOrderId(rs.getInt("order_id"));
-                orderItem.setProductId(rs.getInt("product_id"));
-                orderItem.setQuantity(rs.getInt("quantity"));
-                orderItem.setPrice(rs.getBigDecimal("price"));
-                // 加载商品信息
-                ProductDaoImpl productDao = new ProductDaoImpl();
-                Product product = productDao.findById(orderItem.getProductId());
-                orderItem.setProduct(product);
-                orderItems.add(orderItem);
+                orderItems.add(mapOrderItem(rs));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
         return orderItems;
     }
 
+    @Override
+    public Map<Integer, List<OrderItem>> findOrderItemsByOrderIds(Collection<Integer> orderIds) {
+        Map<Integer, List<OrderItem>> itemsByOrder = new HashMap<>();
+        if (orderIds == null || orderIds.isEmpty()) {
+            return itemsByOrder;
+        }
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            conn = JDBCUtils.getConnection();
+            StringBuilder sql = new StringBuilder(FIND_ORDER_ITEMS_SELECT).append(" WHERE order_id IN (");
+            for (int i = 0; i < orderIds.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(") ORDER BY order_id, id");
+            ps = conn.prepareStatement(sql.toString());
+            int index = 1;
+            for (Integer orderId : orderIds) {
+                ps.setInt(index++, orderId);
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                OrderItem orderItem = mapOrderItem(rs);
+                itemsByOrder.computeIfAbsent(orderItem.getOrderId(), k -> new ArrayList<>()).add(orderItem);
+            }
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, rs);
+        }
+        return itemsByOrder;
+    }
+
+    private OrderItem mapOrderItem(ResultSet rs) throws SQLException {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setId(rs.getInt("id"));
+        orderItem.setOrderId(rs.getInt("order_id"));
+        orderItem.setProductId(rs.getInt("product_id"));
+        orderItem.setProductName(rs.getString("product_name"));
+        orderItem.setProductImage(rs.getString("product_image"));
+        orderItem.setCategoryId((Integer) rs.getObject("category_id"));
+        orderItem.setQuantity(rs.getInt("quantity"));
+        orderItem.setPrice(rs.getBigDecimal("price"));
+        return orderItem;
+    }
+
     @Override
     public int saveOrderItem(OrderItem orderItem) {
         Connection conn = null;
@@ -365,11 +435,49 @@ public class OrderDaoImpl implements OrderDao {
             ps = conn.prepareStatement(SAVE_ORDER_ITEM);
             ps.setInt(1, orderItem.getOrderId());
             ps.setInt(2, orderItem.getProductId());
-            ps.setInt(3, orderItem.getQuantity());
-            ps.setBigDecimal(4, orderItem.getPrice());
+            ps.setString(3, orderItem.getProductName());
+            ps.setString(4, orderItem.getProductImage());
+            ps.setObject(5, orderItem.getCategoryId(), Types.INTEGER);
+            ps.setInt(6, orderItem.getQuantity());
+            ps.setBigDecimal(7, orderItem.getPrice());
             result = ps.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, null);
+        }
+        return result;
+    }
+
+    @Override
+    public int saveOrderItems(List<OrderItem> orderItems) {
+        if (orderItems == null || orderItems.isEmpty()) {
+            return 0;
+        }
+        Connection conn = null;
+        PreparedStatement ps = null;
+        int result = 0;
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(SAVE_ORDER_ITEM);
+            for (OrderItem orderItem : orderItems) {
+                ps.setInt(1, orderItem.getOrderId());
+                ps.setInt(2, orderItem.getProductId());
+                ps.setString(3, orderItem.getProductName());
+                ps.setString(4, orderItem.getProductImage());
+                ps.setObject(5, orderItem.getCategoryId(), Types.INTEGER);
+                ps.setInt(6, orderItem.getQuantity());
+                ps.setBigDecimal(7, orderItem.getPrice());
+                ps.addBatch();
+            }
+            for (int count : ps.executeBatch()) {
+                // 驱动改写为多值INSERT时返回SUCCESS_NO_INFO
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    result++;
+                }
+            }
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, null);
         }
@@ -390,7 +498,7 @@ public class OrderDaoImpl implements OrderDao {
                 count = rs.getInt(1);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -411,10 +519,31 @@ public class OrderDaoImpl implements OrderDao {
                 totalSales = rs.getBigDecimal(1).doubleValue();
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
         return totalSales;
     }
-}
\ No newline at end of file
+
+    @Override
+    public Map<Integer, Integer> sumQuantityByProduct() {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        Map<Integer, Integer> quantities = new HashMap<>();
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(SUM_QUANTITY_BY_PRODUCT);
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                quantities.put(rs.getInt(1), rs.getInt(2));
+            }
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, rs);
+        }
+        return quantities;
+    }
+}
@@ -1,28 +1,67 @@
 package com.ecommerce.dao.impl;
 
 import com.ecommerce.dao.ProductDao;
+import com.ecommerce.dao.StockShardDao;
+import com.ecommerce.pojo.PageResult;
 import com.ecommerce.pojo.Product;
 import com.ecommerce.utils.JDBCUtils;
+import com.ecommerce.utils.ProductBatchLoader;
+import com.ecommerce.utils.ProductCache;
+import com.ecommerce.utils.ProductCursor;
+import com.ecommerce.utils.TransactionTemplate;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class ProductDaoImpl implements ProductDao {
-    private static final String FIND_BY_ID = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time FROM product WHERE id = ?";
-    private static final String FIND_ALL = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time FROM product WHERE status = 1 ORDER BY create_time DESC";
-    private static final String FIND_BY_CATEGORY_ID = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time FROM product WHERE category_id = ? AND status = 1 ORDER BY create_time DESC";
-    private static final String SEARCH = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time FROM product WHERE name LIKE ? AND status = 1 ORDER BY create_time DESC";
+    private StockShardDao stockShardDao = new StockShardDaoImpl();
+
+    // 分片商品按分片合计读取实时库存；列表查询仍读取product.stock，由后台任务定期同步
+    private static final String SHARDED_STOCK = "CASE WHEN stock_shards > 0 THEN (SELECT COALESCE(SUM(s.quantity), 0) FROM product_stock_shard s WHERE s.product_id = product.id) ELSE stock END AS stock";
+    private static final String FIND_BY_ID = "SELECT id, name, category_id, price, " + SHARDED_STOCK + ", description, image, status, create_time, update_time FROM product WHERE id = ?";
+    // 加锁查询不关联分片表，避免锁住分片行
+    private static final String FIND_BY_ID_FOR_UPDATE = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time FROM product WHERE id = ? FOR UPDATE";
+    private static final String FIND_BY_IDS_PREFIX = "SELECT id, name, category_id, price, " + SHARDED_STOCK + ", description, image, status, create_time, update_time FROM product WHERE id IN (";
+    // 单条IN查询的最大ID数量，超出时拆分为多次查询
+    private static final int MAX_IN_SIZE = 500;
+    private static final String FIND_ALL = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time FROM product WHERE status = 1 ORDER BY create_time DESC, id DESC";
+    private static final String FIND_BY_CATEGORY_ID = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time FROM product WHERE category_id = ? AND status = 1 ORDER BY create_time DESC, id DESC";
+    private static final String SEARCH = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time FROM product WHERE name LIKE ? AND status = 1 ORDER BY create_time DESC, id DESC";
     private static final String SAVE = "INSERT INTO product (name, category_id, price, stock, description, image, status, create_time, update_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
     private static final String UPDATE = "UPDATE product SET name = ?, category_id = ?, price = ?, stock = ?, description = ?, image = ?, status = ?, update_time = ? WHERE id = ?";
     private static final String UPDATE_STOCK = "UPDATE product SET stock = ? WHERE id = ?";
+    private static final String LOCK_STOCK_PREFIX = "SELECT id, stock FROM product WHERE id IN (";
+    // 仅未分片的商品直接更新product.stock；并发开启分片后更新不到记录，转为扣减分片
+    private static final String DECREASE_STOCK = "UPDATE product SET stock = stock - ? WHERE id = ? AND stock >= ? AND stock_shards = 0";
+    private static final String INCREASE_STOCK = "UPDATE product SET stock = stock + ? WHERE id = ? AND stock_shards = 0";
+    private static final String LOCK_STOCK_SHARDS = "SELECT stock, stock_shards FROM product WHERE id = ? FOR UPDATE";
+    private static final String SET_STOCK_SHARDS = "UPDATE product SET stock = ?, stock_shards = ? WHERE id = ?";
+    private static final String FIND_SHARDED_STOCK = "SELECT id, stock FROM product WHERE stock_shards > 0";
+    // 分片数上限
+    private static final int MAX_STOCK_SHARDS = 64;
     private static final String DELETE = "DELETE FROM product WHERE id = ?";
-    private static final String FIND_BY_PAGE = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time FROM product WHERE status = 1 ORDER BY create_time DESC LIMIT ?, ?";
-    private static final String FIND_BY_CATEGORY_ID_AND_PAGE = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time FROM product WHERE category_id = ? AND status = 1 ORDER BY create_time DESC LIMIT ?, ?";
-    private static final String SEARCH_BY_PAGE = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time FROM product WHERE name LIKE ? AND status = 1 ORDER BY create_time DESC LIMIT ?, ?";
+    private static final String FIND_BY_PAGE = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time FROM product WHERE status = 1 ORDER BY create_time DESC, id DESC LIMIT ?, ?";
+    private static final String FIND_BY_CATEGORY_ID_AND_PAGE = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time FROM product WHERE category_id = ? AND status = 1 ORDER BY create_time DESC, id DESC LIMIT ?, ?";
+    private static final String SEARCH_BY_PAGE = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time FROM product WHERE name LIKE ? AND status = 1 ORDER BY create_time DESC, id DESC LIMIT ?, ?";
+    private static final String FIND_PAGE_SELECT = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time";
+    private static final String FIND_PAGE_WITH_TOTAL_SELECT = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time, COUNT(*) OVER() AS total_count";
+    private static final String FIND_BY_CURSOR_SELECT = "SELECT id, name, category_id, price, stock, description, image, status, create_time, update_time";
+    // 通过分类闭包表关联分类及其所有子孙分类，避免拼接随分类树增长的IN列表
+    private static final String CATEGORY_SUBTREE_JOIN = " JOIN category_closure cc ON cc.descendant_id = product.category_id AND cc.ancestor_id = ?";
     private static final String COUNT_ALL = "SELECT COUNT(*) FROM product WHERE status = 1";
     private static final String COUNT_BY_CATEGORY_ID = "SELECT COUNT(*) FROM product WHERE category_id = ? AND status = 1";
     private static final String COUNT_SEARCH_RESULTS = "SELECT COUNT(*) FROM product WHERE name LIKE ? AND status = 1";
@@ -30,13 +69,22 @@ public class ProductDaoImpl implements ProductDao {
 
     @Override
     public Product findById(Integer id) {
+        return findById(id, FIND_BY_ID);
+    }
+
+    @Override
+    public Product findByIdForUpdate(Integer id) {
+        return findById(id, FIND_BY_ID_FOR_UPDATE);
+    }
+
+    private Product findById(Integer id, String sql) {
         Connection conn = null;
         PreparedStatement ps = null;
         ResultSet rs = null;
         Product product = null;
         try {
             conn = JDBCUtils.getConnection();
-            ps = conn.prepareStatement(FIND_BY_ID);
+            ps = conn.prepareStatement(sql);
             ps.setInt(1, id);
             rs = ps.executeQuery();
             if (rs.next()) {
@@ -53,13 +101,76 @@ public class ProductDaoImpl implements ProductDao {
                 product.setUpdateTime(rs.getTimestamp("update_time"));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
         return product;
     }
 
+    @Override
+    public Map<Integer, Product> findByIds(Collection<Integer> ids) {
+        Map<Integer, Product> products = new LinkedHashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return products;
+        }
+        // 去重并去除null
+        List<Integer> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinctIds.remove(null);
+        if (distinctIds.isEmpty()) {
+            return products;
+        }
+
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            conn = JDBCUtils.getConnection();
+            for (int from = 0; from < distinctIds.size(); from += MAX_IN_SIZE) {
+                List<Integer> chunk = distinctIds.subList(from, Math.min(from + MAX_IN_SIZE, distinctIds.size()));
+                // 动态生成SQL语句
+                StringBuilder sql = new StringBuilder(FIND_BY_IDS_PREFIX);
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (i > 0) {
+                        sql.append(",");
+                    }
+                    sql.append("?");
+                }
+                sql.append(")");
+
+                ps = conn.prepareStatement(sql.toString());
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setInt(i + 1, chunk.get(i));
+                }
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    Product product = new Product();
+                    product.setId(rs.getInt("id"));
+                    product.setName(rs.getString("name"));
+                    product.setCategoryId(rs.getInt("category_id"));
+                    product.setPrice(rs.getBigDecimal("price"));
+                    product.setStock(rs.getInt("stock"));
+                    product.setDescription(rs.getString("description"));
+                    product.setImage(rs.getString("image"));
+                    product.setStatus(rs.getInt("status"));
+                    product.setCreateTime(rs.getTimestamp("create_time"));
+                    product.setUpdateTime(rs.getTimestamp("update_time"));
+                    products.put(product.getId(), product);
+                }
+                // 关闭本批次的语句，连接留给下一批次继续使用
+                rs.close();
+                rs = null;
+                ps.close();
+                ps = null;
+            }
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, rs);
+        }
+        return products;
+    }
+
     @Override
     public List<Product> findAll() {
         Connection conn = null;
@@ -85,7 +196,7 @@ public class ProductDaoImpl implements ProductDao {
                 products.add(product);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -118,7 +229,7 @@ public class ProductDaoImpl implements ProductDao {
                 products.add(product);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -151,7 +262,7 @@ public class ProductDaoImpl implements ProductDao {
                 products.add(product);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -165,14 +276,16 @@ public class ProductDaoImpl implements ProductDao {
         
         Connection conn = null;
         PreparedStatement ps = null;
+        ResultSet rs = null;
         int result = 0;
+        int generatedId = 0;
         try {
             System.out.println("获取数据库连接");
             conn = JDBCUtils.getConnection();
             System.out.println("获取数据库连接成功");
             
             System.out.println("创建PreparedStatement");
-            ps = conn.prepareStatement(SAVE);
+            ps = conn.prepareStatement(SAVE, Statement.RETURN_GENERATED_KEYS);
             
             // 设置参数
             System.out.println("设置SQL参数：");
@@ -206,20 +319,28 @@ public class ProductDaoImpl implements ProductDao {
             
             System.out.println("执行SQL语句：ps.executeUpdate()");
             result = ps.executeUpdate();
+            // 读取自增主键，避免插入后再按业务字段回查
+            if (result > 0) {
+                rs = ps.getGeneratedKeys();
+                if (rs.next()) {
+                    generatedId = rs.getInt(1);
+                    product.setId(generatedId);
+                }
+            }
             System.out.println("SQL执行结果: " + result);
             
         } catch (SQLException e) {
             System.out.println("SQL执行异常: " + e.getMessage());
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             System.out.println("关闭数据库资源");
-            JDBCUtils.close(conn, ps, null);
+            JDBCUtils.close(conn, ps, rs);
             System.out.println("关闭数据库资源成功");
         }
         
         System.out.println("ProductDaoImpl.save()返回结果: " + result);
         System.out.println("=== ProductDaoImpl.save() 执行结束 ===");
-        return result;
+        return generatedId;
     }
 
     @Override
@@ -249,7 +370,7 @@ public class ProductDaoImpl implements ProductDao {
                 products.add(product);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -284,7 +405,7 @@ public class ProductDaoImpl implements ProductDao {
                 products.add(product);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -319,7 +440,7 @@ public class ProductDaoImpl implements ProductDao {
                 products.add(product);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -340,7 +461,7 @@ public class ProductDaoImpl implements ProductDao {
                 count = rs.getInt(1);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -362,7 +483,7 @@ public class ProductDaoImpl implements ProductDao {
                 count = rs.getInt(1);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -389,7 +510,7 @@ public class ProductDaoImpl implements ProductDao {
                 }
                 sql.append("?");
             }
-            sql.append(") AND status = 1 ORDER BY create_time DESC");
+            sql.append(") AND status = 1 ORDER BY create_time DESC, id DESC");
             
             ps = conn.prepareStatement(sql.toString());
             // 设置参数
@@ -413,7 +534,7 @@ public class ProductDaoImpl implements ProductDao {
                 products.add(product);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -440,7 +561,7 @@ public class ProductDaoImpl implements ProductDao {
                 }
                 sql.append("?");
             }
-            sql.append(") AND status = 1 ORDER BY create_time DESC LIMIT ?, ?");
+            sql.append(") AND status = 1 ORDER BY create_time DESC, id DESC LIMIT ?, ?");
             
             ps = conn.prepareStatement(sql.toString());
             // 设置分类ID参数
@@ -467,13 +588,154 @@ public class ProductDaoImpl implements ProductDao {
                 products.add(product);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
         return products;
     }
     
+    @Override
+    public PageResult<Product> findPage(Integer categoryId, String keyword, int offset, int limit, boolean withTotal) {
+        PageResult<Product> page = new PageResult<>();
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        List<Product> products = new ArrayList<>();
+        try {
+            conn = JDBCUtils.getConnection();
+            // 动态生成SQL语句，需要总数时用COUNT(*) OVER()在同一条语句中返回
+            StringBuilder where = new StringBuilder(" FROM product");
+            if (categoryId != null) {
+                where.append(CATEGORY_SUBTREE_JOIN);
+            }
+            where.append(" WHERE status = 1");
+            if (keyword != null) {
+                where.append(" AND name LIKE ?");
+            }
+            String sql = (withTotal ? FIND_PAGE_WITH_TOTAL_SELECT : FIND_PAGE_SELECT) + where
+                    + " ORDER BY create_time DESC, id DESC LIMIT ?, ?";
+
+            ps = conn.prepareStatement(sql);
+            int index = setFilterParameters(ps, categoryId, keyword);
+            ps.setInt(index++, offset);
+            ps.setInt(index, limit);
+
+            rs = ps.executeQuery();
+            int total = -1;
+            while (rs.next()) {
+                Product product = new Product();
+                product.setId(rs.getInt("id"));
+                product.setName(rs.getString("name"));
+                product.setCategoryId(rs.getInt("category_id"));
+                product.setPrice(rs.getBigDecimal("price"));
+                product.setStock(rs.getInt("stock"));
+                product.setDescription(rs.getString("description"));
+                product.setImage(rs.getString("image"));
+                product.setStatus(rs.getInt("status"));
+                product.setCreateTime(rs.getTimestamp("create_time"));
+                product.setUpdateTime(rs.getTimestamp("update_time"));
+                products.add(product);
+                if (withTotal) {
+                    total = rs.getInt("total_count");
+                }
+            }
+            page.setItems(products);
+
+            if (withTotal) {
+                if (products.isEmpty() && offset > 0) {
+                    // 页码超出范围时窗口函数没有返回行，单独统计总数
+                    JDBCUtils.close(null, ps, rs);
+                    rs = null;
+                    ps = null;
+                    ps = conn.prepareStatement("SELECT COUNT(*)" + where);
+                    setFilterParameters(ps, categoryId, keyword);
+                    rs = ps.executeQuery();
+                    total = rs.next() ? rs.getInt(1) : 0;
+                } else if (products.isEmpty()) {
+                    total = 0;
+                }
+                page.setTotal(total);
+                page.setExactTotal(true);
+            }
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, rs);
+        }
+        return page;
+    }
+
+    /**
+     * 设置分类、关键词过滤条件参数
+     *
+     * @return 下一个参数位置
+     */
+    private int setFilterParameters(PreparedStatement ps, Integer categoryId, String keyword) throws SQLException {
+        int index = 1;
+        if (categoryId != null) {
+            ps.setInt(index++, categoryId);
+        }
+        if (keyword != null) {
+            ps.setString(index++, "%" + keyword + "%");
+        }
+        return index;
+    }
+
+    @Override
+    public List<Product> findByCursor(Integer categoryId, String keyword, ProductCursor after, int limit) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        List<Product> products = new ArrayList<>();
+        try {
+            conn = JDBCUtils.getConnection();
+            // 动态生成SQL语句，按(create_time, id)定位游标之后的数据，走(status, create_time, id)索引范围扫描
+            StringBuilder sql = new StringBuilder(FIND_BY_CURSOR_SELECT).append(" FROM product");
+            if (categoryId != null) {
+                sql.append(CATEGORY_SUBTREE_JOIN);
+            }
+            sql.append(" WHERE status = 1");
+            if (keyword != null) {
+                sql.append(" AND name LIKE ?");
+            }
+            if (after != null) {
+                sql.append(" AND (create_time < ? OR (create_time = ? AND id < ?))");
+            }
+            sql.append(" ORDER BY create_time DESC, id DESC LIMIT ?");
+
+            ps = conn.prepareStatement(sql.toString());
+            int index = setFilterParameters(ps, categoryId, keyword);
+            if (after != null) {
+                ps.setTimestamp(index++, after.getCreateTime());
+                ps.setTimestamp(index++, after.getCreateTime());
+                ps.setInt(index++, after.getId());
+            }
+            ps.setInt(index, limit);
+
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                Product product = new Product();
+                product.setId(rs.getInt("id"));
+                product.setName(rs.getString("name"));
+                product.setCategoryId(rs.getInt("category_id"));
+                product.setPrice(rs.getBigDecimal("price"));
+                product.setStock(rs.getInt("stock"));
+                product.setDescription(rs.getString("description"));
+                product.setImage(rs.getString("image"));
+                product.setStatus(rs.getInt("status"));
+                product.setCreateTime(rs.getTimestamp("create_time"));
+                product.setUpdateTime(rs.getTimestamp("update_time"));
+                products.add(product);
+            }
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, rs);
+        }
+        return products;
+    }
+
     @Override
     public int countByCategoryIds(List<Integer> categoryIds) {
         if (categoryIds == null || categoryIds.isEmpty()) {
@@ -507,7 +769,7 @@ public class ProductDaoImpl implements ProductDao {
                 count = rs.getInt(1);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -529,7 +791,7 @@ public class ProductDaoImpl implements ProductDao {
                 count = rs.getInt(1);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -554,31 +816,459 @@ public class ProductDaoImpl implements ProductDao {
             ps.setTimestamp(8, new java.sql.Timestamp(System.currentTimeMillis()));
             ps.setInt(9, product.getId());
             result = ps.executeUpdate();
+            // 分片商品把新库存均分到各分片（调用方已在事务中锁定商品行）
+            if (result > 0) {
+                int[] shards = stockShardDao.lockQuantities(product.getId());
+                if (shards.length > 0) {
+                    stockShardDao.setQuantities(product.getId(), distribute(product.getStock(), shards.length));
+                }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, null);
         }
+        // 商品已变更，丢弃当前请求中已加载的旧数据及跨请求缓存
+        ProductBatchLoader.evict(product.getId());
+        ProductCache.invalidate(product.getId());
         return result;
     }
 
     @Override
     public int updateStock(Integer id, Integer stock) {
+        int result = 0;
+        try {
+            // 锁定商品行后判断是否分片：分片商品把新库存均分到各分片
+            result = new TransactionTemplate().execute(status -> {
+                Connection conn = null;
+                PreparedStatement ps = null;
+                ResultSet rs = null;
+                try {
+                    conn = JDBCUtils.getConnection();
+                    ps = conn.prepareStatement(LOCK_STOCK_SHARDS);
+                    ps.setInt(1, id);
+                    rs = ps.executeQuery();
+                    if (!rs.next()) {
+                        return 0;
+                    }
+                    boolean sharded = rs.getInt("stock_shards") > 0;
+                    JDBCUtils.close(null, ps, rs);
+                    rs = null;
+                    ps = null;
+
+                    if (sharded) {
+                        int[] shards = stockShardDao.lockQuantities(id);
+                        if (shards.length > 0) {
+                            stockShardDao.setQuantities(id, distribute(stock, shards.length));
+                        }
+                    }
+                    ps = conn.prepareStatement(UPDATE_STOCK);
+                    ps.setInt(1, stock);
+                    ps.setInt(2, id);
+                    return ps.executeUpdate();
+                } finally {
+                    JDBCUtils.close(conn, ps, rs);
+                }
+            });
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        }
+        // 商品已变更，丢弃当前请求中已加载的旧数据及跨请求缓存
+        ProductBatchLoader.evict(id);
+        ProductCache.invalidate(id);
+        return result;
+    }
+
+    @Override
+    public Map<Integer, Integer> lockStock(Collection<Integer> ids) {
+        Map<Integer, Integer> stocks = new TreeMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return stocks;
+        }
+        // 分片商品不锁商品行，返回分片合计（一致性读），实际扣减时由分片的条件更新保证不超卖
+        Map<Integer, int[]> shards = stockShardDao.findQuantities(ids);
+        for (Map.Entry<Integer, int[]> entry : shards.entrySet()) {
+            stocks.put(entry.getKey(), sum(entry.getValue()));
+        }
+        // 其余商品按ID升序加锁
+        TreeSet<Integer> lockIds = new TreeSet<>(ids);
+        lockIds.removeAll(shards.keySet());
+        if (lockIds.isEmpty()) {
+            return stocks;
+        }
+        List<Integer> sortedIds = new ArrayList<>(lockIds);
+
         Connection conn = null;
         PreparedStatement ps = null;
-        int result = 0;
+        ResultSet rs = null;
         try {
             conn = JDBCUtils.getConnection();
-            ps = conn.prepareStatement(UPDATE_STOCK);
-            ps.setInt(1, stock);
-            ps.setInt(2, id);
-            result = ps.executeUpdate();
+            StringBuilder sql = new StringBuilder(LOCK_STOCK_PREFIX);
+            for (int i = 0; i < sortedIds.size(); i++) {
+                if (i > 0) {
+                    sql.append(",");
+                }
+                sql.append("?");
+            }
+            sql.append(") ORDER BY id FOR UPDATE");
+
+            ps = conn.prepareStatement(sql.toString());
+            for (int i = 0; i < sortedIds.size(); i++) {
+                ps.setInt(i + 1, sortedIds.get(i));
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                stocks.put(rs.getInt("id"), rs.getInt("stock"));
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, rs);
+        }
+        return stocks;
+    }
+
+    @Override
+    public boolean decreaseStock(Map<Integer, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            return true;
+        }
+        // 按ID升序更新，与lockStock的加锁顺序一致
+        Map<Integer, Integer> sorted = new TreeMap<>(quantities);
+        Map<Integer, int[]> shards = stockShardDao.findQuantities(sorted.keySet());
+        Map<Integer, Integer> plain = new TreeMap<>(sorted);
+        plain.keySet().removeAll(shards.keySet());
+        boolean success = false;
+        try {
+            // 未分片的商品批量条件扣减，更新不到记录的（库存不足或刚开启分片）再按分片扣减
+            List<Integer> retry = updatePlainStock(DECREASE_STOCK, plain, true);
+            success = true;
+            for (Integer id : retry) {
+                if (!decreaseShards(id, null, sorted.get(id))) {
+                    success = false;
+                    break;
+                }
+            }
+            for (Map.Entry<Integer, int[]> entry : new TreeMap<>(shards).entrySet()) {
+                if (!success) {
+                    break;
+                }
+                success = decreaseShards(entry.getKey(), entry.getValue(), sorted.get(entry.getKey()));
+            }
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        }
+        for (Integer id : sorted.keySet()) {
+            ProductBatchLoader.evict(id);
+            ProductCache.invalidate(id);
+        }
+        return success;
+    }
+
+    @Override
+    public boolean increaseStock(Map<Integer, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            return true;
+        }
+        Map<Integer, Integer> sorted = new TreeMap<>(quantities);
+        Map<Integer, int[]> shards = stockShardDao.findQuantities(sorted.keySet());
+        Map<Integer, Integer> plain = new TreeMap<>(sorted);
+        plain.keySet().removeAll(shards.keySet());
+        boolean success = false;
+        try {
+            List<Integer> retry = updatePlainStock(INCREASE_STOCK, plain, false);
+            success = true;
+            for (Integer id : retry) {
+                success &= increaseShards(id, null, sorted.get(id));
+            }
+            for (Map.Entry<Integer, int[]> entry : new TreeMap<>(shards).entrySet()) {
+                success &= increaseShards(entry.getKey(), entry.getValue(), sorted.get(entry.getKey()));
+            }
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        }
+        for (Integer id : sorted.keySet()) {
+            ProductBatchLoader.evict(id);
+            ProductCache.invalidate(id);
+        }
+        return success;
+    }
+
+    /**
+     * 批量更新未分片商品的product.stock
+     * @param conditional 是否为条件扣减（第三个参数为扣减数量）
+     * @return 没有更新到记录的商品ID，由调用方按分片重试
+     */
+    private List<Integer> updatePlainStock(String sql, Map<Integer, Integer> quantities, boolean conditional) throws SQLException {
+        List<Integer> missed = new ArrayList<>();
+        if (quantities.isEmpty()) {
+            return missed;
+        }
+        Connection conn = null;
+        PreparedStatement ps = null;
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(sql);
+            List<Integer> ids = new ArrayList<>(quantities.keySet());
+            for (Integer id : ids) {
+                ps.setInt(1, quantities.get(id));
+                ps.setInt(2, id);
+                if (conditional) {
+                    ps.setInt(3, quantities.get(id));
+                }
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0 || counts[i] == Statement.EXECUTE_FAILED) {
+                    missed.add(ids.get(i));
+                }
+            }
         } finally {
             JDBCUtils.close(conn, ps, null);
         }
-        return result;
+        return missed;
+    }
+
+    /**
+     * 扣减分片库存：从随机位置开始尝试快照中库存充足的分片，每次只锁一行；
+     * 没有单个分片足够时锁定全部分片跨分片扣减。商品已关闭分片时按product.stock扣减。
+     * 并发下失败的条件更新会保留行锁，分片接近耗尽时可能出现死锁，由事务模板重试
+     * @param snapshot 分片库存快照，null表示未知
+     */
+    private boolean decreaseShards(Integer id, int[] snapshot, int quantity) throws SQLException {
+        if (snapshot != null && snapshot.length > 0) {
+            int start = ThreadLocalRandom.current().nextInt(snapshot.length);
+            for (int i = 0; i < snapshot.length; i++) {
+                int shardNo = (start + i) % snapshot.length;
+                if (snapshot[shardNo] >= quantity && stockShardDao.tryDecrease(id, shardNo, quantity)) {
+                    return true;
+                }
+            }
+        }
+        int[] shards = stockShardDao.lockQuantities(id);
+        if (shards.length == 0) {
+            return updatePlainStock(DECREASE_STOCK, Collections.singletonMap(id, quantity), true).isEmpty();
+        }
+        if (sum(shards) < quantity) {
+            return false;
+        }
+        int remaining = quantity;
+        int start = ThreadLocalRandom.current().nextInt(shards.length);
+        for (int i = 0; i < shards.length && remaining > 0; i++) {
+            int shardNo = (start + i) % shards.length;
+            int taken = Math.min(shards[shardNo], remaining);
+            shards[shardNo] -= taken;
+            remaining -= taken;
+        }
+        stockShardDao.setQuantities(id, shards);
+        return true;
+    }
+
+    /**
+     * 恢复分片库存：加到快照中库存最少的分片；商品已关闭分片时按product.stock恢复
+     * @param snapshot 分片库存快照，null表示未知
+     */
+    private boolean increaseShards(Integer id, int[] snapshot, int quantity) throws SQLException {
+        if (snapshot != null && snapshot.length > 0 && stockShardDao.increase(id, minIndex(snapshot), quantity)) {
+            return true;
+        }
+        int[] shards = stockShardDao.lockQuantities(id);
+        if (shards.length == 0) {
+            return updatePlainStock(INCREASE_STOCK, Collections.singletonMap(id, quantity), false).isEmpty();
+        }
+        return stockShardDao.increase(id, minIndex(shards), quantity);
+    }
+
+    @Override
+    public boolean setStockShards(Integer id, int shards) {
+        int shardCount = shards > 1 ? Math.min(shards, MAX_STOCK_SHARDS) : 0;
+        boolean success = false;
+        try {
+            // 先锁商品行、再锁分片（与修改库存、后台均衡的加锁顺序一致），按当前总库存重新拆分
+            success = new TransactionTemplate().execute(status -> {
+                Connection conn = null;
+                PreparedStatement ps = null;
+                ResultSet rs = null;
+                try {
+                    conn = JDBCUtils.getConnection();
+                    ps = conn.prepareStatement(LOCK_STOCK_SHARDS);
+                    ps.setInt(1, id);
+                    rs = ps.executeQuery();
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    int total = rs.getInt("stock");
+                    if (rs.getInt("stock_shards") > 0) {
+                        int[] current = stockShardDao.lockQuantities(id);
+                        if (current.length > 0) {
+                            total = sum(current);
+                        }
+                        stockShardDao.deleteByProductId(id);
+                    }
+                    JDBCUtils.close(null, ps, rs);
+                    rs = null;
+                    ps = null;
+
+                    if (shardCount > 0) {
+                        stockShardDao.create(id, distribute(total, shardCount));
+                    }
+                    ps = conn.prepareStatement(SET_STOCK_SHARDS);
+                    ps.setInt(1, total);
+                    ps.setInt(2, shardCount);
+                    ps.setInt(3, id);
+                    return ps.executeUpdate() > 0;
+                } finally {
+                    JDBCUtils.close(conn, ps, rs);
+                }
+            });
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        }
+        ProductBatchLoader.evict(id);
+        ProductCache.invalidate(id);
+        return success;
+    }
+
+    @Override
+    public Map<Integer, Integer> rebalanceStockShards() {
+        Map<Integer, Integer> synced = new TreeMap<>();
+        Map<Integer, int[]> all = stockShardDao.findAllQuantities();
+        if (all.isEmpty()) {
+            return synced;
+        }
+        Map<Integer, Integer> displayed = findShardedStock();
+        for (Map.Entry<Integer, int[]> entry : all.entrySet()) {
+            Integer id = entry.getKey();
+            // 先用快照判断，只对需要处理的商品加锁
+            int total = sum(entry.getValue());
+            if (!needsRebalance(entry.getValue()) && Integer.valueOf(total).equals(displayed.get(id))) {
+                continue;
+            }
+            try {
+                Integer stock = new TransactionTemplate().execute(status -> {
+                    Connection conn = null;
+                    PreparedStatement ps = null;
+                    ResultSet rs = null;
+                    try {
+                        conn = JDBCUtils.getConnection();
+                        ps = conn.prepareStatement(LOCK_STOCK_SHARDS);
+                        ps.setInt(1, id);
+                        rs = ps.executeQuery();
+                        if (!rs.next() || rs.getInt("stock_shards") == 0) {
+                            return null;
+                        }
+                        int oldStock = rs.getInt("stock");
+                        JDBCUtils.close(null, ps, rs);
+                        rs = null;
+                        ps = null;
+
+                        int[] shards = stockShardDao.lockQuantities(id);
+                        int newStock = sum(shards);
+                        if (needsRebalance(shards)) {
+                            stockShardDao.setQuantities(id, distribute(newStock, shards.length));
+                        }
+                        if (newStock == oldStock) {
+                            return null;
+                        }
+                        ps = conn.prepareStatement(UPDATE_STOCK);
+                        ps.setInt(1, newStock);
+                        ps.setInt(2, id);
+                        ps.executeUpdate();
+                        return newStock;
+                    } finally {
+                        JDBCUtils.close(conn, ps, rs);
+                    }
+                });
+                if (stock != null) {
+                    synced.put(id, stock);
+                    ProductBatchLoader.evict(id);
+                    ProductCache.invalidate(id);
+                }
+            } catch (SQLException | RuntimeException e) {
+                // 单个商品失败不影响其他商品
+                e.printStackTrace();
+            }
+        }
+        return synced;
+    }
+
+    /**
+     * 查询分片商品当前的product.stock（列表展示用的同步值）
+     */
+    private Map<Integer, Integer> findShardedStock() {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        Map<Integer, Integer> stocks = new HashMap<>();
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(FIND_SHARDED_STOCK);
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                stocks.put(rs.getInt("id"), rs.getInt("stock"));
+            }
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, rs);
+        }
+        return stocks;
+    }
+
+    /**
+     * 把总库存均分到各分片，余数分给编号较小的分片
+     */
+    private static int[] distribute(int total, int shardCount) {
+        int[] shards = new int[shardCount];
+        int base = Math.max(total, 0) / shardCount;
+        int extra = Math.max(total, 0) % shardCount;
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = base + (i < extra ? 1 : 0);
+        }
+        return shards;
+    }
+
+    /**
+     * 有分片低于均分值的四分之一时需要重新均分，避免扣减频繁落到跨分片的慢路径
+     */
+    private static boolean needsRebalance(int[] shards) {
+        if (shards.length < 2) {
+            return false;
+        }
+        int fair = sum(shards) / shards.length;
+        return shards[minIndex(shards)] * 4 < fair;
+    }
+
+    private static int sum(int[] shards) {
+        int total = 0;
+        for (int quantity : shards) {
+            total += quantity;
+        }
+        return total;
+    }
+
+    private static int minIndex(int[] shards) {
+        int min = 0;
+        for (int i = 1; i < shards.length; i++) {
+            if (shards[i] < shards[min]) {
+                min = i;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * 判断批量更新的每条语句是否都更新到了记录
+     * 驱动改写批量语句时可能返回SUCCESS_NO_INFO，视为成功
+     */
+    private boolean allRowsUpdated(int[] counts) {
+        for (int count : counts) {
+            if (count == 0 || count == Statement.EXECUTE_FAILED) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -592,10 +1282,13 @@ public class ProductDaoImpl implements ProductDao {
             ps.setInt(1, id);
             result = ps.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, null);
         }
+        // 商品已变更，丢弃当前请求中已加载的旧数据及跨请求缓存
+        ProductBatchLoader.evict(id);
+        ProductCache.invalidate(id);
         return result;
     }
 
@@ -613,7 +1306,7 @@ public class ProductDaoImpl implements ProductDao {
                 count = rs.getInt(1);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
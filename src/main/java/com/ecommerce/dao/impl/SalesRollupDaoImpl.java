@@ -0,0 +1,211 @@
+package com.ecommerce.dao.impl;
+
+import com.ecommerce.dao.SalesRollupDao;
+import com.ecommerce.pojo.SalesPoint;
+import com.ecommerce.utils.JDBCUtils;
+import com.ecommerce.utils.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 销售汇总数据访问实现类
+ */
+public class SalesRollupDaoImpl implements SalesRollupDao {
+    // 单个订单的增量：各分类一行（按订单商品项下单时的分类快照）加整单合计一行，按sign计入或移出；
+    // 不关联product表，商品之后改换分类也不影响已计入的分类
+    private static final String APPLY_ORDER = "INSERT INTO sales_rollup (stat_hour, category_id, status, order_count, item_quantity, amount) "
+            + "SELECT d_hour, d_category, ?, ? * d_orders, ? * d_quantity, ? * d_amount FROM ("
+            + "SELECT DATE_FORMAT(o.create_time, '%Y-%m-%d %H:00:00') AS d_hour, oi.category_id AS d_category, 1 AS d_orders, "
+            + "SUM(oi.quantity) AS d_quantity, SUM(oi.price * oi.quantity) AS d_amount "
+            + "FROM `order` o JOIN order_item oi ON oi.order_id = o.id "
+            + "WHERE o.id = ? GROUP BY d_hour, d_category "
+            + "UNION ALL "
+            + "SELECT DATE_FORMAT(o.create_time, '%Y-%m-%d %H:00:00'), 0, 1, "
+            + "(SELECT COALESCE(SUM(oi.quantity), 0) FROM order_item oi WHERE oi.order_id = o.id), o.total_amount "
+            + "FROM `order` o WHERE o.id = ?"
+            + ") delta "
+            + "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), "
+            + "item_quantity = item_quantity + VALUES(item_quantity), amount = amount + VALUES(amount)";
+    // 按天汇总的增量，结构与小时汇总相同，供长时间范围的报表使用
+    private static final String APPLY_ORDER_DAILY = "INSERT INTO sales_rollup_daily (stat_date, category_id, status, order_count, item_quantity, amount) "
+            + "SELECT d_date, d_category, ?, ? * d_orders, ? * d_quantity, ? * d_amount FROM ("
+            + "SELECT DATE(o.create_time) AS d_date, oi.category_id AS d_category, 1 AS d_orders, "
+            + "SUM(oi.quantity) AS d_quantity, SUM(oi.price * oi.quantity) AS d_amount "
+            + "FROM `order` o JOIN order_item oi ON oi.order_id = o.id "
+            + "WHERE o.id = ? GROUP BY d_date, d_category "
+            + "UNION ALL "
+            + "SELECT DATE(o.create_time), 0, 1, "
+            + "(SELECT COALESCE(SUM(oi.quantity), 0) FROM order_item oi WHERE oi.order_id = o.id), o.total_amount "
+            + "FROM `order` o WHERE o.id = ?"
+            + ") delta "
+            + "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), "
+            + "item_quantity = item_quantity + VALUES(item_quantity), amount = amount + VALUES(amount)";
+    private static final String DELETE_ALL = "DELETE FROM sales_rollup";
+    private static final String DELETE_ALL_DAILY = "DELETE FROM sales_rollup_daily";
+    private static final String REBUILD_BY_CATEGORY = "INSERT INTO sales_rollup (stat_hour, category_id, status, order_count, item_quantity, amount) "
+            + "SELECT DATE_FORMAT(o.create_time, '%Y-%m-%d %H:00:00') AS d_hour, oi.category_id, o.status, "
+            + "COUNT(DISTINCT o.id), SUM(oi.quantity), SUM(oi.price * oi.quantity) "
+            + "FROM `order` o JOIN order_item oi ON oi.order_id = o.id "
+            + "GROUP BY d_hour, oi.category_id, o.status";
+    private static final String REBUILD_TOTAL = "INSERT INTO sales_rollup (stat_hour, category_id, status, order_count, item_quantity, amount) "
+            + "SELECT DATE_FORMAT(o.create_time, '%Y-%m-%d %H:00:00') AS d_hour, 0, o.status, "
+            + "COUNT(*), COALESCE(SUM(q.quantity), 0), SUM(o.total_amount) "
+            + "FROM `order` o LEFT JOIN (SELECT order_id, SUM(quantity) AS quantity FROM order_item GROUP BY order_id) q ON q.order_id = o.id "
+            + "GROUP BY d_hour, o.status";
+    private static final String REBUILD_DAILY = "INSERT INTO sales_rollup_daily (stat_date, category_id, status, order_count, item_quantity, amount) "
+            + "SELECT DATE(stat_hour) AS d_date, category_id, status, SUM(order_count), SUM(item_quantity), SUM(amount) "
+            + "FROM sales_rollup GROUP BY d_date, category_id, status";
+    private static final String SUM_AMOUNT = "SELECT COALESCE(SUM(amount), 0) FROM sales_rollup WHERE category_id = 0 AND status = ?";
+    private static final String FIND_HOURLY_SERIES_PREFIX = "SELECT stat_hour, SUM(order_count), SUM(item_quantity), SUM(amount) FROM sales_rollup "
+            + "WHERE category_id = 0 AND stat_hour >= ? AND stat_hour < ? AND status IN (";
+    private static final String FIND_HOURLY_SERIES_SUFFIX = ") GROUP BY stat_hour ORDER BY stat_hour";
+    private static final String FIND_DAILY_SERIES_PREFIX = "SELECT stat_date, SUM(order_count), SUM(item_quantity), SUM(amount) FROM sales_rollup_daily "
+            + "WHERE category_id = 0 AND stat_date >= ? AND stat_date < ? AND status IN (";
+    private static final String FIND_DAILY_SERIES_SUFFIX = ") GROUP BY stat_date ORDER BY stat_date";
+
+    @Override
+    public int applyOrder(Integer orderId, int status, int sign) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        int result = 0;
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(APPLY_ORDER);
+            ps.setInt(1, status);
+            ps.setInt(2, sign);
+            ps.setInt(3, sign);
+            ps.setInt(4, sign);
+            ps.setInt(5, orderId);
+            ps.setInt(6, orderId);
+            result = ps.executeUpdate();
+            JDBCUtils.close(null, ps, null);
+            ps = null;
+
+            ps = conn.prepareStatement(APPLY_ORDER_DAILY);
+            ps.setInt(1, status);
+            ps.setInt(2, sign);
+            ps.setInt(3, sign);
+            ps.setInt(4, sign);
+            ps.setInt(5, orderId);
+            ps.setInt(6, orderId);
+            result += ps.executeUpdate();
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, null);
+        }
+        return result;
+    }
+
+    @Override
+    public int rebuild() {
+        try {
+            // 清空与重新生成在同一事务中完成，期间读取方仍看到旧数据
+            return new TransactionTemplate().execute(status -> {
+                Connection conn = null;
+                PreparedStatement ps = null;
+                try {
+                    conn = JDBCUtils.getConnection();
+                    ps = conn.prepareStatement(DELETE_ALL);
+                    ps.executeUpdate();
+                    JDBCUtils.close(null, ps, null);
+                    ps = null;
+
+                    ps = conn.prepareStatement(DELETE_ALL_DAILY);
+                    ps.executeUpdate();
+                    JDBCUtils.close(null, ps, null);
+                    ps = null;
+
+                    ps = conn.prepareStatement(REBUILD_BY_CATEGORY);
+                    int rows = ps.executeUpdate();
+                    JDBCUtils.close(null, ps, null);
+                    ps = null;
+
+                    ps = conn.prepareStatement(REBUILD_TOTAL);
+                    rows += ps.executeUpdate();
+                    JDBCUtils.close(null, ps, null);
+                    ps = null;
+
+                    // 按天汇总由小时汇总生成
+                    ps = conn.prepareStatement(REBUILD_DAILY);
+                    rows += ps.executeUpdate();
+                    return rows;
+                } finally {
+                    JDBCUtils.close(conn, ps, null);
+                }
+            });
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        }
+        return -1;
+    }
+
+    @Override
+    public BigDecimal sumAmount(int status) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        BigDecimal amount = BigDecimal.ZERO;
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(SUM_AMOUNT);
+            ps.setInt(1, status);
+            rs = ps.executeQuery();
+            if (rs.next()) {
+                amount = rs.getBigDecimal(1);
+            }
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, rs);
+        }
+        return amount;
+    }
+
+    @Override
+    public List<SalesPoint> findSeries(boolean daily, Date from, Date to, int[] statuses) {
+        List<SalesPoint> points = new ArrayList<>();
+        if (statuses == null || statuses.length == 0) {
+            return points;
+        }
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            conn = JDBCUtils.getConnection();
+            StringBuilder sql = new StringBuilder(daily ? FIND_DAILY_SERIES_PREFIX : FIND_HOURLY_SERIES_PREFIX);
+            for (int i = 0; i < statuses.length; i++) {
+                if (i > 0) {
+                    sql.append(",");
+                }
+                sql.append("?");
+            }
+            sql.append(daily ? FIND_DAILY_SERIES_SUFFIX : FIND_HOURLY_SERIES_SUFFIX);
+
+            ps = conn.prepareStatement(sql.toString());
+            int index = 1;
+            ps.setTimestamp(index++, new Timestamp(from.getTime()));
+            ps.setTimestamp(index++, new Timestamp(to.getTime()));
+            for (int status : statuses) {
+                ps.setInt(index++, status);
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                points.add(new SalesPoint(rs.getTimestamp(1), rs.getInt(2), rs.getInt(3), rs.getBigDecimal(4)));
+            }
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, rs);
+        }
+        return points;
+    }
+}
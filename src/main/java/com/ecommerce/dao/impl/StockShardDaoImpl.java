@@ -0,0 +1,226 @@
+package com.ecommerce.dao.impl;
+
+import com.ecommerce.dao.StockShardDao;
+import com.ecommerce.utils.JDBCUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 商品库存分片数据访问实现类
+ */
+public class StockShardDaoImpl implements StockShardDao {
+    private static final String FIND_QUANTITIES_PREFIX = "SELECT product_id, shard_no, quantity FROM product_stock_shard WHERE product_id IN (";
+    private static final String FIND_ALL_QUANTITIES = "SELECT product_id, shard_no, quantity FROM product_stock_shard ORDER BY product_id, shard_no";
+    private static final String LOCK_QUANTITIES = "SELECT shard_no, quantity FROM product_stock_shard WHERE product_id = ? ORDER BY shard_no FOR UPDATE";
+    private static final String TRY_DECREASE = "UPDATE product_stock_shard SET quantity = quantity - ? WHERE product_id = ? AND shard_no = ? AND quantity >= ?";
+    private static final String INCREASE = "UPDATE product_stock_shard SET quantity = quantity + ? WHERE product_id = ? AND shard_no = ?";
+    private static final String SET_QUANTITY = "UPDATE product_stock_shard SET quantity = ? WHERE product_id = ? AND shard_no = ?";
+    private static final String CREATE = "INSERT INTO product_stock_shard (product_id, shard_no, quantity) VALUES (?, ?, ?)";
+    private static final String DELETE_BY_PRODUCT_ID = "DELETE FROM product_stock_shard WHERE product_id = ?";
+
+    @Override
+    public Map<Integer, int[]> findQuantities(Collection<Integer> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        List<Integer> ids = new ArrayList<>(productIds);
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        Map<Integer, int[]> quantities = new HashMap<>();
+        try {
+            conn = JDBCUtils.getConnection();
+            StringBuilder sql = new StringBuilder(FIND_QUANTITIES_PREFIX);
+            for (int i = 0; i < ids.size(); i++) {
+                if (i > 0) {
+                    sql.append(",");
+                }
+                sql.append("?");
+            }
+            sql.append(") ORDER BY product_id, shard_no");
+
+            ps = conn.prepareStatement(sql.toString());
+            for (int i = 0; i < ids.size(); i++) {
+                ps.setInt(i + 1, ids.get(i));
+            }
+            rs = ps.executeQuery();
+            quantities = mapQuantities(rs);
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, rs);
+        }
+        return quantities;
+    }
+
+    @Override
+    public Map<Integer, int[]> findAllQuantities() {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        Map<Integer, int[]> quantities = new TreeMap<>();
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(FIND_ALL_QUANTITIES);
+            rs = ps.executeQuery();
+            quantities.putAll(mapQuantities(rs));
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, rs);
+        }
+        return quantities;
+    }
+
+    @Override
+    public int[] lockQuantities(Integer productId) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        int[] quantities = new int[0];
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(LOCK_QUANTITIES);
+            ps.setInt(1, productId);
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                quantities = put(quantities, rs.getInt("shard_no"), rs.getInt("quantity"));
+            }
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, rs);
+        }
+        return quantities;
+    }
+
+    @Override
+    public boolean tryDecrease(Integer productId, int shardNo, int quantity) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        int result = 0;
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(TRY_DECREASE);
+            ps.setInt(1, quantity);
+            ps.setInt(2, productId);
+            ps.setInt(3, shardNo);
+            ps.setInt(4, quantity);
+            result = ps.executeUpdate();
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, null);
+        }
+        return result > 0;
+    }
+
+    @Override
+    public boolean increase(Integer productId, int shardNo, int quantity) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        int result = 0;
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(INCREASE);
+            ps.setInt(1, quantity);
+            ps.setInt(2, productId);
+            ps.setInt(3, shardNo);
+            result = ps.executeUpdate();
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, null);
+        }
+        return result > 0;
+    }
+
+    @Override
+    public void setQuantities(Integer productId, int[] quantities) {
+        batchUpdate(SET_QUANTITY, productId, quantities, false);
+    }
+
+    @Override
+    public void create(Integer productId, int[] quantities) {
+        batchUpdate(CREATE, productId, quantities, true);
+    }
+
+    @Override
+    public int deleteByProductId(Integer productId) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        int result = 0;
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(DELETE_BY_PRODUCT_ID);
+            ps.setInt(1, productId);
+            result = ps.executeUpdate();
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, null);
+        }
+        return result;
+    }
+
+    /**
+     * 每个分片一条语句批量执行；insert为true时参数顺序为(product_id, shard_no, quantity)，否则为(quantity, product_id, shard_no)
+     */
+    private void batchUpdate(String sql, Integer productId, int[] quantities, boolean insert) {
+        if (quantities == null || quantities.length == 0) {
+            return;
+        }
+        Connection conn = null;
+        PreparedStatement ps = null;
+        try {
+            conn = JDBCUtils.getConnection();
+            ps = conn.prepareStatement(sql);
+            for (int shardNo = 0; shardNo < quantities.length; shardNo++) {
+                if (insert) {
+                    ps.setInt(1, productId);
+                    ps.setInt(2, shardNo);
+                    ps.setInt(3, quantities[shardNo]);
+                } else {
+                    ps.setInt(1, quantities[shardNo]);
+                    ps.setInt(2, productId);
+                    ps.setInt(3, shardNo);
+                }
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (SQLException e) {
+            JDBCUtils.handleSQLException(e);
+        } finally {
+            JDBCUtils.close(conn, ps, null);
+        }
+    }
+
+    /**
+     * 按(product_id, shard_no)顺序读取的结果集转为商品ID到分片库存数组的映射
+     */
+    private Map<Integer, int[]> mapQuantities(ResultSet rs) throws SQLException {
+        Map<Integer, int[]> quantities = new HashMap<>();
+        while (rs.next()) {
+            int productId = rs.getInt("product_id");
+            int[] shards = quantities.getOrDefault(productId, new int[0]);
+            quantities.put(productId, put(shards, rs.getInt("shard_no"), rs.getInt("quantity")));
+        }
+        return quantities;
+    }
+
+    private static int[] put(int[] shards, int shardNo, int quantity) {
+        int[] result = shardNo < shards.length ? shards : Arrays.copyOf(shards, shardNo + 1);
+        result[shardNo] = quantity;
+        return result;
+    }
+}
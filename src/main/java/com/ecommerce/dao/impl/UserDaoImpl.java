@@ -8,6 +8,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Date;
 
 /**
@@ -47,7 +48,7 @@ public class UserDaoImpl implements UserDao {
                 user.setUpdateTime(rs.getTimestamp("update_time"));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -86,7 +87,7 @@ public class UserDaoImpl implements UserDao {
             }
         } catch (SQLException e) {
             System.out.println("DEBUG UserDaoImpl: SQLException occurred: " + e.getMessage());
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -118,7 +119,7 @@ public class UserDaoImpl implements UserDao {
                 user.setUpdateTime(rs.getTimestamp("update_time"));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
@@ -129,10 +130,12 @@ public class UserDaoImpl implements UserDao {
     public int save(User user) {
         Connection conn = null;
         PreparedStatement ps = null;
+        ResultSet rs = null;
         int result = 0;
+        int generatedId = 0;
         try {
             conn = JDBCUtils.getConnection();
-            ps = conn.prepareStatement(SAVE);
+            ps = conn.prepareStatement(SAVE, Statement.RETURN_GENERATED_KEYS);
             ps.setString(1, user.getUsername());
             ps.setString(2, user.getPassword());
             ps.setString(3, user.getEmail());
@@ -143,12 +146,20 @@ public class UserDaoImpl implements UserDao {
             ps.setTimestamp(8, new java.sql.Timestamp(System.currentTimeMillis()));
             ps.setTimestamp(9, new java.sql.Timestamp(System.currentTimeMillis()));
             result = ps.executeUpdate();
+            // 读取自增主键，避免插入后再按业务字段回查
+            if (result > 0) {
+                rs = ps.getGeneratedKeys();
+                if (rs.next()) {
+                    generatedId = rs.getInt(1);
+                    user.setId(generatedId);
+                }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
-            JDBCUtils.close(conn, ps, null);
+            JDBCUtils.close(conn, ps, rs);
         }
-        return result;
+        return generatedId;
     }
 
     @Override
@@ -170,7 +181,7 @@ public class UserDaoImpl implements UserDao {
             ps.setInt(9, user.getId());
             result = ps.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, null);
         }
@@ -188,7 +199,7 @@ public class UserDaoImpl implements UserDao {
             ps.setInt(1, id);
             result = ps.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, null);
         }
@@ -209,7 +220,7 @@ public class UserDaoImpl implements UserDao {
                 count = rs.getInt(1);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            JDBCUtils.handleSQLException(e);
         } finally {
             JDBCUtils.close(conn, ps, rs);
         }
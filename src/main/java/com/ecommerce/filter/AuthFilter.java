@@ -52,7 +52,10 @@ public class AuthFilter implements Filter {
         // 需要管理员权限的路径
         boolean needAdmin = requestURI.contains("/category/") || requestURI.contains("/product/add") || 
                            requestURI.contains("/product/save") || requestURI.contains("/product/delete") ||
-                           requestURI.contains("/product/update") || requestURI.contains("/product/edit");
+                           requestURI.contains("/product/update") || requestURI.contains("/product/edit") ||
+                           requestURI.contains("/dashboard/") || requestURI.contains("/order/export") ||
+                           requestURI.contains("/flash/start") || requestURI.contains("/flash/end") ||
+                           requestURI.contains("/product/stockShards");
         
         System.out.println("DEBUG AuthFilter.doFilter: Need admin: " + needAdmin);
         
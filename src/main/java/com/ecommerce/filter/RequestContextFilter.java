@@ -0,0 +1,37 @@
+package com.ecommerce.filter;
+
+import com.ecommerce.utils.JDBCUtils;
+import com.ecommerce.utils.ProductBatchLoader;
+
+import javax.servlet.*;
+import java.io.IOException;
+
+/**
+ * 请求上下文过滤器
+ * 为每个请求绑定请求级资源（数据库连接、商品批量加载器），请求结束后统一释放
+ */
+public class RequestContextFilter implements Filter {
+
+    @Override
+    public void init(FilterConfig filterConfig) {}
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        boolean scoped = JDBCUtils.isRequestScopeEnabled();
+        if (scoped) {
+            JDBCUtils.beginRequestScope();
+        }
+        ProductBatchLoader.bind();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ProductBatchLoader.unbind();
+            if (scoped) {
+                JDBCUtils.endRequestScope();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {}
+}
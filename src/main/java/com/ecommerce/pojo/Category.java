@@ -17,6 +17,8 @@ public class Category implements Serializable {
     private String description; // 分类描述
     private Date createTime; // 创建时间
     private Date updateTime; // 更新时间
+    private int productCount; // 商品数量（含子孙分类）
+    private int activeProductCount; // 上架商品数量（含子孙分类）
     private List<Category> children; // 子分类列表
 
     // 构造方法
@@ -102,6 +104,22 @@ public class Category implements Serializable {
         this.updateTime = updateTime;
     }
 
+    public int getProductCount() {
+        return productCount;
+    }
+
+    public void setProductCount(int productCount) {
+        this.productCount = productCount;
+    }
+
+    public int getActiveProductCount() {
+        return activeProductCount;
+    }
+
+    public void setActiveProductCount(int activeProductCount) {
+        this.activeProductCount = activeProductCount;
+    }
+
     public List<Category> getChildren() {
         return children;
     }
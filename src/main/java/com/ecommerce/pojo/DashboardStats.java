@@ -0,0 +1,123 @@
+package com.ecommerce.pojo;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 仪表盘统计数据
+ * 各项统计并行查询，超时或失败的项为null并记录在failedItems中，页面按“暂无数据”显示
+ */
+public class DashboardStats implements Serializable {
+    private Integer userCount; // 用户总数
+    private Integer orderCount; // 订单总数
+    private BigDecimal totalSales; // 总销售额
+    private Integer lowStockCount; // 库存紧张商品数
+    private List<CategoryCount> categoryCounts = new ArrayList<>(); // 各分类商品数量
+    private List<String> failedItems = new ArrayList<>(); // 超时或失败的统计项
+    private long elapsedMillis; // 统计总耗时（毫秒）
+
+    /**
+     * 分类商品数量
+     */
+    public static class CategoryCount implements Serializable {
+        private Integer categoryId; // 分类ID
+        private String name; // 分类名称
+        private int productCount; // 商品数量
+
+        public CategoryCount() {
+        }
+
+        public CategoryCount(Integer categoryId, String name, int productCount) {
+            this.categoryId = categoryId;
+            this.name = name;
+            this.productCount = productCount;
+        }
+
+        public Integer getCategoryId() {
+            return categoryId;
+        }
+
+        public void setCategoryId(Integer categoryId) {
+            this.categoryId = categoryId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getProductCount() {
+            return productCount;
+        }
+
+        public void setProductCount(int productCount) {
+            this.productCount = productCount;
+        }
+    }
+
+    // getter和setter方法
+    public Integer getUserCount() {
+        return userCount;
+    }
+
+    public void setUserCount(Integer userCount) {
+        this.userCount = userCount;
+    }
+
+    public Integer getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(Integer orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getTotalSales() {
+        return totalSales;
+    }
+
+    public void setTotalSales(BigDecimal totalSales) {
+        this.totalSales = totalSales;
+    }
+
+    public Integer getLowStockCount() {
+        return lowStockCount;
+    }
+
+    public void setLowStockCount(Integer lowStockCount) {
+        this.lowStockCount = lowStockCount;
+    }
+
+    public List<CategoryCount> getCategoryCounts() {
+        return categoryCounts;
+    }
+
+    public void setCategoryCounts(List<CategoryCount> categoryCounts) {
+        this.categoryCounts = categoryCounts;
+    }
+
+    public List<String> getFailedItems() {
+        return failedItems;
+    }
+
+    public void setFailedItems(List<String> failedItems) {
+        this.failedItems = failedItems;
+    }
+
+    public boolean isComplete() {
+        return failedItems.isEmpty();
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+}
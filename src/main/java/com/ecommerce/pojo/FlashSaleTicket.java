@@ -0,0 +1,87 @@
+package com.ecommerce.pojo;
+
+import java.io.Serializable;
+
+/**
+ * 秒杀抢购凭证，订单异步落库，客户端凭订单号查询结果
+ */
+public class FlashSaleTicket implements Serializable {
+    private String orderNo; // 预先生成的订单号
+    private Integer productId; // 商品ID
+    private Integer userId; // 用户ID
+    private volatile Status status; // 抢购状态
+    private volatile Integer orderId; // 落库后的订单ID
+    private volatile long finishTime; // 落库完成或失败的时间
+
+    /**
+     * 抢购状态
+     */
+    public enum Status {
+        QUEUED, // 已抢到，订单排队落库中
+        SUCCESS, // 订单已落库
+        FAILED, // 订单落库失败，名额已退回
+        NOT_ACTIVE, // 商品没有进行中的秒杀
+        SOLD_OUT, // 已售罄
+        DUPLICATE, // 每人限购一件，已抢过
+        BUSY // 落库队列已满
+    }
+
+    public FlashSaleTicket() {
+    }
+
+    public FlashSaleTicket(String orderNo, Integer productId, Integer userId, Status status) {
+        this.orderNo = orderNo;
+        this.productId = productId;
+        this.userId = userId;
+        this.status = status;
+    }
+
+    // getter和setter方法
+    public String getOrderNo() {
+        return orderNo;
+    }
+
+    public void setOrderNo(String orderNo) {
+        this.orderNo = orderNo;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Integer productId) {
+        this.productId = productId;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Integer getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Integer orderId) {
+        this.orderId = orderId;
+    }
+
+    public long getFinishTime() {
+        return finishTime;
+    }
+
+    public void setFinishTime(long finishTime) {
+        this.finishTime = finishTime;
+    }
+}
@@ -17,6 +17,7 @@ public class Order implements Serializable {
     private String receiverName; // 收货人姓名
     private String receiverPhone; // 收货人电话
     private String receiverAddress; // 收货人地址
+    private Integer itemCount; // 商品总件数
     private Date createTime; // 创建时间
     private Date updateTime; // 更新时间
     private List<OrderItem> orderItems; // 订单商品项列表
@@ -104,6 +105,14 @@ public class Order implements Serializable {
         this.createTime = createTime;
     }
 
+    public Integer getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(Integer itemCount) {
+        this.itemCount = itemCount;
+    }
+
     public Date getUpdateTime() {
         return updateTime;
     }
@@ -131,6 +140,7 @@ public class Order implements Serializable {
                 ", receiverName='" + receiverName + '\'' +
                 ", receiverPhone='" + receiverPhone + '\'' +
                 ", receiverAddress='" + receiverAddress + '\'' +
+                ", itemCount=" + itemCount +
                 ", createTime=" + createTime +
                 ", updateTime=" + updateTime +
                 '}';
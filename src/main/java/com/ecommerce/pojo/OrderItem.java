@@ -12,7 +12,9 @@ public class OrderItem implements Serializable {
     private Integer productId; // 商品ID
     private Integer quantity; // 商品数量
     private BigDecimal price; // 商品单价
-    private Product product; // 商品信息
+    private String productName; // 下单时的商品名称
+    private String productImage; // 下单时的商品图片
+    private Integer categoryId; // 下单时的商品分类ID
 
     // 构造方法
     public OrderItem() {
@@ -74,12 +76,28 @@ public class OrderItem implements Serializable {
         this.price = price;
     }
 
-    public Product getProduct() {
-        return product;
+    public String getProductName() {
+        return productName;
     }
 
-    public void setProduct(Product product) {
-        this.product = product;
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public String getProductImage() {
+        return productImage;
+    }
+
+    public void setProductImage(String productImage) {
+        this.productImage = productImage;
+    }
+
+    public Integer getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Integer categoryId) {
+        this.categoryId = categoryId;
     }
 
     @Override
@@ -88,6 +106,7 @@ public class OrderItem implements Serializable {
                 "id=" + id +
                 ", orderId=" + orderId +
                 ", productId=" + productId +
+                ", productName='" + productName + '\'' +
                 ", quantity=" + quantity +
                 ", price=" + price +
                 '}';
@@ -0,0 +1,58 @@
+package com.ecommerce.pojo;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分页查询结果
+ */
+public class PageResult<T> implements Serializable {
+    private List<T> items = new ArrayList<>(); // 当前页数据
+    private int total = -1; // 总记录数，-1表示未知
+    private boolean exactTotal; // 总数是否为精确值（false表示取自计数缓存，可能略有延迟）
+
+    // 构造方法
+    public PageResult() {
+    }
+
+    public PageResult(List<T> items, int total, boolean exactTotal) {
+        this.items = items;
+        this.total = total;
+        this.exactTotal = exactTotal;
+    }
+
+    // getter和setter方法
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public boolean isExactTotal() {
+        return exactTotal;
+    }
+
+    public void setExactTotal(boolean exactTotal) {
+        this.exactTotal = exactTotal;
+    }
+
+    @Override
+    public String toString() {
+        return "PageResult{" +
+                "items=" + items.size() +
+                ", total=" + total +
+                ", exactTotal=" + exactTotal +
+                '}';
+    }
+}
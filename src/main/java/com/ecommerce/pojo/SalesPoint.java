@@ -0,0 +1,59 @@
+package com.ecommerce.pojo;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * 销售汇总时间点（一个小时或一天的合计）
+ */
+public class SalesPoint implements Serializable {
+    private Date time; // 时间桶起点
+    private int orderCount; // 订单数
+    private int itemQuantity; // 商品件数
+    private BigDecimal amount; // 销售金额
+
+    // 构造方法
+    public SalesPoint() {
+    }
+
+    public SalesPoint(Date time, int orderCount, int itemQuantity, BigDecimal amount) {
+        this.time = time;
+        this.orderCount = orderCount;
+        this.itemQuantity = itemQuantity;
+        this.amount = amount;
+    }
+
+    // getter和setter方法
+    public Date getTime() {
+        return time;
+    }
+
+    public void setTime(Date time) {
+        this.time = time;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(int orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public int getItemQuantity() {
+        return itemQuantity;
+    }
+
+    public void setItemQuantity(int itemQuantity) {
+        this.itemQuantity = itemQuantity;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+}
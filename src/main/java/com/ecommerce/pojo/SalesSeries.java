@@ -0,0 +1,67 @@
+package com.ecommerce.pojo;
+
+import java.io.Serializable;
+
+/**
+ * 销售时间序列（列式存储：times[i]与values[i]为一个点）
+ */
+public class SalesSeries implements Serializable {
+    private String metric; // 指标：revenue / orders / items
+    private String resolution; // 原始时间桶粒度：hour / day
+    private long[] times = new long[0]; // 时间桶起点（毫秒时间戳）
+    private double[] values = new double[0]; // 指标值
+    private int rawPoints; // 降采样前的点数
+
+    // 构造方法
+    public SalesSeries() {
+    }
+
+    public SalesSeries(String metric, String resolution, long[] times, double[] values, int rawPoints) {
+        this.metric = metric;
+        this.resolution = resolution;
+        this.times = times;
+        this.values = values;
+        this.rawPoints = rawPoints;
+    }
+
+    // getter和setter方法
+    public String getMetric() {
+        return metric;
+    }
+
+    public void setMetric(String metric) {
+        this.metric = metric;
+    }
+
+    public String getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(String resolution) {
+        this.resolution = resolution;
+    }
+
+    public long[] getTimes() {
+        return times;
+    }
+
+    public void setTimes(long[] times) {
+        this.times = times;
+    }
+
+    public double[] getValues() {
+        return values;
+    }
+
+    public void setValues(double[] values) {
+        this.values = values;
+    }
+
+    public int getRawPoints() {
+        return rawPoints;
+    }
+
+    public void setRawPoints(int rawPoints) {
+        this.rawPoints = rawPoints;
+    }
+}
@@ -0,0 +1,393 @@
+package com.ecommerce.search;
+
+import java.util.Arrays;
+
+/**
+ * 压缩位图
+ * 按整数高16位分块，每块根据元素数量选择有序char数组（稀疏，最多4096个）或1024个long的位图（稠密），
+ * 稀疏集合占用与元素数量成正比，稠密集合的交集与计数按64位字进行。
+ * 非线程安全，由调用方加锁。
+ */
+public final class CompactBitSet {
+    // 数组块与位图块的转换阈值
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[0];
+    private Object[] containers = new Object[0];
+    private int size;
+
+    /**
+     * 数组块：有序char数组
+     */
+    private static final class ArrayBlock {
+        char[] values;
+        int cardinality;
+
+        ArrayBlock(int capacity) {
+            values = new char[Math.max(capacity, 4)];
+        }
+    }
+
+    /**
+     * 位图块：1024个long
+     */
+    private static final class BitmapBlock {
+        final long[] words = new long[BITMAP_WORDS];
+        int cardinality;
+    }
+
+    public void add(int value) {
+        char high = (char) (value >>> 16);
+        char low = (char) value;
+        int i = indexOfKey(high);
+        if (i < 0) {
+            i = -i - 1;
+            ArrayBlock block = new ArrayBlock(4);
+            insertContainer(i, high, block);
+        }
+        containers[i] = addTo(containers[i], low);
+    }
+
+    public void remove(int value) {
+        int i = indexOfKey((char) (value >>> 16));
+        if (i < 0) {
+            return;
+        }
+        Object block = removeFrom(containers[i], (char) value);
+        if (cardinality(block) == 0) {
+            removeContainer(i);
+        } else {
+            containers[i] = block;
+        }
+    }
+
+    public boolean contains(int value) {
+        int i = indexOfKey((char) (value >>> 16));
+        return i >= 0 && contains(containers[i], (char) value);
+    }
+
+    /**
+     * 元素数量
+     */
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += cardinality(containers[i]);
+        }
+        return total;
+    }
+
+    /**
+     * 交集（返回新位图）
+     */
+    public CompactBitSet and(CompactBitSet other) {
+        CompactBitSet result = new CompactBitSet();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Object block = and(containers[i], other.containers[j]);
+                if (cardinality(block) > 0) {
+                    result.insertContainer(result.size, keys[i], block);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 交集的元素数量（不生成中间结果）
+     */
+    public int andCardinality(CompactBitSet other) {
+        int total = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                total += andCardinality(containers[i], other.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 并集（返回新位图）
+     */
+    public CompactBitSet or(CompactBitSet other) {
+        CompactBitSet result = new CompactBitSet();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j >= other.size || (i < size && keys[i] < other.keys[j])) {
+                result.insertContainer(result.size, keys[i], copy(containers[i]));
+                i++;
+            } else if (i >= size || keys[i] > other.keys[j]) {
+                result.insertContainer(result.size, other.keys[j], copy(other.containers[j]));
+                j++;
+            } else {
+                result.insertContainer(result.size, keys[i], or(containers[i], other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 升序返回全部元素
+     */
+    public int[] toArray() {
+        int[] result = new int[cardinality()];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int base = keys[i] << 16;
+            Object block = containers[i];
+            if (block instanceof ArrayBlock) {
+                ArrayBlock a = (ArrayBlock) block;
+                for (int k = 0; k < a.cardinality; k++) {
+                    result[n++] = base | a.values[k];
+                }
+            } else {
+                long[] words = ((BitmapBlock) block).words;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        result[n++] = base | (w << 6) | Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // ---------------- 块操作 ----------------
+
+    private int indexOfKey(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainer(int index, char key, Object block) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = block;
+        size++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        size--;
+        containers[size] = null;
+    }
+
+    private static int cardinality(Object block) {
+        return block instanceof ArrayBlock ? ((ArrayBlock) block).cardinality : ((BitmapBlock) block).cardinality;
+    }
+
+    private static boolean contains(Object block, char low) {
+        if (block instanceof ArrayBlock) {
+            ArrayBlock a = (ArrayBlock) block;
+            return Arrays.binarySearch(a.values, 0, a.cardinality, low) >= 0;
+        }
+        return (((BitmapBlock) block).words[low >>> 6] & (1L << low)) != 0;
+    }
+
+    private static Object addTo(Object block, char low) {
+        if (block instanceof BitmapBlock) {
+            BitmapBlock b = (BitmapBlock) block;
+            long before = b.words[low >>> 6];
+            b.words[low >>> 6] = before | (1L << low);
+            if (before != b.words[low >>> 6]) {
+                b.cardinality++;
+            }
+            return b;
+        }
+        ArrayBlock a = (ArrayBlock) block;
+        int pos = Arrays.binarySearch(a.values, 0, a.cardinality, low);
+        if (pos >= 0) {
+            return a;
+        }
+        if (a.cardinality >= ARRAY_MAX) {
+            BitmapBlock b = toBitmap(a);
+            return addTo(b, low);
+        }
+        pos = -pos - 1;
+        if (a.cardinality == a.values.length) {
+            a.values = Arrays.copyOf(a.values, Math.min(ARRAY_MAX, a.values.length * 2));
+        }
+        System.arraycopy(a.values, pos, a.values, pos + 1, a.cardinality - pos);
+        a.values[pos] = low;
+        a.cardinality++;
+        return a;
+    }
+
+    private static Object removeFrom(Object block, char low) {
+        if (block instanceof BitmapBlock) {
+            BitmapBlock b = (BitmapBlock) block;
+            long before = b.words[low >>> 6];
+            b.words[low >>> 6] = before & ~(1L << low);
+            if (before != b.words[low >>> 6]) {
+                b.cardinality--;
+            }
+            return b.cardinality <= ARRAY_MAX ? toArray(b) : b;
+        }
+        ArrayBlock a = (ArrayBlock) block;
+        int pos = Arrays.binarySearch(a.values, 0, a.cardinality, low);
+        if (pos >= 0) {
+            System.arraycopy(a.values, pos + 1, a.values, pos, a.cardinality - pos - 1);
+            a.cardinality--;
+        }
+        return a;
+    }
+
+    private static BitmapBlock toBitmap(ArrayBlock a) {
+        BitmapBlock b = new BitmapBlock();
+        for (int k = 0; k < a.cardinality; k++) {
+            char v = a.values[k];
+            b.words[v >>> 6] |= 1L << v;
+        }
+        b.cardinality = a.cardinality;
+        return b;
+    }
+
+    private static ArrayBlock toArray(BitmapBlock b) {
+        ArrayBlock a = new ArrayBlock(b.cardinality);
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            long word = b.words[w];
+            while (word != 0) {
+                a.values[a.cardinality++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return a;
+    }
+
+    private static Object copy(Object block) {
+        if (block instanceof ArrayBlock) {
+            ArrayBlock a = (ArrayBlock) block;
+            ArrayBlock c = new ArrayBlock(a.cardinality);
+            System.arraycopy(a.values, 0, c.values, 0, a.cardinality);
+            c.cardinality = a.cardinality;
+            return c;
+        }
+        BitmapBlock b = (BitmapBlock) block;
+        BitmapBlock c = new BitmapBlock();
+        System.arraycopy(b.words, 0, c.words, 0, BITMAP_WORDS);
+        c.cardinality = b.cardinality;
+        return c;
+    }
+
+    private static Object and(Object x, Object y) {
+        if (x instanceof ArrayBlock && y instanceof ArrayBlock) {
+            ArrayBlock a = (ArrayBlock) x;
+            ArrayBlock b = (ArrayBlock) y;
+            ArrayBlock r = new ArrayBlock(Math.min(a.cardinality, b.cardinality));
+            int i = 0;
+            int j = 0;
+            while (i < a.cardinality && j < b.cardinality) {
+                if (a.values[i] < b.values[j]) {
+                    i++;
+                } else if (a.values[i] > b.values[j]) {
+                    j++;
+                } else {
+                    r.values[r.cardinality++] = a.values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return r;
+        }
+        if (x instanceof ArrayBlock || y instanceof ArrayBlock) {
+            ArrayBlock a = (ArrayBlock) (x instanceof ArrayBlock ? x : y);
+            BitmapBlock b = (BitmapBlock) (x instanceof ArrayBlock ? y : x);
+            ArrayBlock r = new ArrayBlock(a.cardinality);
+            for (int k = 0; k < a.cardinality; k++) {
+                char v = a.values[k];
+                if ((b.words[v >>> 6] & (1L << v)) != 0) {
+                    r.values[r.cardinality++] = v;
+                }
+            }
+            return r;
+        }
+        BitmapBlock a = (BitmapBlock) x;
+        BitmapBlock b = (BitmapBlock) y;
+        BitmapBlock r = new BitmapBlock();
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            r.words[w] = a.words[w] & b.words[w];
+            r.cardinality += Long.bitCount(r.words[w]);
+        }
+        return r.cardinality <= ARRAY_MAX ? toArray(r) : r;
+    }
+
+    private static int andCardinality(Object x, Object y) {
+        if (x instanceof BitmapBlock && y instanceof BitmapBlock) {
+            long[] a = ((BitmapBlock) x).words;
+            long[] b = ((BitmapBlock) y).words;
+            int count = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                count += Long.bitCount(a[w] & b[w]);
+            }
+            return count;
+        }
+        return cardinality(and(x, y));
+    }
+
+    private static Object or(Object x, Object y) {
+        if (x instanceof ArrayBlock && y instanceof ArrayBlock) {
+            ArrayBlock a = (ArrayBlock) x;
+            ArrayBlock b = (ArrayBlock) y;
+            if (a.cardinality + b.cardinality <= ARRAY_MAX) {
+                ArrayBlock r = new ArrayBlock(a.cardinality + b.cardinality);
+                int i = 0;
+                int j = 0;
+                while (i < a.cardinality || j < b.cardinality) {
+                    if (j >= b.cardinality || (i < a.cardinality && a.values[i] < b.values[j])) {
+                        r.values[r.cardinality++] = a.values[i++];
+                    } else if (i >= a.cardinality || a.values[i] > b.values[j]) {
+                        r.values[r.cardinality++] = b.values[j++];
+                    } else {
+                        r.values[r.cardinality++] = a.values[i];
+                        i++;
+                        j++;
+                    }
+                }
+                return r;
+            }
+        }
+        BitmapBlock r = x instanceof BitmapBlock ? (BitmapBlock) copy(x) : toBitmap((ArrayBlock) x);
+        if (y instanceof BitmapBlock) {
+            long[] words = ((BitmapBlock) y).words;
+            r.cardinality = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                r.words[w] |= words[w];
+                r.cardinality += Long.bitCount(r.words[w]);
+            }
+        } else {
+            ArrayBlock a = (ArrayBlock) y;
+            for (int k = 0; k < a.cardinality; k++) {
+                addTo(r, a.values[k]);
+            }
+        }
+        return r.cardinality <= ARRAY_MAX ? toArray(r) : r;
+    }
+}
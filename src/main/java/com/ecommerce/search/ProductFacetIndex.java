@@ -0,0 +1,363 @@
+package com.ecommerce.search;
+
+import com.ecommerce.dao.ProductDao;
+import com.ecommerce.dao.impl.ProductDaoImpl;
+import com.ecommerce.pojo.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品分面索引
+ * 以商品ID为位序号，为每个分类、每个价格区间和有货状态各维护一个压缩位图（只包含上架商品）。
+ * 筛选即位图求交，分面计数即交集的元素数量：某一分面的计数按"除该分面外的其余筛选条件"计算，
+ * 勾选该分面下的其他取值时结果数与计数一致。
+ * 商品新增、修改、删除以及库存变化时增量更新。
+ */
+public class ProductFacetIndex {
+    private static final ProductFacetIndex INSTANCE = new ProductFacetIndex();
+
+    // 价格区间下界，最后一个区间无上界
+    private static final BigDecimal[] PRICE_BOUNDS = {
+            new BigDecimal("0"), new BigDecimal("50"), new BigDecimal("100"),
+            new BigDecimal("500"), new BigDecimal("1000"), new BigDecimal("5000")
+    };
+
+    /**
+     * 分面查询条件
+     */
+    public static class Query {
+        private Collection<Integer> categoryIds; // 分类ID（已包含子分类），null表示不限
+        private Collection<Integer> priceBands; // 价格区间序号，null或空表示不限
+        private boolean inStockOnly; // 只看有货
+        private int offset;
+        private int limit = 12;
+
+        public Query categoryIds(Collection<Integer> categoryIds) {
+            this.categoryIds = categoryIds;
+            return this;
+        }
+
+        public Query priceBands(Collection<Integer> priceBands) {
+            this.priceBands = priceBands;
+            return this;
+        }
+
+        public Query inStockOnly(boolean inStockOnly) {
+            this.inStockOnly = inStockOnly;
+            return this;
+        }
+
+        public Query page(int offset, int limit) {
+            this.offset = offset;
+            this.limit = limit;
+            return this;
+        }
+    }
+
+    /**
+     * 分面查询结果
+     */
+    public static class Result {
+        private int total; // 符合条件的商品总数
+        private List<Integer> productIds = new ArrayList<>(); // 当前页商品ID（ID倒序，即新商品在前）
+        private Map<Integer, Integer> categoryCounts = new LinkedHashMap<>(); // 分类ID到商品数（仅该分类本身，不含子分类）
+        private int[] priceBandCounts = new int[PRICE_BOUNDS.length]; // 各价格区间商品数
+        private int inStockCount; // 有货商品数
+
+        public int getTotal() {
+            return total;
+        }
+
+        public List<Integer> getProductIds() {
+            return productIds;
+        }
+
+        public Map<Integer, Integer> getCategoryCounts() {
+            return categoryCounts;
+        }
+
+        public int[] getPriceBandCounts() {
+            return priceBandCounts;
+        }
+
+        public int getInStockCount() {
+            return inStockCount;
+        }
+    }
+
+    /**
+     * 单个商品当前所在的分面，更新时用于从旧位图中移除
+     */
+    private static final class DocFacets {
+        final int categoryId;
+        final int priceBand;
+        final boolean inStock;
+
+        DocFacets(int categoryId, int priceBand, boolean inStock) {
+            this.categoryId = categoryId;
+            this.priceBand = priceBand;
+            this.inStock = inStock;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ProductDao productDao;
+    private CompactBitSet all = new CompactBitSet();
+    private Map<Integer, CompactBitSet> byCategory = new HashMap<>();
+    private CompactBitSet[] byPriceBand = newPriceBands();
+    private CompactBitSet inStock = new CompactBitSet();
+    private Map<Integer, DocFacets> docs = new HashMap<>();
+    private volatile boolean ready;
+
+    ProductFacetIndex() {
+        this(new ProductDaoImpl());
+    }
+
+    ProductFacetIndex(ProductDao productDao) {
+        this.productDao = productDao;
+    }
+
+    public static ProductFacetIndex getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 价格区间的显示名称
+     */
+    public static String[] getPriceBandLabels() {
+        String[] labels = new String[PRICE_BOUNDS.length];
+        for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+            labels[i] = i + 1 < PRICE_BOUNDS.length
+                    ? PRICE_BOUNDS[i].toPlainString() + "-" + PRICE_BOUNDS[i + 1].toPlainString()
+                    : PRICE_BOUNDS[i].toPlainString() + "以上";
+        }
+        return labels;
+    }
+
+    /**
+     * 从product表全量重建
+     * 构建期间持有写锁（只在启动时执行，构建完成前查询走SQL），商品变更等待构建完成后再应用；
+     * 读取商品失败时抛出异常，保留原有数据且不标记就绪
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            long start = System.currentTimeMillis();
+            List<Product> products = ProductSearchIndex.loadAllProducts(productDao);
+            all = new CompactBitSet();
+            byCategory = new HashMap<>();
+            byPriceBand = newPriceBands();
+            inStock = new CompactBitSet();
+            docs = new HashMap<>();
+            for (Product product : products) {
+                put(product);
+            }
+            ready = true;
+            System.out.println("商品分面索引构建完成：" + docs.size() + "个商品，" + byCategory.size()
+                    + "个分类，耗时" + (System.currentTimeMillis() - start) + "ms");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 商品新增或修改后更新（下架商品会被移除）
+     *
+     * @param product 商品对象
+     */
+    public void onProductSaved(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            put(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 商品删除后更新
+     *
+     * @param productId 商品ID
+     */
+    public void onProductDeleted(Integer productId) {
+        if (productId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            remove(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 库存变化后更新有货状态
+     *
+     * @param stocks 商品ID到最新库存的映射
+     */
+    public void onStockChanged(Map<Integer, Integer> stocks) {
+        if (stocks == null || stocks.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Integer, Integer> entry : stocks.entrySet()) {
+                DocFacets facets = docs.get(entry.getKey());
+                if (facets == null || entry.getValue() == null) {
+                    continue;
+                }
+                boolean available = entry.getValue() > 0;
+                if (available != facets.inStock) {
+                    if (available) {
+                        inStock.add(entry.getKey());
+                    } else {
+                        inStock.remove(entry.getKey());
+                    }
+                    docs.put(entry.getKey(), new DocFacets(facets.categoryId, facets.priceBand, available));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 分面查询
+     *
+     * @param query 查询条件
+     * @return 查询结果，索引未就绪时返回null
+     */
+    public Result query(Query query) {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            CompactBitSet categoryFilter = null;
+            if (query.categoryIds != null) {
+                categoryFilter = new CompactBitSet();
+                for (Integer categoryId : query.categoryIds) {
+                    CompactBitSet bits = byCategory.get(categoryId);
+                    if (bits != null) {
+                        categoryFilter = categoryFilter.or(bits);
+                    }
+                }
+            }
+            CompactBitSet priceFilter = null;
+            if (query.priceBands != null && !query.priceBands.isEmpty()) {
+                priceFilter = new CompactBitSet();
+                for (Integer band : query.priceBands) {
+                    if (band != null && band >= 0 && band < byPriceBand.length) {
+                        priceFilter = priceFilter.or(byPriceBand[band]);
+                    }
+                }
+            }
+            CompactBitSet stockFilter = query.inStockOnly ? inStock : null;
+
+            Result result = new Result();
+            CompactBitSet matched = intersect(categoryFilter, priceFilter, stockFilter);
+            result.total = matched.cardinality();
+            int[] ids = matched.toArray();
+            for (int i = ids.length - 1 - Math.max(0, query.offset); i >= 0 && result.productIds.size() < query.limit; i--) {
+                result.productIds.add(ids[i]);
+            }
+
+            // 各分面计数不受本分面自身的筛选条件影响
+            CompactBitSet withoutCategory = intersect(null, priceFilter, stockFilter);
+            for (Map.Entry<Integer, CompactBitSet> entry : byCategory.entrySet()) {
+                int count = withoutCategory.andCardinality(entry.getValue());
+                if (count > 0) {
+                    result.categoryCounts.put(entry.getKey(), count);
+                }
+            }
+            CompactBitSet withoutPrice = intersect(categoryFilter, null, stockFilter);
+            for (int i = 0; i < byPriceBand.length; i++) {
+                result.priceBandCounts[i] = withoutPrice.andCardinality(byPriceBand[i]);
+            }
+            result.inStockCount = intersect(categoryFilter, priceFilter, null).andCardinality(inStock);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private CompactBitSet intersect(CompactBitSet... filters) {
+        CompactBitSet result = all;
+        for (CompactBitSet filter : filters) {
+            if (filter != null) {
+                result = result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    private void put(Product product) {
+        remove(product.getId());
+        if (!Integer.valueOf(1).equals(product.getStatus())) {
+            return;
+        }
+        int id = product.getId();
+        int categoryId = product.getCategoryId() != null ? product.getCategoryId() : 0;
+        int band = priceBandOf(product.getPrice());
+        boolean available = product.getStock() != null && product.getStock() > 0;
+        all.add(id);
+        byCategory.computeIfAbsent(categoryId, k -> new CompactBitSet()).add(id);
+        byPriceBand[band].add(id);
+        if (available) {
+            inStock.add(id);
+        }
+        docs.put(id, new DocFacets(categoryId, band, available));
+    }
+
+    private void remove(int id) {
+        DocFacets facets = docs.remove(id);
+        if (facets == null) {
+            return;
+        }
+        all.remove(id);
+        CompactBitSet category = byCategory.get(facets.categoryId);
+        if (category != null) {
+            category.remove(id);
+            if (category.cardinality() == 0) {
+                byCategory.remove(facets.categoryId);
+            }
+        }
+        byPriceBand[facets.priceBand].remove(id);
+        inStock.remove(id);
+    }
+
+    private static int priceBandOf(BigDecimal price) {
+        if (price == null) {
+            return 0;
+        }
+        for (int i = PRICE_BOUNDS.length - 1; i > 0; i--) {
+            if (price.compareTo(PRICE_BOUNDS[i]) >= 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static CompactBitSet[] newPriceBands() {
+        CompactBitSet[] bands = new CompactBitSet[PRICE_BOUNDS.length];
+        for (int i = 0; i < bands.length; i++) {
+            bands[i] = new CompactBitSet();
+        }
+        return bands;
+    }
+}
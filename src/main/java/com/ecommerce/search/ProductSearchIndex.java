@@ -0,0 +1,356 @@
+package com.ecommerce.search;
+
+import com.ecommerce.dao.ProductDao;
+import com.ecommerce.dao.impl.ProductDaoImpl;
+import com.ecommerce.pojo.PageResult;
+import com.ecommerce.pojo.Product;
+import com.ecommerce.utils.DataAccessException;
+import com.ecommerce.utils.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品搜索倒排索引
+ * 启动时从product表全量构建，商品新增、修改、删除时增量更新，取代name LIKE '%keyword%'的全表扫描。
+ * 倒排列表使用按商品ID升序的int数组存储，查询时以最短列表驱动求交集（所有查询词都需命中），
+ * 命中结果按BM25打分排序。索引只包含上架商品的名称。
+ */
+public class ProductSearchIndex {
+    private static final ProductSearchIndex INSTANCE = new ProductSearchIndex();
+
+    // BM25参数
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * 倒排列表：商品ID（升序）与对应词频
+     */
+    static final class Posting {
+        int[] docs = new int[4];
+        int[] tfs = new int[4];
+        int size;
+
+        int indexOf(int doc) {
+            return Arrays.binarySearch(docs, 0, size, doc);
+        }
+
+        void put(int doc, int tf) {
+            int pos = indexOf(doc);
+            if (pos >= 0) {
+                tfs[pos] = tf;
+                return;
+            }
+            pos = -pos - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            System.arraycopy(docs, pos, docs, pos + 1, size - pos);
+            System.arraycopy(tfs, pos, tfs, pos + 1, size - pos);
+            docs[pos] = doc;
+            tfs[pos] = tf;
+            size++;
+        }
+
+        void remove(int doc) {
+            int pos = indexOf(doc);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(docs, pos + 1, docs, pos, size - pos - 1);
+            System.arraycopy(tfs, pos + 1, tfs, pos, size - pos - 1);
+            size--;
+        }
+    }
+
+    /**
+     * 单个商品的索引信息
+     */
+    private static final class DocEntry {
+        final String[] terms; // 去重后的词项，删除时用于定位倒排列表
+        final int length; // 词项总数（BM25文档长度）
+
+        DocEntry(String[] terms, int length) {
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+
+    /**
+     * 索引数据，重建时整体替换
+     */
+    private static final class Index {
+        final Map<String, Posting> postings = new HashMap<>();
+        final Map<Integer, DocEntry> docs = new HashMap<>();
+        long totalLength;
+
+        void add(int docId, String text) {
+            remove(docId);
+            List<String> tokens = SearchTokenizer.tokenizeForIndex(text);
+            if (tokens.isEmpty()) {
+                return;
+            }
+            Map<String, Integer> termFreqs = new HashMap<>();
+            for (String token : tokens) {
+                termFreqs.merge(token, 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> entry : termFreqs.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), k -> new Posting()).put(docId, entry.getValue());
+            }
+            docs.put(docId, new DocEntry(termFreqs.keySet().toArray(new String[0]), tokens.size()));
+            totalLength += tokens.size();
+        }
+
+        void remove(int docId) {
+            DocEntry entry = docs.remove(docId);
+            if (entry == null) {
+                return;
+            }
+            for (String term : entry.terms) {
+                Posting posting = postings.get(term);
+                if (posting != null) {
+                    posting.remove(docId);
+                    if (posting.size == 0) {
+                        postings.remove(term);
+                    }
+                }
+            }
+            totalLength -= entry.length;
+        }
+
+        void apply(Integer productId, Product product) {
+            if (isSearchable(product)) {
+                add(productId, product.getName());
+            } else {
+                remove(productId);
+            }
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ProductDao productDao;
+    private Index index = new Index();
+    private volatile boolean ready;
+    private boolean building;
+    // 重建期间发生的商品变更（null表示删除），重建完成后在新索引上重放
+    private final Map<Integer, Product> pendingChanges = new LinkedHashMap<>();
+
+    ProductSearchIndex() {
+        this(new ProductDaoImpl());
+    }
+
+    ProductSearchIndex(ProductDao productDao) {
+        this.productDao = productDao;
+    }
+
+    public static ProductSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 索引是否已构建完成
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 已索引的商品数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 从product表全量重建索引，重建期间旧索引继续提供查询；读取商品失败时抛出异常，索引保持未就绪
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            building = true;
+            pendingChanges.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Index fresh = new Index();
+        try {
+            long start = System.currentTimeMillis();
+            for (Product product : loadAllProducts(productDao)) {
+                fresh.apply(product.getId(), product);
+            }
+            lock.writeLock().lock();
+            try {
+                for (Map.Entry<Integer, Product> change : pendingChanges.entrySet()) {
+                    fresh.apply(change.getKey(), change.getValue());
+                }
+                index = fresh;
+                ready = true;
+            } finally {
+                pendingChanges.clear();
+                building = false;
+                lock.writeLock().unlock();
+            }
+            System.out.println("商品搜索索引构建完成：" + fresh.docs.size() + "个商品，" + fresh.postings.size()
+                    + "个词项，耗时" + (System.currentTimeMillis() - start) + "ms");
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges.clear();
+                building = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 在只读事务中读取全部商品
+     * 事务外DAO只打印SQL异常并返回空列表，全量构建必须区分“没有商品”与“读取失败”，否则会发布空索引
+     *
+     * @param productDao 商品DAO
+     * @return 全部商品
+     * @throws DataAccessException 读取失败
+     */
+    static List<Product> loadAllProducts(ProductDao productDao) {
+        try {
+            return new TransactionTemplate().readOnly(true).execute(status -> productDao.findAll());
+        } catch (SQLException e) {
+            throw new DataAccessException(e);
+        }
+    }
+
+    /**
+     * 商品新增或修改后更新索引（下架商品会从索引中移除）
+     *
+     * @param product 商品对象
+     */
+    public void onProductSaved(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        applyChange(product.getId(), product);
+    }
+
+    /**
+     * 商品删除后更新索引
+     *
+     * @param productId 商品ID
+     */
+    public void onProductDeleted(Integer productId) {
+        if (productId == null) {
+            return;
+        }
+        applyChange(productId, null);
+    }
+
+    private void applyChange(Integer productId, Product product) {
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                pendingChanges.remove(productId);
+                pendingChanges.put(productId, product);
+            }
+            index.apply(productId, product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 搜索商品
+     *
+     * @param query 查询文本
+     * @param offset 偏移量
+     * @param limit 返回条数
+     * @return 当前页商品ID（按相关度排序）与命中总数，查询没有有效词项时为空结果；索引未就绪时返回null
+     */
+    public PageResult<Integer> search(String query, int offset, int limit) {
+        if (!ready) {
+            return null;
+        }
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(SearchTokenizer.tokenizeForQuery(query)));
+        if (terms.isEmpty()) {
+            return new PageResult<>(new ArrayList<>(), 0, true);
+        }
+
+        lock.readLock().lock();
+        try {
+            Index idx = index;
+            int docCount = idx.docs.size();
+            Posting[] lists = new Posting[terms.size()];
+            for (int i = 0; i < terms.size(); i++) {
+                lists[i] = idx.postings.get(terms.get(i));
+                if (lists[i] == null) {
+                    return new PageResult<>(new ArrayList<>(), 0, true);
+                }
+            }
+            // 以最短的倒排列表驱动求交集，其余列表二分查找
+            Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+            double avgLength = (double) idx.totalLength / docCount;
+            double[] idf = new double[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                int df = lists[i].size;
+                idf[i] = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+            }
+
+            Posting driver = lists[0];
+            int[] hitDocs = new int[driver.size];
+            double[] hitScores = new double[driver.size];
+            int hits = 0;
+            outer:
+            for (int k = 0; k < driver.size; k++) {
+                int doc = driver.docs[k];
+                double norm = K1 * (1 - B + B * idx.docs.get(doc).length / avgLength);
+                double score = idf[0] * driver.tfs[k] * (K1 + 1) / (driver.tfs[k] + norm);
+                for (int i = 1; i < lists.length; i++) {
+                    int pos = lists[i].indexOf(doc);
+                    if (pos < 0) {
+                        continue outer;
+                    }
+                    int tf = lists[i].tfs[pos];
+                    score += idf[i] * tf * (K1 + 1) / (tf + norm);
+                }
+                hitDocs[hits] = doc;
+                hitScores[hits] = score;
+                hits++;
+            }
+
+            // 按分数降序排列，同分时新商品（ID较大）优先
+            Integer[] order = new Integer[hits];
+            for (int i = 0; i < hits; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> {
+                int c = Double.compare(hitScores[b], hitScores[a]);
+                return c != 0 ? c : Integer.compare(hitDocs[b], hitDocs[a]);
+            });
+            List<Integer> ids = new ArrayList<>();
+            for (int i = Math.max(0, offset); i < hits && ids.size() < limit; i++) {
+                ids.add(hitDocs[order[i]]);
+            }
+            return new PageResult<>(ids, hits, true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean isSearchable(Product product) {
+        return product != null && Integer.valueOf(1).equals(product.getStatus()) && product.getName() != null;
+    }
+}
@@ -0,0 +1,537 @@
+package com.ecommerce.search;
+
+import com.ecommerce.dao.OrderDao;
+import com.ecommerce.dao.ProductDao;
+import com.ecommerce.dao.impl.OrderDaoImpl;
+import com.ecommerce.dao.impl.ProductDaoImpl;
+import com.ecommerce.pojo.Product;
+import com.ecommerce.utils.DataAccessException;
+import com.ecommerce.utils.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品名称输入联想
+ * 使用压缩前缀树（radix tree）保存商品名称，除完整名称外，名称中每个单词的开头和每个汉字处也作为入口，
+ * 输入名称中间的词也能联想。每个节点缓存其子树内销量最高的TOP_K个商品，
+ * 查询只需沿前缀走到对应节点直接返回缓存结果，耗时与商品数量无关。
+ * 商品新增、改名、下架以及下单、取消订单时增量更新。
+ */
+public class ProductSuggester {
+    private static final ProductSuggester INSTANCE = new ProductSuggester();
+
+    // 每个节点缓存的联想结果数量
+    public static final int TOP_K = 10;
+    // 单个商品最多插入的入口数量
+    private static final int MAX_KEYS_PER_PRODUCT = 32;
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * 前缀树节点，label为从父节点到本节点的边上的字符串
+     */
+    private static final class Node {
+        String label;
+        Map<Character, Node> children;
+        // 以本节点为完整入口的商品ID
+        int[] terminals = EMPTY;
+        // 子树内排名前TOP_K的商品ID
+        int[] top = EMPTY;
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * 已收录商品
+     */
+    private static final class Entry {
+        final String name;
+        final String[] keys;
+
+        Entry(String name, String[] keys) {
+            this.name = name;
+            this.keys = keys;
+        }
+    }
+
+    /**
+     * 前缀树数据，重建时整体替换
+     */
+    private static final class Trie {
+        final Node root = new Node("");
+        final Map<Integer, Entry> entries = new HashMap<>();
+        final Map<Integer, Long> sales = new HashMap<>();
+
+        long score(int productId) {
+            Long s = sales.get(productId);
+            return s != null ? s : 0L;
+        }
+
+        void put(int productId, String name) {
+            remove(productId);
+            String[] keys = keysOf(name);
+            if (keys.length == 0) {
+                return;
+            }
+            entries.put(productId, new Entry(name, keys));
+            for (String key : keys) {
+                List<Node> path = new ArrayList<>();
+                Node node = insert(key, path);
+                node.terminals = append(node.terminals, productId);
+                refresh(path);
+            }
+        }
+
+        void remove(int productId) {
+            Entry entry = entries.remove(productId);
+            if (entry == null) {
+                return;
+            }
+            for (String key : entry.keys) {
+                List<Node> path = find(key);
+                if (path == null) {
+                    continue;
+                }
+                Node node = path.get(path.size() - 1);
+                node.terminals = without(node.terminals, productId);
+                prune(path);
+                refresh(path);
+            }
+        }
+
+        void addSales(int productId, long delta) {
+            long value = Math.max(0L, score(productId) + delta);
+            sales.put(productId, value);
+            Entry entry = entries.get(productId);
+            if (entry == null) {
+                return;
+            }
+            // 排名变化只影响该商品各入口所在的路径
+            for (String key : entry.keys) {
+                List<Node> path = find(key);
+                if (path != null) {
+                    refresh(path);
+                }
+            }
+        }
+
+        /**
+         * 插入入口，必要时拆分边，返回入口对应的节点，path记录从根到该节点的路径
+         */
+        private Node insert(String key, List<Node> path) {
+            Node node = root;
+            path.add(node);
+            int i = 0;
+            while (i < key.length()) {
+                if (node.children == null) {
+                    node.children = new HashMap<>(4);
+                }
+                Node child = node.children.get(key.charAt(i));
+                if (child == null) {
+                    child = new Node(key.substring(i));
+                    node.children.put(key.charAt(i), child);
+                    path.add(child);
+                    return child;
+                }
+                int common = commonPrefix(child.label, key, i);
+                if (common < child.label.length()) {
+                    // 拆分边：中间节点继承原节点的缓存结果，随后由refresh重新计算
+                    Node middle = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    middle.children = new HashMap<>(4);
+                    middle.children.put(child.label.charAt(0), child);
+                    middle.top = child.top;
+                    node.children.put(middle.label.charAt(0), middle);
+                    child = middle;
+                }
+                node = child;
+                path.add(node);
+                i += common;
+            }
+            return node;
+        }
+
+        /**
+         * 查找入口对应节点的路径，不存在时返回null
+         */
+        private List<Node> find(String key) {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+            int i = 0;
+            while (i < key.length()) {
+                Node child = node.children != null ? node.children.get(key.charAt(i)) : null;
+                if (child == null || !key.startsWith(child.label, i)) {
+                    return null;
+                }
+                node = child;
+                path.add(node);
+                i += child.label.length();
+            }
+            return path;
+        }
+
+        /**
+         * 删除入口后清理空节点，并合并只剩一个子节点的中间节点以保持压缩
+         */
+        private void prune(List<Node> path) {
+            for (int i = path.size() - 1; i > 0; i--) {
+                Node node = path.get(i);
+                Node parent = path.get(i - 1);
+                boolean noChildren = node.children == null || node.children.isEmpty();
+                if (node.terminals.length == 0 && noChildren) {
+                    parent.children.remove(node.label.charAt(0));
+                    path.remove(i);
+                } else if (node.terminals.length == 0 && node.children.size() == 1) {
+                    Node only = node.children.values().iterator().next();
+                    only.label = node.label + only.label;
+                    parent.children.put(only.label.charAt(0), only);
+                    path.set(i, only);
+                    // 合并后路径末端之后的节点不再需要重新计算
+                    while (path.size() > i + 1) {
+                        path.remove(path.size() - 1);
+                    }
+                } else {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * 自底向上重新计算路径上各节点的TOP_K：本节点入口与各子节点TOP_K合并去重后取前TOP_K
+         * 根节点不计算：空前缀不做联想，而根节点的子节点数量与入口首字符种类相当（中文名称可达数千）
+         */
+        private void refresh(List<Node> path) {
+            for (int i = path.size() - 1; i > 0; i--) {
+                Node node = path.get(i);
+                List<Integer> candidates = new ArrayList<>();
+                Set<Integer> seen = new HashSet<>();
+                for (int id : node.terminals) {
+                    if (seen.add(id)) {
+                        candidates.add(id);
+                    }
+                }
+                if (node.children != null) {
+                    for (Node child : node.children.values()) {
+                        for (int id : child.top) {
+                            if (seen.add(id)) {
+                                candidates.add(id);
+                            }
+                        }
+                    }
+                }
+                candidates.sort((a, b) -> {
+                    int c = Long.compare(score(b), score(a));
+                    return c != 0 ? c : Integer.compare(b, a);
+                });
+                int size = Math.min(TOP_K, candidates.size());
+                int[] top = new int[size];
+                for (int k = 0; k < size; k++) {
+                    top[k] = candidates.get(k);
+                }
+                node.top = top;
+            }
+        }
+
+        int[] lookup(String prefix) {
+            Node node = root;
+            int i = 0;
+            while (i < prefix.length()) {
+                Node child = node.children != null ? node.children.get(prefix.charAt(i)) : null;
+                if (child == null) {
+                    return EMPTY;
+                }
+                int common = commonPrefix(child.label, prefix, i);
+                if (i + common == prefix.length()) {
+                    // 前缀在这条边上结束
+                    return child.top;
+                }
+                if (common < child.label.length()) {
+                    return EMPTY;
+                }
+                node = child;
+                i += common;
+            }
+            return node.top;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ProductDao productDao;
+    private final OrderDao orderDao;
+    private Trie trie = new Trie();
+    private volatile boolean ready;
+    private boolean building;
+    // 重建期间发生的商品变更（null表示删除）与销量变化，重建完成后在新前缀树上重放
+    private final Map<Integer, Product> pendingChanges = new LinkedHashMap<>();
+    private final Map<Integer, Long> pendingSales = new LinkedHashMap<>();
+
+    ProductSuggester() {
+        this(new ProductDaoImpl(), new OrderDaoImpl());
+    }
+
+    ProductSuggester(ProductDao productDao, OrderDao orderDao) {
+        this.productDao = productDao;
+        this.orderDao = orderDao;
+    }
+
+    public static ProductSuggester getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 从product表与订单销量全量重建，重建期间旧数据继续提供查询；读取失败时抛出异常，保持未就绪
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            building = true;
+            pendingChanges.clear();
+            pendingSales.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Trie fresh = new Trie();
+        try {
+            long start = System.currentTimeMillis();
+            // 销量与商品在同一只读事务中读取，SQL错误以异常抛出而不是返回空结果
+            Map<Integer, Integer> sold = new HashMap<>();
+            List<Product> products;
+            try {
+                products = new TransactionTemplate().readOnly(true).execute(status -> {
+                    sold.clear();
+                    sold.putAll(orderDao.sumQuantityByProduct());
+                    return productDao.findAll();
+                });
+            } catch (SQLException e) {
+                throw new DataAccessException(e);
+            }
+            for (Map.Entry<Integer, Integer> entry : sold.entrySet()) {
+                fresh.sales.put(entry.getKey(), entry.getValue().longValue());
+            }
+            for (Product product : products) {
+                apply(fresh, product.getId(), product);
+            }
+            lock.writeLock().lock();
+            try {
+                for (Map.Entry<Integer, Long> entry : pendingSales.entrySet()) {
+                    fresh.addSales(entry.getKey(), entry.getValue());
+                }
+                for (Map.Entry<Integer, Product> change : pendingChanges.entrySet()) {
+                    apply(fresh, change.getKey(), change.getValue());
+                }
+                trie = fresh;
+                ready = true;
+            } finally {
+                pendingChanges.clear();
+                pendingSales.clear();
+                building = false;
+                lock.writeLock().unlock();
+            }
+            System.out.println("商品联想前缀树构建完成：" + fresh.entries.size() + "个商品，耗时"
+                    + (System.currentTimeMillis() - start) + "ms");
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges.clear();
+                pendingSales.clear();
+                building = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 商品新增或修改后更新（下架商品会被移除）
+     *
+     * @param product 商品对象
+     */
+    public void onProductSaved(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                pendingChanges.remove(product.getId());
+                pendingChanges.put(product.getId(), product);
+            }
+            apply(trie, product.getId(), product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 商品删除后更新
+     *
+     * @param productId 商品ID
+     */
+    public void onProductDeleted(Integer productId) {
+        if (productId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                pendingChanges.remove(productId);
+                pendingChanges.put(productId, null);
+            }
+            trie.remove(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 商品销量变化（下单为正，取消订单为负）后调整排名
+     *
+     * @param quantities 商品ID到销量变化的映射
+     */
+    public void onSalesChanged(Map<Integer, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                if (building) {
+                    pendingSales.merge(entry.getKey(), entry.getValue().longValue(), Long::sum);
+                }
+                trie.addSales(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询联想结果
+     *
+     * @param prefix 用户输入
+     * @param limit 返回数量，最多TOP_K
+     * @return 商品ID到商品名称的映射（按销量降序）；未就绪时返回null
+     */
+    public Map<Integer, String> suggest(String prefix, int limit) {
+        if (!ready) {
+            return null;
+        }
+        Map<Integer, String> result = new LinkedHashMap<>();
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return result;
+        }
+        lock.readLock().lock();
+        try {
+            int[] top = trie.lookup(key);
+            for (int i = 0; i < top.length && result.size() < limit; i++) {
+                Entry entry = trie.entries.get(top[i]);
+                if (entry != null) {
+                    result.put(top[i], entry.name);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private static void apply(Trie target, Integer productId, Product product) {
+        if (product != null && Integer.valueOf(1).equals(product.getStatus()) && product.getName() != null) {
+            target.put(productId, product.getName());
+        } else {
+            target.remove(productId);
+        }
+    }
+
+    /**
+     * 归一化：NFKC（全角转半角）、转小写、合并空白
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String s = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        return s.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * 商品名称的入口：完整名称、每个单词开头、每个汉字处开始的后缀
+     */
+    static String[] keysOf(String name) {
+        String s = normalize(name);
+        Set<String> keys = new LinkedHashSet<>();
+        for (int i = 0; i < s.length() && keys.size() < MAX_KEYS_PER_PRODUCT; i++) {
+            char c = s.charAt(i);
+            if (c == ' ') {
+                continue;
+            }
+            boolean wordStart = i == 0 || !Character.isLetterOrDigit(s.charAt(i - 1))
+                    || SearchTokenizer.isCjk(s.charAt(i - 1));
+            if (wordStart || SearchTokenizer.isCjk(c)) {
+                keys.add(s.substring(i));
+            }
+        }
+        return keys.toArray(new String[0]);
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int[] append(int[] ids, int id) {
+        for (int existing : ids) {
+            if (existing == id) {
+                return ids;
+            }
+        }
+        int[] result = Arrays.copyOf(ids, ids.length + 1);
+        result[ids.length] = id;
+        return result;
+    }
+
+    private static int[] without(int[] ids, int id) {
+        int count = 0;
+        for (int existing : ids) {
+            if (existing != id) {
+                count++;
+            }
+        }
+        if (count == ids.length) {
+            return ids;
+        }
+        int[] result = new int[count];
+        int k = 0;
+        for (int existing : ids) {
+            if (existing != id) {
+                result[k++] = existing;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,63 @@
+package com.ecommerce.search;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * 启动时在后台线程构建商品搜索索引、联想前缀树与分面索引，构建完成前搜索走SQL查询；
+ * 构建失败（如数据库暂时不可用）时索引保持未就绪，按递增间隔重试直到成功
+ */
+public class SearchIndexListener implements ServletContextListener {
+    // 首次重试间隔（毫秒），每次失败翻倍
+    private static final long RETRY_INITIAL_MILLIS = 5 * 1000L;
+    // 最长重试间隔（毫秒）
+    private static final long RETRY_MAX_MILLIS = 5 * 60 * 1000L;
+
+    private volatile Thread builder;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        builder = new Thread(() -> {
+            if (!buildWithRetry(() -> ProductSearchIndex.getInstance().rebuild())) {
+                return;
+            }
+            if (!buildWithRetry(() -> ProductSuggester.getInstance().rebuild())) {
+                return;
+            }
+            buildWithRetry(() -> ProductFacetIndex.getInstance().rebuild());
+        }, "product-search-index-builder");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        Thread thread = builder;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * 执行构建，失败时等待后重试
+     *
+     * @return 是否构建成功，线程被中断（停机）时返回false
+     */
+    private static boolean buildWithRetry(Runnable build) {
+        long delay = RETRY_INITIAL_MILLIS;
+        while (true) {
+            try {
+                build.run();
+                return true;
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return false;
+            }
+            delay = Math.min(delay * 2, RETRY_MAX_MILLIS);
+        }
+    }
+}
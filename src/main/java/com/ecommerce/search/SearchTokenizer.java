@@ -0,0 +1,86 @@
+package com.ecommerce.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 搜索分词器
+ * 文本先做NFKC归一化（全角转半角）并转小写，然后：
+ * 中日韩文字按连续片段切分为相邻二字词（bigram），索引时额外保留单字，便于单字查询；
+ * 拉丁字母与数字按连续片段切分为单词；其余字符视为分隔符。
+ */
+public final class SearchTokenizer {
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 切分待索引的文本
+     *
+     * @param text 文本
+     * @return 词项列表（含重复，用于统计词频）
+     */
+    public static List<String> tokenizeForIndex(String text) {
+        return tokenize(text, true);
+    }
+
+    /**
+     * 切分查询文本
+     * 中文片段只取二字词（单字片段取单字），避免单字命中过多无关商品
+     *
+     * @param text 查询文本
+     * @return 词项列表
+     */
+    public static List<String> tokenizeForQuery(String text) {
+        return tokenize(text, false);
+    }
+
+    private static List<String> tokenize(String text, boolean forIndex) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String s = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < n && isCjk(s.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1 || forIndex) {
+                    for (int j = start; j < i; j++) {
+                        tokens.add(String.valueOf(s.charAt(j)));
+                    }
+                }
+                for (int j = start; j + 1 < i; j++) {
+                    tokens.add(s.substring(j, j + 2));
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < n && Character.isLetterOrDigit(s.charAt(i)) && !isCjk(s.charAt(i))) {
+                    i++;
+                }
+                tokens.add(s.substring(start, i));
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 是否为中日韩文字
+     */
+    static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -4,6 +4,7 @@ import com.ecommerce.pojo.Cart;
 import com.ecommerce.pojo.CartItem;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 购物车业务逻辑接口
@@ -26,7 +27,7 @@ public interface CartService {
     /**
      * 保存购物车
      * @param cart 购物车对象
-     * @return 保存结果
+     * @return 生成的购物车ID（同时回填到对象中），保存失败返回0
      */
     int save(Cart cart);
 
@@ -46,6 +47,14 @@ public interface CartService {
      */
     boolean addToCart(Integer userId, Integer productId, Integer quantity);
 
+    /**
+     * 批量合并商品到用户购物车（购物车不存在时自动创建），已有商品累加数量
+     * @param userId 用户ID
+     * @param quantities 商品ID到数量的映射，调用方负责校验商品与库存
+     * @return 合并是否成功
+     */
+    boolean mergeItems(Integer userId, Map<Integer, Integer> quantities);
+
     /**
      * 更新购物车商品数量
      * @param cartItemId 购物车商品项ID
@@ -61,4 +61,10 @@ public interface CategoryService {
      * @return 分类ID列表
      */
     List<Integer> getCategoryIdsWithChildren(Integer categoryId);
+
+    /**
+     * 按商品表校正分类商品计数（含子孙分类的累计值），修复计数偏差
+     * @return 修正的分类数量，失败返回-1
+     */
+    int repairProductCounts();
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.ecommerce.service;
+
+import com.ecommerce.pojo.DashboardStats;
+import com.ecommerce.pojo.SalesSeries;
+
+import java.util.Date;
+
+/**
+ * 仪表盘统计业务逻辑接口
+ */
+public interface DashboardStatsService {
+    /**
+     * 获取仪表盘统计数据
+     * 互不依赖的统计查询并行执行，总耗时取决于最慢的一项；单项超时不影响其他项
+     * @return 统计数据
+     */
+    DashboardStats getStats();
+
+    /**
+     * 由订单表重新生成销售汇总（用于回填或修复汇总偏差）
+     * @return 生成的汇总行数，失败返回-1
+     */
+    int rebuildSalesRollup();
+
+    /**
+     * 获取已支付订单（待发货、待收货、已完成）的销售时间序列
+     * 范围不超过31天时读取小时汇总，否则读取天汇总；空缺的时间桶补0后按LTTB降采样到目标点数
+     * @param metric 指标：revenue（销售额）、orders（订单数）、items（商品件数）
+     * @param from 起始时间（含）
+     * @param to 结束时间（不含）
+     * @param buckets 目标点数
+     * @return 时间序列，指标不支持时返回null
+     */
+    SalesSeries getSalesSeries(String metric, Date from, Date to, int buckets);
+}
@@ -0,0 +1,66 @@
+package com.ecommerce.service;
+
+import com.ecommerce.pojo.FlashSale;
+import com.ecommerce.pojo.FlashSaleTicket;
+
+import java.math.BigDecimal;
+
+/**
+ * 秒杀业务逻辑接口
+ * 活动开始时从商品库存中预扣一批库存作为内存令牌，抢购只在内存中扣减令牌，售罄直接拒绝而不访问数据库；
+ * 抢到的订单进入有界队列异步落库，客户端凭订单号查询落库结果；活动结束时把未售出的库存退回商品表。
+ */
+public interface FlashSaleService {
+    /**
+     * 开始秒杀
+     * @param productId 商品ID
+     * @param quantity 参与秒杀的件数（从商品库存中预扣）
+     * @param price 秒杀价，null表示使用商品原价
+     * @return 秒杀活动，商品不存在、库存不足或该商品已有进行中的秒杀时返回null
+     */
+    FlashSale startSale(Integer productId, int quantity, BigDecimal price);
+
+    /**
+     * 结束秒杀：停止抢购，等待排队中的订单落库后把未售出的库存退回商品表
+     * @param productId 商品ID
+     * @return 是否结束成功，没有进行中的秒杀或排队订单未在限定时间内落库时返回false（可稍后重试）
+     */
+    boolean endSale(Integer productId);
+
+    /**
+     * 抢购（每人限购一件）
+     * @param userId 用户ID
+     * @param productId 商品ID
+     * @param receiverName 收货人
+     * @param receiverPhone 联系电话
+     * @param receiverAddress 收货地址
+     * @return 抢购凭证，状态为QUEUED表示已抢到、订单排队落库中
+     */
+    FlashSaleTicket purchase(Integer userId, Integer productId, String receiverName, String receiverPhone, String receiverAddress);
+
+    /**
+     * 查询抢购结果
+     * @param orderNo 抢购时返回的订单号
+     * @param userId 用户ID
+     * @return 抢购凭证，不存在、已过期或不属于该用户时返回null
+     */
+    FlashSaleTicket getTicket(String orderNo, Integer userId);
+
+    /**
+     * 查询剩余名额
+     * @param productId 商品ID
+     * @return 剩余件数，没有进行中的秒杀时返回-1
+     */
+    int getRemaining(Integer productId);
+
+    /**
+     * 结算上次运行遗留的进行中活动（进程异常退出时内存令牌已丢失），把未售出的库存退回商品表
+     * @return 结算的活动数
+     */
+    int recover();
+
+    /**
+     * 结束全部进行中的秒杀并停止落库线程（停机时调用）
+     */
+    void shutdown();
+}
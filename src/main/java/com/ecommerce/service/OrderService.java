@@ -2,8 +2,11 @@ package com.ecommerce.service;
 
 import com.ecommerce.pojo.Order;
 import com.ecommerce.pojo.OrderItem;
+import com.ecommerce.utils.OrderCursor;
 
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 订单业务逻辑接口
@@ -55,6 +58,14 @@ public interface OrderService {
      */
     boolean updateOrderStatus(Integer orderId, Integer status);
 
+    /**
+     * 支付订单：仅当订单属于该用户、处于待付款状态且未超过支付期限时，由待付款变为待发货
+     * @param orderId 订单ID
+     * @param userId 用户ID
+     * @return 支付是否成功，订单已取消、已支付或已超时返回false
+     */
+    boolean payOrder(Integer orderId, Integer userId);
+
     /**
      * 取消订单
      * @param orderId 订单ID
@@ -62,6 +73,13 @@ public interface OrderService {
      */
     boolean cancelOrder(Integer orderId);
 
+    /**
+     * 在一个事务中批量取消待付款订单并恢复库存，已不是待付款状态的订单跳过
+     * @param orderIds 订单ID列表
+     * @return 实际取消的订单ID列表，失败（事务回滚）返回null
+     */
+    List<Integer> cancelOrders(List<Integer> orderIds);
+
     /**
      * 删除订单
      * @param orderId 订单ID
@@ -70,8 +88,25 @@ public interface OrderService {
     boolean deleteOrder(Integer orderId);
     
     /**
-     * 查询所有订单
-     * @return 订单列表
+     * 后台订单列表，按(create_time, id)游标分页
+     * @param status 订单状态，null表示不限
+     * @param userId 用户ID，null表示不限
+     * @param startTime 起始下单时间（含），null表示不限
+     * @param endTime 截止下单时间（不含），null表示不限
+     * @param after 上一页最后一个订单的游标，null表示第一页
+     * @param pageSize 每页数量
+     * @return 订单列表（不含商品项）
+     */
+    List<Order> findByCursor(Integer status, Integer userId, Date startTime, Date endTime, OrderCursor after, int pageSize);
+
+    /**
+     * 流式读取符合条件的订单（用于导出等全量遍历），逐行交给handler处理
+     * @param status 订单状态，null表示不限
+     * @param userId 用户ID，null表示不限
+     * @param startTime 起始下单时间（含），null表示不限
+     * @param endTime 截止下单时间（不含），null表示不限
+     * @param handler 逐行处理订单，不能在其中访问数据库
+     * @return 读取的订单数
      */
-    List<Order> findAll();
+    int streamOrders(Integer status, Integer userId, Date startTime, Date endTime, Consumer<Order> handler);
 }
\ No newline at end of file
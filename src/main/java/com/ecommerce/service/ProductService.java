@@ -1,8 +1,12 @@
 package com.ecommerce.service;
 
+import com.ecommerce.pojo.PageResult;
 import com.ecommerce.pojo.Product;
+import com.ecommerce.utils.ProductCursor;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 商品业务逻辑接口
@@ -15,6 +19,20 @@ public interface ProductService {
      */
     Product findById(Integer id);
 
+    /**
+     * 根据ID直接查询数据库中的最新商品信息，不经过缓存（用于库存敏感的场景）
+     * @param id 商品ID
+     * @return 商品对象
+     */
+    Product findByIdUncached(Integer id);
+
+    /**
+     * 根据ID集合批量查询商品，同一请求内与其他商品查询合并
+     * @param ids 商品ID集合
+     * @return 商品ID到商品对象的映射
+     */
+    Map<Integer, Product> findByIds(Collection<Integer> ids);
+
     /**
      * 查询所有商品
      * @return 商品列表
@@ -57,6 +75,20 @@ public interface ProductService {
      */
     boolean updateStock(Integer productId, Integer quantity);
 
+    /**
+     * 设置商品的库存分片数
+     * @param productId 商品ID
+     * @param shards 分片数，小于等于1表示关闭分片
+     * @return 设置是否成功
+     */
+    boolean setStockShards(Integer productId, int shards);
+
+    /**
+     * 均衡库存分片并同步分片商品的展示库存
+     * @return 展示库存发生变化的商品数
+     */
+    int rebalanceStockShards();
+
     /**
      * 删除商品
      * @param id 商品ID
@@ -90,6 +122,37 @@ public interface ProductService {
      */
     List<Product> searchByPage(String keyword, int page, int pageSize);
 
+    /**
+     * 分页查询商品及总数，当前页与总数一次往返查询
+     * @param categoryId 分类ID（包含其所有子孙分类），null表示不限分类
+     * @param keyword 名称关键词，null表示不限
+     * @param page 页码（从1开始）
+     * @param pageSize 每页数量
+     * @param exactCount 是否需要精确总数，false时优先使用短时缓存的总数
+     * @return 分页结果
+     */
+    PageResult<Product> findProductPage(Integer categoryId, String keyword, int page, int pageSize, boolean exactCount);
+
+    /**
+     * 搜索商品，使用内存倒排索引按相关度排序，仅在索引未就绪时回退到SQL模糊查询；空关键词返回全部商品
+     * @param keyword 搜索关键词
+     * @param page 页码（从1开始）
+     * @param pageSize 每页数量
+     * @param exactCount SQL回退时是否需要精确总数
+     * @return 分页结果
+     */
+    PageResult<Product> searchProducts(String keyword, int page, int pageSize, boolean exactCount);
+
+    /**
+     * 游标分页查询商品（用于无限滚动），翻页代价与浏览深度无关
+     * @param categoryId 分类ID（包含其所有子孙分类），null表示不限分类
+     * @param keyword 名称关键词，null或空表示不限
+     * @param after 上一页最后一个商品的游标，null表示第一页
+     * @param pageSize 每页数量
+     * @return 商品列表
+     */
+    List<Product> findByCursor(Integer categoryId, String keyword, ProductCursor after, int pageSize);
+
     /**
      * 获取商品总数
      * @return 商品总数
@@ -1,22 +1,22 @@
 package com.ecommerce.service.impl;
 
 import com.ecommerce.dao.CartDao;
-import com.ecommerce.dao.ProductDao;
 import com.ecommerce.dao.impl.CartDaoImpl;
-import com.ecommerce.dao.impl.ProductDaoImpl;
 import com.ecommerce.pojo.Cart;
 import com.ecommerce.pojo.CartItem;
 import com.ecommerce.pojo.Product;
 import com.ecommerce.service.CartService;
+import com.ecommerce.utils.ProductBatchLoader;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 购物车业务逻辑实现类
  */
 public class CartServiceImpl implements CartService {
     private CartDao cartDao = new CartDaoImpl();
-    private ProductDao productDao = new ProductDaoImpl();
 
     @Override
     public Cart findById(Integer id) {
@@ -40,8 +40,8 @@ public class CartServiceImpl implements CartService {
 
     @Override
     public boolean addToCart(Integer userId, Integer productId, Integer quantity) {
-        // 验证商品是否存在
-        Product product = productDao.findById(productId);
+        // 验证商品是否存在（同一请求内的商品查询会合并、复用）
+        Product product = ProductBatchLoader.current().load(productId);
         if (product == null) {
             return false;
         }
@@ -51,35 +51,29 @@ public class CartServiceImpl implements CartService {
             return false;
         }
 
+        // 新增或累加商品数量
+        return mergeItems(userId, Collections.singletonMap(productId, quantity));
+    }
+
+    @Override
+    public boolean mergeItems(Integer userId, Map<Integer, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            return true;
+        }
+
         // 获取或创建购物车
         Cart cart = cartDao.findByUserId(userId);
         if (cart == null) {
             cart = new Cart();
             cart.setUserId(userId);
-            cartDao.save(cart);
-            // 重新获取购物车以获取生成的ID
-            cart = cartDao.findByUserId(userId);
-        }
-
-        // 检查购物车中是否已存在该商品
-        List<CartItem> cartItems = cartDao.findCartItemsByCartId(cart.getId());
-        for (CartItem item : cartItems) {
-            if (item.getProductId().equals(productId)) {
-                // 更新商品数量
-                item.setQuantity(item.getQuantity() + quantity);
-                return cartDao.updateCartItem(item) > 0;
+            // save会回填生成的购物车ID
+            if (cartDao.save(cart) <= 0) {
+                return false;
             }
         }
 
-        // 添加新的购物车商品项
-        CartItem cartItem = new CartItem();
-        cartItem.setCartId(cart.getId());
-        cartItem.setProductId(productId);
-        cartItem.setProductName(product.getName());
-        cartItem.setPrice(product.getPrice());
-        cartItem.setQuantity(quantity);
-        
-        return cartDao.saveCartItem(cartItem) > 0;
+        // 基于(cart_id, product_id)唯一键的批量upsert，无需逐个比对已有商品项
+        return cartDao.mergeItems(cart.getId(), quantities);
     }
 
     @Override
@@ -91,7 +85,7 @@ public class CartServiceImpl implements CartService {
         }
 
         // 验证商品库存
-        Product product = productDao.findById(cartItem.getProductId());
+        Product product = ProductBatchLoader.current().load(cartItem.getProductId());
         if (product == null || product.getStock() < quantity) {
             return false;
         }
@@ -2,113 +2,151 @@ package com.ecommerce.service.impl;
 
 import com.ecommerce.dao.CategoryDao;
 import com.ecommerce.dao.impl.CategoryDaoImpl;
-import com.ecommerce.dao.ProductDao;
-import com.ecommerce.dao.impl.ProductDaoImpl;
 import com.ecommerce.pojo.Category;
 import com.ecommerce.service.CategoryService;
+import com.ecommerce.utils.CategorySnapshot;
+import com.ecommerce.utils.DataAccessException;
+import com.ecommerce.utils.TransactionTemplate;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 商品分类业务逻辑实现类
  */
 public class CategoryServiceImpl implements CategoryService {
     private CategoryDao categoryDao = new CategoryDaoImpl();
-    private ProductDao productDao = new ProductDaoImpl();
+    // 分类快照，所有实例共享；分类变更后整体替换
+    private static volatile CategorySnapshot snapshot;
+    // 快照版本，失效时递增；重建期间版本变化则不发布，避免覆盖为旧计数
+    private static final AtomicLong SNAPSHOT_VERSION = new AtomicLong();
 
     @Override
     public Category findById(Integer id) {
-        return categoryDao.findById(id);
+        return snapshot().findById(id);
     }
 
     @Override
     public List<Category> findAll() {
-        return categoryDao.findAll();
+        return snapshot().findAll();
     }
 
     @Override
     public List<Category> findByParentId(Integer parentId) {
-        return categoryDao.findByParentId(parentId);
+        return snapshot().findByParentId(parentId);
     }
 
     @Override
     public List<Category> getCategoryTree() {
-        // 获取所有分类
-        List<Category> allCategories = categoryDao.findAll();
-        // 构建分类树
-        return buildCategoryTree(allCategories, 0); // 0表示顶级分类
+        return snapshot().getTree();
     }
 
     /**
-     * 递归构建分类树
-     * @param allCategories 所有分类
-     * @param parentId 父分类ID
-     * @return 分类树列表
+     * 获取当前分类快照，首次访问时从数据库加载
      */
-    private List<Category> buildCategoryTree(List<Category> allCategories, Integer parentId) {
-        List<Category> children = new ArrayList<>();
-        for (Category category : allCategories) {
-            Integer pid = category.getParentId();
-            if (pid == null) pid = 0;
-            if (pid.equals(parentId)) {
-                // 递归查找子分类
-                category.setChildren(buildCategoryTree(allCategories, category.getId()));
-                children.add(category);
+    private CategorySnapshot snapshot() {
+        CategorySnapshot current = snapshot;
+        return current != null ? current : reload();
+    }
+
+    /**
+     * 重新读取全部分类并原子替换快照，正在使用旧快照的请求不受影响
+     * 读取失败时不替换也不缓存快照（返回当前快照，没有时返回空快照），下次访问重新加载
+     */
+    private CategorySnapshot reload() {
+        synchronized (CategoryServiceImpl.class) {
+            long version = SNAPSHOT_VERSION.get();
+            List<Category> categories;
+            try {
+                // 只读事务中DAO出错会抛出异常，不会把读取失败当成没有分类
+                categories = new TransactionTemplate().readOnly(true).execute(status -> categoryDao.findAll());
+            } catch (SQLException | DataAccessException e) {
+                e.printStackTrace();
+                CategorySnapshot current = snapshot;
+                return current != null ? current : CategorySnapshot.build(Collections.emptyList());
+            }
+            CategorySnapshot rebuilt = CategorySnapshot.build(categories);
+            if (SNAPSHOT_VERSION.get() == version) {
+                snapshot = rebuilt;
             }
+            return rebuilt;
         }
-        return children;
+    }
+
+    /**
+     * 使分类快照失效（商品计数变化后调用），下次访问时重新加载
+     */
+    public static void invalidateSnapshot() {
+        SNAPSHOT_VERSION.incrementAndGet();
+        snapshot = null;
+    }
+
+    @Override
+    public int repairProductCounts() {
+        int repaired = categoryDao.repairProductCounts();
+        if (repaired > 0) {
+            invalidateSnapshot();
+        }
+        return repaired;
     }
 
     @Override
     public boolean save(Category category) {
         int result = categoryDao.save(category);
+        if (result > 0) {
+            // 先失效再重建，重建失败时不会继续使用变更前的快照
+            invalidateSnapshot();
+            reload();
+        }
         return result > 0;
     }
 
     @Override
     public boolean update(Category category) {
         int result = categoryDao.update(category);
+        if (result > 0) {
+            // 先失效再重建，重建失败时不会继续使用变更前的快照
+            invalidateSnapshot();
+            reload();
+        }
         return result > 0;
     }
 
     @Override
     public boolean delete(Integer id) {
-        // 检查是否有子分类
+        // 检查是否有子分类（删除前以数据库为准）
         List<Category> children = categoryDao.findByParentId(id);
         if (!children.isEmpty()) {
             return false; // 有子分类，不能删除
         }
-        // 检查是否有商品属于该分类
-        int productCount = productDao.countByCategoryId(id);
-        if (productCount > 0) {
+        // 检查是否有商品属于该分类（读取分类上维护的计数，以数据库为准）
+        Category current = categoryDao.findById(id);
+        if (current != null && current.getProductCount() > 0) {
             return false; // 仍有关联商品，不能删除
         }
         int result = categoryDao.delete(id);
+        if (result > 0) {
+            // 先失效再重建，重建失败时不会继续使用变更前的快照
+            invalidateSnapshot();
+            reload();
+        }
         return result > 0;
     }
     
     @Override
     public List<Integer> getCategoryIdsWithChildren(Integer categoryId) {
-        List<Integer> categoryIds = new ArrayList<>();
-        // 添加当前分类ID
-        categoryIds.add(categoryId);
-        // 递归添加所有子分类ID
-        addChildrenIds(categoryId, categoryIds);
-        return categoryIds;
-    }
-    
-    /**
-     * 递归添加所有子分类ID
-     * @param parentId 父分类ID
-     * @param categoryIds 分类ID列表
-     */
-    private void addChildrenIds(Integer parentId, List<Integer> categoryIds) {
-        List<Category> children = categoryDao.findByParentId(parentId);
-        for (Category child : children) {
-            categoryIds.add(child.getId());
-            // 递归添加子分类的子分类
-            addChildrenIds(child.getId(), categoryIds);
+        int[] subtree = snapshot().getSubtreeIds(categoryId);
+        if (subtree == null) {
+            // 分类不存在时仍按原逻辑只返回自身
+            return new ArrayList<>(Collections.singletonList(categoryId));
         }
+        List<Integer> categoryIds = new ArrayList<>(subtree.length);
+        for (int id : subtree) {
+            categoryIds.add(id);
+        }
+        return categoryIds;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,186 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.dao.OrderDao;
+import com.ecommerce.dao.ProductDao;
+import com.ecommerce.dao.SalesRollupDao;
+import com.ecommerce.dao.UserDao;
+import com.ecommerce.dao.impl.OrderDaoImpl;
+import com.ecommerce.dao.impl.ProductDaoImpl;
+import com.ecommerce.dao.impl.SalesRollupDaoImpl;
+import com.ecommerce.dao.impl.UserDaoImpl;
+import com.ecommerce.pojo.Category;
+import com.ecommerce.pojo.DashboardStats;
+import com.ecommerce.pojo.SalesPoint;
+import com.ecommerce.pojo.SalesSeries;
+import com.ecommerce.service.CategoryService;
+import com.ecommerce.service.DashboardStatsService;
+import com.ecommerce.utils.LttbDownsampler;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 仪表盘统计业务逻辑实现类
+ * 用户数、订单数、销售额与库存紧张数分别提交到有界线程池并行查询；
+ * 分类商品数读取分类快照中的累计计数，销售额读取sales_rollup汇总行，都不扫描大表。
+ */
+public class DashboardStatsServiceImpl implements DashboardStatsService {
+    // 单项统计查询的超时时间（毫秒），从提交时开始计算
+    private static final long QUERY_TIMEOUT_MILLIS = 3000;
+
+    // 时间序列计入的订单状态：待发货、待收货、已完成
+    private static final int[] PAID_STATUSES = {1, 2, 3};
+    // 超过该天数的范围改用按天汇总
+    private static final long HOURLY_MAX_DAYS = 31;
+
+    // 有界线程池：线程数与队列长度都有上限，队列满时拒绝并将该项记为失败，避免拖垮连接池
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor();
+
+    private UserDao userDao = new UserDaoImpl();
+    private OrderDao orderDao = new OrderDaoImpl();
+    private ProductDao productDao = new ProductDaoImpl();
+    private SalesRollupDao salesRollupDao = new SalesRollupDaoImpl();
+    private CategoryService categoryService = new CategoryServiceImpl();
+
+    private static ThreadPoolExecutor createExecutor() {
+        AtomicInteger sequence = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(5, 5, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(50), runnable -> {
+                    Thread thread = new Thread(runnable, "dashboard-stats-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        // 空闲时回收全部线程
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public DashboardStats getStats() {
+        long start = System.currentTimeMillis();
+        long deadline = start + QUERY_TIMEOUT_MILLIS;
+        DashboardStats stats = new DashboardStats();
+
+        Future<Integer> userCount = submit(() -> userDao.countAll());
+        Future<Integer> orderCount = submit(() -> orderDao.countAll());
+        // 销售额沿用原口径：状态为2（待收货）的订单金额
+        Future<BigDecimal> totalSales = submit(() -> salesRollupDao.sumAmount(2));
+        Future<Integer> lowStockCount = submit(() -> productDao.countLowStockProducts());
+
+        stats.setUserCount(await("userCount", userCount, deadline, stats));
+        stats.setOrderCount(await("orderCount", orderCount, deadline, stats));
+        stats.setTotalSales(await("totalSales", totalSales, deadline, stats));
+        stats.setLowStockCount(await("lowStockCount", lowStockCount, deadline, stats));
+
+        // 顶级分类的上架商品数直接读取分类上维护的累计计数（含子孙分类），无需统计商品表
+        List<DashboardStats.CategoryCount> list = new ArrayList<>();
+        for (Category category : categoryService.getCategoryTree()) {
+            list.add(new DashboardStats.CategoryCount(category.getId(), category.getName(), category.getActiveProductCount()));
+        }
+        stats.setCategoryCounts(list);
+
+        stats.setElapsedMillis(System.currentTimeMillis() - start);
+        return stats;
+    }
+
+    @Override
+    public int rebuildSalesRollup() {
+        return salesRollupDao.rebuild();
+    }
+
+    @Override
+    public SalesSeries getSalesSeries(String metric, Date from, Date to, int buckets) {
+        if (!"revenue".equals(metric) && !"orders".equals(metric) && !"items".equals(metric)) {
+            return null;
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        boolean daily = to.getTime() - from.getTime() > HOURLY_MAX_DAYS * 24L * 3600 * 1000;
+        ChronoUnit unit = daily ? ChronoUnit.DAYS : ChronoUnit.HOURS;
+        LocalDateTime start = LocalDateTime.ofInstant(from.toInstant(), zone).truncatedTo(unit);
+        LocalDateTime end = LocalDateTime.ofInstant(to.toInstant(), zone);
+
+        Map<LocalDateTime, SalesPoint> points = new HashMap<>();
+        for (SalesPoint point : salesRollupDao.findSeries(daily, Date.from(start.atZone(zone).toInstant()), to, PAID_STATUSES)) {
+            points.put(LocalDateTime.ofInstant(point.getTime().toInstant(), zone).truncatedTo(unit), point);
+        }
+
+        // 连续的时间桶，无数据的桶补0，保证降采样与图表的时间轴均匀
+        long whole = Math.max(0, unit.between(start, end));
+        int size = (int) (start.plus(whole, unit).isBefore(end) ? whole + 1 : whole);
+        long[] times = new long[size];
+        double[] values = new double[size];
+        LocalDateTime bucket = start;
+        for (int i = 0; i < size; i++) {
+            times[i] = bucket.atZone(zone).toInstant().toEpochMilli();
+            SalesPoint point = points.get(bucket);
+            if (point != null) {
+                if ("revenue".equals(metric)) {
+                    values[i] = point.getAmount() != null ? point.getAmount().doubleValue() : 0;
+                } else if ("orders".equals(metric)) {
+                    values[i] = point.getOrderCount();
+                } else {
+                    values[i] = point.getItemQuantity();
+                }
+            }
+            bucket = bucket.plus(1, unit);
+        }
+
+        int[] selected = LttbDownsampler.downsample(times, values, buckets);
+        long[] sampledTimes = new long[selected.length];
+        double[] sampledValues = new double[selected.length];
+        for (int i = 0; i < selected.length; i++) {
+            sampledTimes[i] = times[selected[i]];
+            sampledValues[i] = values[selected[i]];
+        }
+        return new SalesSeries(metric, daily ? "day" : "hour", sampledTimes, sampledValues, size);
+    }
+
+    private static <T> Future<T> submit(Callable<T> task) {
+        try {
+            return EXECUTOR.submit(task);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 等待统计结果，超时、失败或被拒绝时返回null并记录失败项
+     */
+    private static <T> T await(String item, Future<T> future, long deadline, DashboardStats stats) {
+        if (future == null) {
+            System.out.println("仪表盘统计任务被拒绝（线程池已满）：" + item);
+            stats.getFailedItems().add(item);
+            return null;
+        }
+        try {
+            long remaining = Math.max(0, deadline - System.currentTimeMillis());
+            return future.get(remaining, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            System.out.println("仪表盘统计查询超时：" + item);
+        } catch (ExecutionException e) {
+            System.out.println("仪表盘统计查询失败：" + item + "，" + e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+        stats.getFailedItems().add(item);
+        return null;
+    }
+}
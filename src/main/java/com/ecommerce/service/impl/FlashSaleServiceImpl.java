@@ -0,0 +1,449 @@
+package com.ecommerce.service.impl;
+
+import com.ecommerce.dao.FlashSaleDao;
+import com.ecommerce.dao.OrderDao;
+import com.ecommerce.dao.ProductDao;
+import com.ecommerce.dao.SalesRollupDao;
+import com.ecommerce.dao.impl.FlashSaleDaoImpl;
+import com.ecommerce.dao.impl.OrderDaoImpl;
+import com.ecommerce.dao.impl.ProductDaoImpl;
+import com.ecommerce.dao.impl.SalesRollupDaoImpl;
+import com.ecommerce.pojo.FlashSale;
+import com.ecommerce.pojo.FlashSaleTicket;
+import com.ecommerce.pojo.Order;
+import com.ecommerce.pojo.OrderItem;
+import com.ecommerce.pojo.Product;
+import com.ecommerce.search.ProductFacetIndex;
+import com.ecommerce.search.ProductSuggester;
+import com.ecommerce.service.FlashSaleService;
+import com.ecommerce.utils.DataAccessException;
+import com.ecommerce.utils.OrderExpiryScheduler;
+import com.ecommerce.utils.OrderNoGenerator;
+import com.ecommerce.utils.ProductCache;
+import com.ecommerce.utils.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 秒杀业务逻辑实现类
+ * 抢购路径只有内存操作：CAS扣减令牌、登记限购、放入有界队列，不持有商品行锁；
+ * 唯一的落库线程按批取出订单，每批一个事务，每个订单在保存点上写入，单个订单失败只回滚自身并退回名额。
+ * 商品库存在活动开始时一次性预扣，订单落库不再更新product行；flash_sale.sold随订单在同一事务中累加，
+ * 结束或重启恢复时按reserved - sold把未售出的库存退回商品表。
+ */
+public class FlashSaleServiceImpl implements FlashSaleService {
+    // 落库队列容量，队列满时拒绝抢购并退回名额
+    private static final int QUEUE_CAPACITY = 10000;
+    // 每批落库的订单数
+    private static final int BATCH_SIZE = 100;
+    // 结束活动时等待排队订单落库的最长时间（毫秒）
+    private static final long END_WAIT_MILLIS = 30 * 1000L;
+    // 已完成的抢购凭证保留时间（毫秒），供客户端查询结果
+    private static final long TICKET_RETENTION_MILLIS = 10 * 60 * 1000L;
+
+    /**
+     * 进行中的秒杀（内存状态）
+     */
+    private static final class Sale {
+        final FlashSale record;
+        final String productName;
+        final String productImage;
+        final Integer categoryId;
+        final AtomicInteger tokens;
+        final Set<Integer> buyers = ConcurrentHashMap.newKeySet();
+        // 已扣令牌、尚未落库完成的抢购数
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile boolean open = true;
+
+        Sale(FlashSale record, Product product) {
+            this.record = record;
+            this.productName = product.getName();
+            this.productImage = product.getImage();
+            this.categoryId = product.getCategoryId();
+            this.tokens = new AtomicInteger(record.getReserved());
+        }
+    }
+
+    /**
+     * 排队落库的抢购
+     */
+    private static final class Purchase {
+        final Sale sale;
+        final FlashSaleTicket ticket;
+        final String receiverName;
+        final String receiverPhone;
+        final String receiverAddress;
+
+        Purchase(Sale sale, FlashSaleTicket ticket, String receiverName, String receiverPhone, String receiverAddress) {
+            this.sale = sale;
+            this.ticket = ticket;
+            this.receiverName = receiverName;
+            this.receiverPhone = receiverPhone;
+            this.receiverAddress = receiverAddress;
+        }
+    }
+
+    private static final Map<Integer, Sale> SALES = new ConcurrentHashMap<>();
+    private static final BlockingQueue<Purchase> QUEUE = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final Map<String, FlashSaleTicket> TICKETS = new ConcurrentHashMap<>();
+    private static final Thread WRITER;
+
+    private FlashSaleDao flashSaleDao = new FlashSaleDaoImpl();
+    private ProductDao productDao = new ProductDaoImpl();
+    private OrderDao orderDao = new OrderDaoImpl();
+    private SalesRollupDao salesRollupDao = new SalesRollupDaoImpl();
+
+    static {
+        FlashSaleServiceImpl writer = new FlashSaleServiceImpl();
+        WRITER = new Thread(writer::drainQueue, "flash-sale-writer");
+        WRITER.setDaemon(true);
+        WRITER.start();
+    }
+
+    @Override
+    public FlashSale startSale(Integer productId, int quantity, BigDecimal price) {
+        if (productId == null || quantity <= 0) {
+            return null;
+        }
+        synchronized (FlashSaleServiceImpl.class) {
+            if (SALES.containsKey(productId)) {
+                return null;
+            }
+            Product product = productDao.findById(productId);
+            if (product == null) {
+                return null;
+            }
+            Map<Integer, Integer> remaining = new HashMap<>();
+            FlashSale started;
+            try {
+                // 锁定商品行，一次性预扣参与秒杀的库存
+                started = new TransactionTemplate().execute(status -> {
+                    Integer stock = productDao.lockStock(Collections.singletonList(productId)).get(productId);
+                    if (stock == null || stock < quantity
+                            || !productDao.decreaseStock(Collections.singletonMap(productId, quantity))) {
+                        status.setRollbackOnly();
+                        return null;
+                    }
+                    FlashSale flashSale = new FlashSale();
+                    flashSale.setProductId(productId);
+                    flashSale.setPrice(price != null ? price : product.getPrice());
+                    flashSale.setReserved(quantity);
+                    flashSale.setSold(0);
+                    flashSale.setStatus(1);
+                    if (flashSaleDao.save(flashSale) <= 0) {
+                        status.setRollbackOnly();
+                        return null;
+                    }
+                    remaining.put(productId, stock - quantity);
+                    return flashSale;
+                });
+            } catch (SQLException | DataAccessException e) {
+                e.printStackTrace();
+                return null;
+            }
+            if (started != null) {
+                SALES.put(productId, new Sale(started, product));
+                ProductFacetIndex.getInstance().onStockChanged(remaining);
+                ProductCache.invalidate(productId);
+            }
+            return started;
+        }
+    }
+
+    @Override
+    public boolean endSale(Integer productId) {
+        synchronized (FlashSaleServiceImpl.class) {
+            Sale sale = productId != null ? SALES.get(productId) : null;
+            if (sale == null) {
+                return false;
+            }
+            // 先停止抢购，再等待已抢到的订单全部落库
+            sale.open = false;
+            long deadline = System.currentTimeMillis() + END_WAIT_MILLIS;
+            while (sale.inFlight.get() > 0) {
+                if (System.currentTimeMillis() > deadline) {
+                    System.out.println("秒杀结束等待超时，仍有" + sale.inFlight.get() + "个订单排队落库：商品" + productId);
+                    return false;
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            if (!settle(sale.record.getId())) {
+                return false;
+            }
+            SALES.remove(productId);
+            return true;
+        }
+    }
+
+    /**
+     * 结算活动：按数据库中的reserved - sold退回未售出的库存并标记结束
+     */
+    private boolean settle(Integer flashSaleId) {
+        try {
+            FlashSale settled = new TransactionTemplate().execute(status -> {
+                FlashSale flashSale = flashSaleDao.findByIdForUpdate(flashSaleId);
+                if (flashSale == null || flashSale.getStatus() != 1) {
+                    return flashSale;
+                }
+                int unsold = flashSale.getReserved() - flashSale.getSold();
+                if (unsold > 0 && !productDao.increaseStock(Collections.singletonMap(flashSale.getProductId(), unsold))) {
+                    status.setRollbackOnly();
+                    return null;
+                }
+                flashSaleDao.finish(flashSaleId);
+                flashSale.setSold(flashSale.getReserved() - Math.max(unsold, 0));
+                return flashSale;
+            });
+            if (settled == null) {
+                return false;
+            }
+            int unsold = settled.getReserved() - settled.getSold();
+            if (unsold > 0) {
+                ProductFacetIndex.getInstance().onStockChanged(Collections.singletonMap(settled.getProductId(), unsold));
+                // 事务提交后再次失效商品缓存，防止事务期间被其他请求读入退回前的库存
+                ProductCache.invalidate(settled.getProductId());
+            }
+            System.out.println("秒杀已结算：商品" + settled.getProductId() + "，售出" + settled.getSold() + "，退回库存" + Math.max(unsold, 0));
+            return true;
+        } catch (SQLException | DataAccessException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    @Override
+    public FlashSaleTicket purchase(Integer userId, Integer productId, String receiverName, String receiverPhone, String receiverAddress) {
+        Sale sale = productId != null ? SALES.get(productId) : null;
+        if (sale == null) {
+            return new FlashSaleTicket(null, productId, userId, FlashSaleTicket.Status.NOT_ACTIVE);
+        }
+        // 先计入进行中，再检查是否开放：结束活动时先关闭再等待进行中归零，二者不会错过
+        sale.inFlight.incrementAndGet();
+        FlashSaleTicket.Status rejected = null;
+        if (!sale.open) {
+            rejected = FlashSaleTicket.Status.NOT_ACTIVE;
+        } else if (!sale.buyers.add(userId)) {
+            rejected = FlashSaleTicket.Status.DUPLICATE;
+        } else if (!acquire(sale.tokens)) {
+            sale.buyers.remove(userId);
+            rejected = FlashSaleTicket.Status.SOLD_OUT;
+        }
+        if (rejected != null) {
+            sale.inFlight.decrementAndGet();
+            return new FlashSaleTicket(null, productId, userId, rejected);
+        }
+
+        FlashSaleTicket ticket = new FlashSaleTicket(OrderNoGenerator.nextOrderNo(), productId, userId, FlashSaleTicket.Status.QUEUED);
+        TICKETS.put(ticket.getOrderNo(), ticket);
+        if (!QUEUE.offer(new Purchase(sale, ticket, receiverName, receiverPhone, receiverAddress))) {
+            TICKETS.remove(ticket.getOrderNo());
+            release(sale, userId);
+            return new FlashSaleTicket(null, productId, userId, FlashSaleTicket.Status.BUSY);
+        }
+        return ticket;
+    }
+
+    /**
+     * CAS扣减一个令牌，令牌为0时失败
+     */
+    private static boolean acquire(AtomicInteger tokens) {
+        while (true) {
+            int current = tokens.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 退回名额（抢购被拒或落库失败）
+     */
+    private static void release(Sale sale, Integer userId) {
+        sale.tokens.incrementAndGet();
+        sale.buyers.remove(userId);
+        sale.inFlight.decrementAndGet();
+    }
+
+    @Override
+    public FlashSaleTicket getTicket(String orderNo, Integer userId) {
+        FlashSaleTicket ticket = orderNo != null ? TICKETS.get(orderNo) : null;
+        if (ticket == null || !ticket.getUserId().equals(userId)) {
+            return null;
+        }
+        return ticket;
+    }
+
+    @Override
+    public int getRemaining(Integer productId) {
+        Sale sale = productId != null ? SALES.get(productId) : null;
+        return sale != null && sale.open ? sale.tokens.get() : -1;
+    }
+
+    @Override
+    public int recover() {
+        int settled = 0;
+        for (FlashSale flashSale : flashSaleDao.findActive()) {
+            if (!SALES.containsKey(flashSale.getProductId()) && settle(flashSale.getId())) {
+                settled++;
+            }
+        }
+        return settled;
+    }
+
+    @Override
+    public void shutdown() {
+        for (Integer productId : new ArrayList<>(SALES.keySet())) {
+            endSale(productId);
+        }
+        // 活动已全部结束，停止落库线程，避免重新部署时线程泄漏
+        WRITER.interrupt();
+        try {
+            WRITER.join(END_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 落库线程：阻塞等待订单，每次最多取一批
+     */
+    private void drainQueue() {
+        List<Purchase> batch = new ArrayList<>(BATCH_SIZE);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(QUEUE.take());
+                QUEUE.drainTo(batch, BATCH_SIZE - 1);
+                persist(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                // 单批异常不能终止落库线程
+                e.printStackTrace();
+            } finally {
+                batch.clear();
+            }
+            purgeTickets();
+        }
+    }
+
+    /**
+     * 一批订单在一个事务中落库，每个订单使用保存点；提交后确认成功的抢购，失败的退回名额
+     */
+    private void persist(List<Purchase> batch) {
+        Map<Purchase, Order> saved = new IdentityHashMap<>();
+        try {
+            new TransactionTemplate().execute(status -> {
+                // 死锁重试时回调会重新执行
+                saved.clear();
+                Map<Integer, Integer> soldBySale = new HashMap<>();
+                for (Purchase purchase : batch) {
+                    try {
+                        Order order = new TransactionTemplate(TransactionTemplate.Propagation.NESTED)
+                                .execute(nested -> saveOrder(purchase, nested));
+                        if (order != null) {
+                            saved.put(purchase, order);
+                            soldBySale.merge(purchase.sale.record.getId(), 1, Integer::sum);
+                        }
+                    } catch (DataAccessException e) {
+                        e.printStackTrace();
+                    }
+                }
+                for (Map.Entry<Integer, Integer> entry : soldBySale.entrySet()) {
+                    flashSaleDao.addSold(entry.getKey(), entry.getValue());
+                }
+                return null;
+            });
+        } catch (SQLException | DataAccessException e) {
+            e.printStackTrace();
+            saved.clear();
+        }
+
+        long now = System.currentTimeMillis();
+        Map<Integer, Integer> sold = new HashMap<>();
+        for (Purchase purchase : batch) {
+            FlashSaleTicket ticket = purchase.ticket;
+            Order order = saved.get(purchase);
+            if (order != null) {
+                ticket.setOrderId(order.getId());
+                ticket.setStatus(FlashSaleTicket.Status.SUCCESS);
+                purchase.sale.inFlight.decrementAndGet();
+                OrderExpiryScheduler.register(order.getId(), order.getCreateTime());
+                sold.merge(ticket.getProductId(), 1, Integer::sum);
+            } else {
+                ticket.setStatus(FlashSaleTicket.Status.FAILED);
+                release(purchase.sale, ticket.getUserId());
+            }
+            ticket.setFinishTime(now);
+        }
+        if (!sold.isEmpty()) {
+            ProductSuggester.getInstance().onSalesChanged(sold);
+        }
+    }
+
+    /**
+     * 保存一个秒杀订单（不扣减商品库存，库存已在活动开始时预扣）
+     */
+    private Order saveOrder(Purchase purchase, TransactionTemplate.TransactionStatus status) throws SQLException {
+        Sale sale = purchase.sale;
+        Order order = new Order();
+        order.setOrderNo(purchase.ticket.getOrderNo());
+        order.setUserId(purchase.ticket.getUserId());
+        order.setTotalPrice(sale.record.getPrice());
+        order.setReceiverName(purchase.receiverName);
+        order.setReceiverPhone(purchase.receiverPhone);
+        order.setReceiverAddress(purchase.receiverAddress);
+        order.setItemCount(1);
+        order.setStatus(0); // 0表示待付款
+        order.setCreateTime(new Date());
+        order.setUpdateTime(new Date());
+        if (orderDao.save(order) <= 0) {
+            status.setRollbackOnly();
+            return null;
+        }
+
+        OrderItem item = new OrderItem();
+        item.setOrderId(order.getId());
+        item.setProductId(sale.record.getProductId());
+        item.setProductName(sale.productName);
+        item.setProductImage(sale.productImage);
+        item.setCategoryId(sale.categoryId);
+        item.setPrice(sale.record.getPrice());
+        item.setQuantity(1);
+        if (orderDao.saveOrderItems(Collections.singletonList(item)) != 1) {
+            status.setRollbackOnly();
+            return null;
+        }
+        salesRollupDao.applyOrder(order.getId(), 0, 1);
+        return order;
+    }
+
+    /**
+     * 清理已完成且超过保留时间的抢购凭证
+     */
+    private static void purgeTickets() {
+        long expireBefore = System.currentTimeMillis() - TICKET_RETENTION_MILLIS;
+        TICKETS.values().removeIf(ticket -> ticket.getFinishTime() > 0 && ticket.getFinishTime() < expireBefore);
+    }
+}
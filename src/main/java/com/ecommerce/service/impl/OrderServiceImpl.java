@@ -3,22 +3,33 @@ package com.ecommerce.service.impl;
 import com.ecommerce.dao.CartDao;
 import com.ecommerce.dao.OrderDao;
 import com.ecommerce.dao.ProductDao;
+import com.ecommerce.dao.SalesRollupDao;
 import com.ecommerce.dao.impl.CartDaoImpl;
 import com.ecommerce.dao.impl.OrderDaoImpl;
 import com.ecommerce.dao.impl.ProductDaoImpl;
+import com.ecommerce.dao.impl.SalesRollupDaoImpl;
 import com.ecommerce.pojo.Cart;
 import com.ecommerce.pojo.CartItem;
 import com.ecommerce.pojo.Order;
 import com.ecommerce.pojo.OrderItem;
-import com.ecommerce.pojo.Product;
+import com.ecommerce.search.ProductFacetIndex;
+import com.ecommerce.search.ProductSuggester;
 import com.ecommerce.service.OrderService;
-import com.ecommerce.utils.JDBCUtils;
-import java.sql.Connection;
-import java.sql.SQLException;
+import com.ecommerce.utils.DataAccessException;
+import com.ecommerce.utils.OrderCursor;
+import com.ecommerce.utils.OrderExpiryScheduler;
+import com.ecommerce.utils.OrderNoGenerator;
+import com.ecommerce.utils.ProductCache;
+import com.ecommerce.utils.TransactionTemplate;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 订单业务逻辑实现类
@@ -27,6 +38,7 @@ public class OrderServiceImpl implements OrderService {
     private OrderDao orderDao = new OrderDaoImpl();
     private CartDao cartDao = new CartDaoImpl();
     private ProductDao productDao = new ProductDaoImpl();
+    private SalesRollupDao salesRollupDao = new SalesRollupDaoImpl();
 
     @Override
     public Order findById(Integer id) {
@@ -50,98 +62,133 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public Order createOrder(Integer userId, String address, String phone, String receiver) {
-        Connection conn = null;
-        Order order = null;
         try {
-            // 开启事务
-            JDBCUtils.beginTransaction();
-            
-            // 获取用户购物车
-            Cart cart = cartDao.findByUserId(userId);
-            if (cart == null) {
-                JDBCUtils.rollbackTransaction();
-                return null;
-            }
+            // 在事务中下单，任何异常都会回滚；死锁或锁等待超时时自动重试
+            // 下单后各商品的剩余库存，用于同步分面索引的有货状态
+            Map<Integer, Integer> remaining = new HashMap<>();
+            Order created = new TransactionTemplate().execute(status -> {
+                remaining.clear();
+                // 获取用户购物车
+                Cart cart = cartDao.findByUserId(userId);
+                if (cart == null) {
+                    status.setRollbackOnly();
+                    return null;
+                }
 
-            // 获取购物车商品项
-            List<CartItem> cartItems = cartDao.findCartItemsByCartId(cart.getId());
-            if (cartItems.isEmpty()) {
-                JDBCUtils.rollbackTransaction();
-                return null;
-            }
+                // 获取购物车商品项（findByUserId已一并加载商品项）
+                List<CartItem> cartItems = cart.getCartItems();
+                if (cartItems == null || cartItems.isEmpty()) {
+                    status.setRollbackOnly();
+                    return null;
+                }
 
-            // 计算订单总价
-            java.math.BigDecimal totalAmount = java.math.BigDecimal.ZERO;
-            for (CartItem item : cartItems) {
-                totalAmount = totalAmount.add(item.getTotalPrice());
-            }
+                // 计算订单总价
+                java.math.BigDecimal totalAmount = java.math.BigDecimal.ZERO;
+                for (CartItem item : cartItems) {
+                    totalAmount = totalAmount.add(item.getTotalPrice());
+                }
 
-            // 生成订单号
-            String orderNo = UUID.randomUUID().toString().replace("-", "");
-
-            // 创建订单
-            order = new Order();
-            order.setOrderNo(orderNo);
-            order.setUserId(userId);
-            order.setTotalPrice(totalAmount);
-            order.setReceiverAddress(address);
-            order.setReceiverPhone(phone);
-            order.setReceiverName(receiver);
-            order.setStatus(0); // 0表示待付款
-            order.setCreateTime(new Date());
-            order.setUpdateTime(new Date());
-
-            // 保存订单
-            orderDao.save(order);
-            
-            // 重新获取订单以获取生成的ID
-            order = orderDao.findByOrderNo(orderNo);
-            if (order == null) {
-                // 保存失败或查询失败，回滚事务
-                JDBCUtils.rollbackTransaction();
-                return null;
-            }
+                int itemCount = 0;
+                for (CartItem item : cartItems) {
+                    itemCount += item.getQuantity();
+                }
+
+                // 生成订单号（按时间递增，保持唯一索引顺序插入）
+                String orderNo = OrderNoGenerator.nextOrderNo();
+
+                // 创建订单
+                Order order = new Order();
+                order.setOrderNo(orderNo);
+                order.setUserId(userId);
+                order.setTotalPrice(totalAmount);
+                order.setReceiverAddress(address);
+                order.setReceiverPhone(phone);
+                order.setReceiverName(receiver);
+                order.setItemCount(itemCount);
+                order.setStatus(0); // 0表示待付款
+                order.setCreateTime(new Date());
+                order.setUpdateTime(new Date());
+
+                // 保存订单，直接使用数据库生成的ID
+                if (orderDao.save(order) <= 0) {
+                    // 保存失败，回滚事务
+                    status.setRollbackOnly();
+                    return null;
+                }
+                List<OrderItem> orderItems = new ArrayList<>();
+                order.setOrderItems(orderItems);
+
+                // 汇总每个商品的购买数量
+                Map<Integer, Integer> quantities = new HashMap<>();
+                for (CartItem cartItem : cartItems) {
+                    quantities.merge(cartItem.getProductId(), cartItem.getQuantity(), Integer::sum);
+                }
 
-            // 创建订单商品项并更新商品库存
-            for (CartItem cartItem : cartItems) {
-                // 更新商品库存
-                Product product = productDao.findById(cartItem.getProductId());
-                if (product != null) {
-                    // 检查库存是否足够
-                    if (product.getStock() < cartItem.getQuantity()) {
-                        JDBCUtils.rollbackTransaction();
+                // 一条SELECT ... FOR UPDATE按ID顺序锁定所有商品行，再校验库存
+                Map<Integer, Integer> stocks = productDao.lockStock(quantities.keySet());
+                for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                    Integer stock = stocks.get(entry.getKey());
+                    if (stock == null || stock < entry.getValue()) {
+                        // 商品不存在或库存不足，整单拒绝
+                        status.setRollbackOnly();
                         return null;
                     }
-                    product.setStock(product.getStock() - cartItem.getQuantity());
-                    productDao.updateStock(product.getId(), product.getStock());
+                }
+
+                // 批量条件扣减库存，任意商品扣减失败则整单回滚
+                if (!productDao.decreaseStock(quantities)) {
+                    status.setRollbackOnly();
+                    return null;
+                }
+                for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                    remaining.put(entry.getKey(), stocks.get(entry.getKey()) - entry.getValue());
                 }
 
                 // 创建订单商品项
-                OrderItem orderItem = new OrderItem();
-                orderItem.setOrderId(order.getId());
-                orderItem.setProductId(cartItem.getProductId());
-                orderItem.setPrice(cartItem.getPrice());
-                orderItem.setQuantity(cartItem.getQuantity());
-                orderItem.setProduct(cartItem.getProduct());
-                
-                // 保存订单商品项
-                orderDao.saveOrderItem(orderItem);
-            }
+                for (CartItem cartItem : cartItems) {
+                    OrderItem orderItem = new OrderItem();
+                    orderItem.setOrderId(order.getId());
+                    orderItem.setProductId(cartItem.getProductId());
+                    orderItem.setPrice(cartItem.getPrice());
+                    orderItem.setQuantity(cartItem.getQuantity());
+                    // 快照下单时的商品名称、图片与分类，商品后续改名、换图或改换分类不影响历史订单及销售汇总
+                    if (cartItem.getProduct() != null) {
+                        orderItem.setProductName(cartItem.getProduct().getName());
+                        orderItem.setProductImage(cartItem.getProduct().getImage());
+                        orderItem.setCategoryId(cartItem.getProduct().getCategoryId());
+                    }
+                    orderItems.add(orderItem);
+                }
+
+                // 批量保存订单商品项，条数不符则整单回滚
+                if (orderDao.saveOrderItems(orderItems) != orderItems.size()) {
+                    status.setRollbackOnly();
+                    return null;
+                }
 
-            // 清空购物车
-            cartDao.deleteCartItemsByCartId(cart.getId());
-            
-            // 提交事务
-            JDBCUtils.commitTransaction();
-            
-            return order;
-        } catch (SQLException e) {
-            // 回滚事务
-            try {
-                JDBCUtils.rollbackTransaction();
-            } catch (SQLException ex) {
-                ex.printStackTrace();
+                // 计入待付款销售汇总
+                salesRollupDao.applyOrder(order.getId(), 0, 1);
+
+                // 清空购物车
+                cartDao.deleteCartItemsByCartId(cart.getId());
+
+                return order;
+            });
+            if (created != null) {
+                // 下单成功后更新商品联想的销量排名
+                Map<Integer, Integer> sold = new HashMap<>();
+                for (OrderItem item : created.getOrderItems()) {
+                    sold.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+                }
+                ProductSuggester.getInstance().onSalesChanged(sold);
+                ProductFacetIndex.getInstance().onStockChanged(remaining);
+                // 事务提交后再次失效商品缓存，防止事务期间被其他请求读入旧库存
+                ProductCache.invalidateAll(remaining.keySet());
+                // 登记支付截止时间，超时未支付自动取消
+                OrderExpiryScheduler.register(created.getId(), created.getCreateTime());
             }
+            return created;
+        } catch (SQLException | DataAccessException e) {
             e.printStackTrace();
             return null;
         }
@@ -149,58 +196,169 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public boolean updateOrderStatus(Integer orderId, Integer status) {
-        Order order = orderDao.findById(orderId);
-        if (order == null) {
+        try {
+            // 状态变更与销售汇总的迁移在同一事务中完成
+            Boolean updated = new TransactionTemplate().execute(tx -> {
+                Order order = orderDao.findById(orderId);
+                if (order == null) {
+                    return false;
+                }
+                int oldStatus = order.getStatus();
+                if (oldStatus == 4 && status != 4) {
+                    // 已取消订单的库存已经恢复，不能再流转到其他状态
+                    return false;
+                }
+                if (oldStatus == status) {
+                    order.setUpdateTime(new Date());
+                    return orderDao.update(order) > 0;
+                }
+                // 条件更新，状态已被并发修改时放弃，避免汇总重复迁移
+                if (orderDao.updateStatusIfMatch(orderId, oldStatus, status) <= 0) {
+                    return false;
+                }
+                salesRollupDao.applyOrder(orderId, oldStatus, -1);
+                salesRollupDao.applyOrder(orderId, status, 1);
+                return true;
+            });
+            if (Boolean.TRUE.equals(updated) && status != 0) {
+                // 已离开待付款状态，不再需要超时取消
+                OrderExpiryScheduler.unregister(orderId);
+            }
+            return Boolean.TRUE.equals(updated);
+        } catch (SQLException | DataAccessException e) {
+            e.printStackTrace();
             return false;
         }
-
-        order.setStatus(status);
-        order.setUpdateTime(new Date());
-        
-        return orderDao.update(order) > 0;
     }
 
     @Override
-    public boolean cancelOrder(Integer orderId) {
-        Order order = orderDao.findById(orderId);
-        if (order == null || order.getStatus() != 0) { // 只能取消待付款的订单（0表示待付款）
+    public boolean payOrder(Integer orderId, Integer userId) {
+        try {
+            Boolean paid = new TransactionTemplate().execute(tx -> {
+                Order order = orderDao.findById(orderId);
+                if (order == null || !order.getUserId().equals(userId)) {
+                    return false;
+                }
+                // 超过支付期限的订单等待超时取消恢复库存，不再接受支付
+                if (order.getCreateTime() == null || System.currentTimeMillis()
+                        >= order.getCreateTime().getTime() + OrderExpiryScheduler.PAYMENT_TIMEOUT_MILLIS) {
+                    return false;
+                }
+                // 只允许待付款→待发货；与超时取消竞争时二者只有一个成功
+                if (orderDao.updateStatusIfMatch(orderId, 0, 1) <= 0) {
+                    return false;
+                }
+                salesRollupDao.applyOrder(orderId, 0, -1);
+                salesRollupDao.applyOrder(orderId, 1, 1);
+                return true;
+            });
+            if (Boolean.TRUE.equals(paid)) {
+                OrderExpiryScheduler.unregister(orderId);
+            }
+            return Boolean.TRUE.equals(paid);
+        } catch (SQLException | DataAccessException e) {
+            e.printStackTrace();
             return false;
         }
+    }
+
+    @Override
+    public boolean cancelOrder(Integer orderId) {
+        List<Integer> cancelled = cancelOrders(Collections.singletonList(orderId));
+        return cancelled != null && !cancelled.isEmpty();
+    }
+
+    @Override
+    public List<Integer> cancelOrders(List<Integer> orderIds) {
+        try {
+            // 订单状态更新与库存恢复在同一事务中完成，整批的库存合并后一次批量恢复
+            Map<Integer, Integer> restocked = new HashMap<>();
+            List<Integer> cancelled = new TransactionTemplate().execute(status -> {
+                restocked.clear();
+                List<Integer> ids = new ArrayList<>();
+                for (Integer orderId : orderIds) {
+                    // 只能取消待付款的订单（0表示待付款，4表示已取消）
+                    // 条件更新保证并发取消时只有一次成功，避免重复恢复库存
+                    if (orderDao.updateStatusIfMatch(orderId, 0, 4) <= 0) {
+                        continue;
+                    }
+                    salesRollupDao.applyOrder(orderId, 0, -1);
+                    salesRollupDao.applyOrder(orderId, 4, 1);
+                    ids.add(orderId);
+                }
 
-        // 更新订单状态为已取消
-        order.setStatus(4); // 4表示已取消
-        order.setUpdateTime(new Date());
-        
-        boolean result = orderDao.update(order) > 0;
-        if (result) {
-            // 恢复商品库存
-            List<OrderItem> orderItems = orderDao.findOrderItemsByOrderId(orderId);
-            for (OrderItem item : orderItems) {
-                Product product = productDao.findById(item.getProductId());
-                if (product != null) {
-                    product.setStock(product.getStock() + item.getQuantity());
-                    productDao.updateStock(product.getId(), product.getStock());
+                // 汇总需要恢复的库存并批量更新
+                for (List<OrderItem> items : orderDao.findOrderItemsByOrderIds(ids).values()) {
+                    for (OrderItem item : items) {
+                        restocked.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+                    }
+                }
+                if (!productDao.increaseStock(restocked)) {
+                    status.setRollbackOnly();
+                    return null;
                 }
+                return ids;
+            });
+            if (cancelled == null) {
+                return null;
+            }
+            for (Integer orderId : cancelled) {
+                OrderExpiryScheduler.unregister(orderId);
             }
+            if (!restocked.isEmpty()) {
+                // 取消的数量从商品联想的销量排名中扣除
+                Map<Integer, Integer> returned = new HashMap<>();
+                for (Map.Entry<Integer, Integer> entry : restocked.entrySet()) {
+                    returned.put(entry.getKey(), -entry.getValue());
+                }
+                ProductSuggester.getInstance().onSalesChanged(returned);
+                // 恢复库存后商品至少有本次恢复的数量，标记为有货
+                ProductFacetIndex.getInstance().onStockChanged(restocked);
+                ProductCache.invalidateAll(restocked.keySet());
+            }
+            return cancelled;
+        } catch (SQLException | DataAccessException e) {
+            e.printStackTrace();
+            return null;
         }
-
-        return result;
     }
 
     @Override
     public boolean deleteOrder(Integer orderId) {
-        // 检查订单是否存在
-        Order order = orderDao.findById(orderId);
-        if (order == null) {
+        try {
+            Boolean deleted = new TransactionTemplate().execute(tx -> {
+                // 检查订单是否存在
+                Order order = orderDao.findById(orderId);
+                if (order == null) {
+                    return false;
+                }
+
+                // 先从销售汇总中移出（需要读取订单商品项），再删除订单
+                salesRollupDao.applyOrder(orderId, order.getStatus(), -1);
+                // 删除订单（OrderDao的delete方法会自动删除订单商品项）
+                if (orderDao.delete(orderId) <= 0) {
+                    tx.setRollbackOnly();
+                    return false;
+                }
+                return true;
+            });
+            if (Boolean.TRUE.equals(deleted)) {
+                OrderExpiryScheduler.unregister(orderId);
+            }
+            return Boolean.TRUE.equals(deleted);
+        } catch (SQLException | DataAccessException e) {
+            e.printStackTrace();
             return false;
         }
+    }
 
-        // 删除订单（OrderDao的delete方法会自动删除订单商品项）
-        return orderDao.delete(orderId) > 0;
+    @Override
+    public List<Order> findByCursor(Integer status, Integer userId, Date startTime, Date endTime, OrderCursor after, int pageSize) {
+        return orderDao.findByCursor(status, userId, startTime, endTime, after, pageSize);
     }
 
     @Override
-    public List<Order> findAll() {
-        return orderDao.findAll();
+    public int streamOrders(Integer status, Integer userId, Date startTime, Date endTime, Consumer<Order> handler) {
+        return orderDao.streamFiltered(status, userId, startTime, endTime, handler);
     }
 }
\ No newline at end of file
@@ -1,23 +1,84 @@
 package com.ecommerce.service.impl;
 
+import com.ecommerce.dao.CategoryDao;
 import com.ecommerce.dao.ProductDao;
+import com.ecommerce.dao.impl.CategoryDaoImpl;
 import com.ecommerce.dao.impl.ProductDaoImpl;
+import com.ecommerce.pojo.PageResult;
 import com.ecommerce.pojo.Product;
+import com.ecommerce.search.ProductFacetIndex;
+import com.ecommerce.search.ProductSearchIndex;
+import com.ecommerce.search.ProductSuggester;
 import com.ecommerce.service.ProductService;
+import com.ecommerce.utils.CountCache;
+import com.ecommerce.utils.DataAccessException;
+import com.ecommerce.utils.ProductCache;
+import com.ecommerce.utils.ProductCursor;
+import com.ecommerce.utils.TransactionTemplate;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 商品业务逻辑实现类
+ * 商品新增、修改、删除与分类商品计数（category.product_count / active_product_count）的调整在同一事务中完成
  */
 public class ProductServiceImpl implements ProductService {
+    // 商品列表总数缓存（按筛选条件），商品新增、修改、删除时失效
+    private static final CountCache COUNT_CACHE = new CountCache(30 * 1000L, 1000);
+
     private ProductDao productDao = new ProductDaoImpl();
+    private CategoryDao categoryDao = new CategoryDaoImpl();
 
     @Override
     public Product findById(Integer id) {
+        // 先查跨请求缓存，未命中直接查询数据库：本请求批量加载器中的副本可能早于其他请求的失效，
+        // 在其后才读取的缓存版本号无法识别，写回会让旧数据留在缓存中
+        return ProductCache.get(id, productDao::findById);
+    }
+
+    @Override
+    public Product findByIdUncached(Integer id) {
         return productDao.findById(id);
     }
 
+    @Override
+    public Map<Integer, Product> findByIds(Collection<Integer> ids) {
+        Map<Integer, Product> result = new LinkedHashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            Product cached = ProductCache.getIfPresent(id);
+            if (cached != null) {
+                result.put(id, cached);
+            } else if (id != null) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long version = ProductCache.version();
+            // 与findById相同，绕过本请求的批量加载器，保证写回缓存的数据读取于版本号之后
+            Map<Integer, Product> loaded = productDao.findByIds(missing);
+            for (Product product : loaded.values()) {
+                ProductCache.put(product, version);
+            }
+            result.putAll(loaded);
+        }
+        // 保持传入ID的顺序
+        Map<Integer, Product> ordered = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            Product product = result.get(id);
+            if (product != null) {
+                ordered.put(id, product);
+            }
+        }
+        return ordered;
+    }
+
     @Override
     public List<Product> findAll() {
         return productDao.findAll();
@@ -56,8 +117,28 @@ public class ProductServiceImpl implements ProductService {
         }
         
         System.out.println("调用productDao.save()");
-        int result = productDao.save(product);
+        int result;
+        try {
+            Integer saved = new TransactionTemplate().execute(status -> {
+                int rows = productDao.save(product);
+                if (rows > 0) {
+                    categoryDao.adjustProductCounts(product.getCategoryId(), 1, isActive(product) ? 1 : 0);
+                }
+                return rows;
+            });
+            result = saved != null ? saved : 0;
+        } catch (SQLException | DataAccessException e) {
+            e.printStackTrace();
+            result = 0;
+        }
         System.out.println("productDao.save()返回结果: " + result);
+        if (result > 0) {
+            COUNT_CACHE.invalidateAll();
+            CategoryServiceImpl.invalidateSnapshot();
+            ProductSearchIndex.getInstance().onProductSaved(product);
+            ProductSuggester.getInstance().onProductSaved(product);
+            ProductFacetIndex.getInstance().onProductSaved(product);
+        }
         
         boolean success = result > 0;
         System.out.println("ProductServiceImpl.save()返回结果: " + success);
@@ -67,22 +148,100 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public boolean update(Product product) {
-        int result = productDao.update(product);
+        int result;
+        try {
+            Integer updated = new TransactionTemplate().execute(status -> {
+                // 锁定原记录，保证计数按修改前的分类与状态迁移
+                Product old = productDao.findByIdForUpdate(product.getId());
+                if (old == null) {
+                    return 0;
+                }
+                int rows = productDao.update(product);
+                if (rows > 0 && (!sameCategory(old, product) || isActive(old) != isActive(product))) {
+                    categoryDao.adjustProductCounts(old.getCategoryId(), -1, isActive(old) ? -1 : 0);
+                    categoryDao.adjustProductCounts(product.getCategoryId(), 1, isActive(product) ? 1 : 0);
+                }
+                return rows;
+            });
+            result = updated != null ? updated : 0;
+        } catch (SQLException | DataAccessException e) {
+            e.printStackTrace();
+            result = 0;
+        }
+        if (result > 0) {
+            // 事务提交后再次失效商品缓存，防止事务期间被其他请求读入旧数据
+            ProductCache.invalidate(product.getId());
+            // 上下架、分类、名称变化都会影响列表总数
+            COUNT_CACHE.invalidateAll();
+            CategoryServiceImpl.invalidateSnapshot();
+            ProductSearchIndex.getInstance().onProductSaved(product);
+            ProductSuggester.getInstance().onProductSaved(product);
+            ProductFacetIndex.getInstance().onProductSaved(product);
+        }
         return result > 0;
     }
 
     @Override
     public boolean updateStock(Integer productId, Integer quantity) {
         int result = productDao.updateStock(productId, quantity);
+        if (result > 0) {
+            ProductFacetIndex.getInstance().onStockChanged(Collections.singletonMap(productId, quantity));
+        }
         return result > 0;
     }
 
+    @Override
+    public boolean setStockShards(Integer productId, int shards) {
+        return productDao.setStockShards(productId, shards);
+    }
+
+    @Override
+    public int rebalanceStockShards() {
+        Map<Integer, Integer> synced = productDao.rebalanceStockShards();
+        ProductFacetIndex.getInstance().onStockChanged(synced);
+        return synced.size();
+    }
+
     @Override
     public boolean delete(Integer id) {
-        int result = productDao.delete(id);
+        int result;
+        try {
+            Integer deleted = new TransactionTemplate().execute(status -> {
+                Product old = productDao.findByIdForUpdate(id);
+                if (old == null) {
+                    return 0;
+                }
+                int rows = productDao.delete(id);
+                if (rows > 0) {
+                    categoryDao.adjustProductCounts(old.getCategoryId(), -1, isActive(old) ? -1 : 0);
+                }
+                return rows;
+            });
+            result = deleted != null ? deleted : 0;
+        } catch (SQLException | DataAccessException e) {
+            e.printStackTrace();
+            result = 0;
+        }
+        if (result > 0) {
+            // 事务提交后再次失效商品缓存，防止事务期间被其他请求读入旧数据
+            ProductCache.invalidate(id);
+            COUNT_CACHE.invalidateAll();
+            CategoryServiceImpl.invalidateSnapshot();
+            ProductSearchIndex.getInstance().onProductDeleted(id);
+            ProductSuggester.getInstance().onProductDeleted(id);
+            ProductFacetIndex.getInstance().onProductDeleted(id);
+        }
         return result > 0;
     }
 
+    private static boolean isActive(Product product) {
+        return product.getStatus() != null && product.getStatus() == 1;
+    }
+
+    private static boolean sameCategory(Product a, Product b) {
+        return a.getCategoryId() != null ? a.getCategoryId().equals(b.getCategoryId()) : b.getCategoryId() == null;
+    }
+
     /**
      * 分页查询商品
      */
@@ -110,6 +269,78 @@ public class ProductServiceImpl implements ProductService {
         return productDao.searchByPage(keyword, offset, pageSize);
     }
 
+    /**
+     * 分页查询商品及总数
+     */
+    @Override
+    public PageResult<Product> findProductPage(Integer categoryId, String keyword, int page, int pageSize, boolean exactCount) {
+        int offset = Math.max(0, (page - 1) * pageSize);
+        String countKey = countKey(categoryId, keyword);
+
+        if (!exactCount) {
+            // 近似总数：命中计数缓存时只查当前页
+            Integer cachedTotal = COUNT_CACHE.get(countKey);
+            if (cachedTotal != null) {
+                PageResult<Product> result = productDao.findPage(categoryId, keyword, offset, pageSize, false);
+                result.setTotal(cachedTotal);
+                result.setExactTotal(false);
+                return result;
+            }
+        }
+
+        // 精确总数：当前页与总数在同一条语句中查询，并刷新计数缓存
+        long version = COUNT_CACHE.version();
+        PageResult<Product> result = productDao.findPage(categoryId, keyword, offset, pageSize, true);
+        if (result.getTotal() >= 0) {
+            COUNT_CACHE.put(countKey, result.getTotal(), version);
+        }
+        return result;
+    }
+
+    /**
+     * 搜索商品
+     */
+    @Override
+    public PageResult<Product> searchProducts(String keyword, int page, int pageSize, boolean exactCount) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            // 空关键词等同于浏览全部商品
+            return findProductPage(null, null, page, pageSize, exactCount);
+        }
+        int offset = Math.max(0, (page - 1) * pageSize);
+        PageResult<Integer> hits = ProductSearchIndex.getInstance().search(keyword, offset, pageSize);
+        if (hits == null) {
+            // 仅在索引未就绪时走SQL模糊查询；索引未命中直接返回空结果，不再全表扫描
+            return findProductPage(null, keyword, page, pageSize, exactCount);
+        }
+        if (hits.getTotal() == 0) {
+            return new PageResult<>(new ArrayList<>(), 0, true);
+        }
+
+        // 按相关度顺序批量加载当前页商品
+        Map<Integer, Product> products = findByIds(hits.getItems());
+        List<Product> items = new ArrayList<>();
+        for (Integer id : hits.getItems()) {
+            Product product = products.get(id);
+            if (product != null) {
+                items.add(product);
+            }
+        }
+        return new PageResult<>(items, hits.getTotal(), true);
+    }
+
+    private static String countKey(Integer categoryId, String keyword) {
+        return (categoryId == null ? "*" : categoryId.toString()) + "|" + (keyword == null ? "*" : keyword);
+    }
+
+    /**
+     * 游标分页查询商品
+     */
+    @Override
+    public List<Product> findByCursor(Integer categoryId, String keyword, ProductCursor after, int pageSize) {
+        String safeKeyword = keyword == null || keyword.trim().isEmpty() ? null : keyword.trim();
+        return productDao.findByCursor(categoryId, safeKeyword, after, pageSize);
+    }
+
     /**
      * 获取商品总数
      */
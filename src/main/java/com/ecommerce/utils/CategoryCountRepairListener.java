@@ -0,0 +1,51 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.service.CategoryService;
+import com.ecommerce.service.impl.CategoryServiceImpl;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分类商品计数校正任务
+ * 计数由商品写入时增量维护，直接改库或异常中断可能造成偏差；启动后每小时按商品表重新计算一次，
+ * 只更新不一致的分类并输出修正数量
+ */
+public class CategoryCountRepairListener implements ServletContextListener {
+    // 首次执行延迟（分钟），避开启动时的初始化与索引构建
+    private static final long INITIAL_DELAY_MINUTES = 5;
+    private static final long PERIOD_MINUTES = 60;
+
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        CategoryService categoryService = new CategoryServiceImpl();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "category-count-repair");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            // 异常不能抛出，否则后续周期不再执行
+            try {
+                int repaired = categoryService.repairProductCounts();
+                if (repaired > 0) {
+                    System.out.println("分类商品计数校正完成，修正分类数：" + repaired);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }, INITIAL_DELAY_MINUTES, PERIOD_MINUTES, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.pojo.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分类树不可变快照
+ * 由全部分类一次性构建：父→子关系以下标数组（CSR格式）保存，每个节点的后代ID
+ * 按先序遍历预先计算为int[]。快照创建后不再修改，分类变更时整体重建并替换引用（写时复制），
+ * 读取方无需加锁，浏览分类时也不再查询数据库。
+ */
+public final class CategorySnapshot {
+    // 按findAll顺序（parent_id, sort, id）排列的分类，下标即节点编号
+    private final Category[] nodes;
+    private final Map<Integer, Integer> indexById;
+    // children[childStart[i] .. childStart[i + 1]) 为节点i的子节点下标
+    private final int[] childStart;
+    private final int[] children;
+    // 节点i及其全部后代的ID（先序）
+    private final int[][] subtreeIds;
+    // 顶级分类及其子树（子节点列表不可修改）
+    private final List<Category> tree;
+
+    private CategorySnapshot(List<Category> categories) {
+        int n = categories.size();
+        nodes = new Category[n];
+        indexById = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            nodes[i] = copyOf(categories.get(i));
+            indexById.put(nodes[i].getId(), i);
+        }
+
+        // 统计每个节点的子节点数，父分类不存在的节点视为顶级分类（下标n）
+        int[] parent = new int[n];
+        int[] counts = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            Integer pid = nodes[i].getParentId();
+            Integer p = pid != null ? indexById.get(pid) : null;
+            parent[i] = p != null && p != i ? p : n;
+            counts[parent[i]]++;
+        }
+        childStart = new int[n + 2];
+        for (int i = 0; i <= n; i++) {
+            childStart[i + 1] = childStart[i] + counts[i];
+        }
+        children = new int[n];
+        int[] fill = Arrays.copyOf(childStart, n + 1);
+        for (int i = 0; i < n; i++) {
+            children[fill[parent[i]]++] = i;
+        }
+
+        // 先序遍历，子树在preorder中是连续区间 [position[i], end[i])
+        int[] preorder = new int[n];
+        int[] position = new int[n];
+        int[] end = new int[n];
+        boolean[] visited = new boolean[n];
+        int size = 0;
+        int[] stack = new int[n + 1];
+        int[] cursor = new int[n + 1];
+        int depth = 0;
+        stack[0] = n;
+        cursor[0] = childStart[n];
+        while (depth >= 0) {
+            int node = stack[depth];
+            if (cursor[depth] < childStart[node + 1]) {
+                int child = children[cursor[depth]++];
+                if (visited[child]) {
+                    continue;
+                }
+                visited[child] = true;
+                position[child] = size;
+                preorder[size++] = nodes[child].getId();
+                stack[++depth] = child;
+                cursor[depth] = childStart[child];
+            } else {
+                if (node != n) {
+                    end[node] = size;
+                }
+                depth--;
+            }
+        }
+
+        subtreeIds = new int[n][];
+        for (int i = 0; i < n; i++) {
+            // 父子关系成环的脏数据不会从顶级分类遍历到，只包含自身
+            subtreeIds[i] = visited[i]
+                    ? Arrays.copyOfRange(preorder, position[i], end[i])
+                    : new int[]{nodes[i].getId()};
+        }
+
+        for (int i = 0; i < n; i++) {
+            nodes[i].setChildren(childList(i));
+        }
+        tree = childList(n);
+    }
+
+    /**
+     * 由全部分类构建快照
+     *
+     * @param categories 全部分类（按parent_id, sort, id排序）
+     * @return 分类快照
+     */
+    public static CategorySnapshot build(List<Category> categories) {
+        return new CategorySnapshot(categories);
+    }
+
+    private List<Category> childList(int index) {
+        int from = childStart[index];
+        int to = childStart[index + 1];
+        if (from == to) {
+            return Collections.emptyList();
+        }
+        List<Category> list = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            list.add(nodes[children[i]]);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * 获取分类树，树中对象为快照共享数据，调用方只能读取
+     *
+     * @return 顶级分类列表
+     */
+    public List<Category> getTree() {
+        return tree;
+    }
+
+    /**
+     * 根据ID查询分类
+     *
+     * @param id 分类ID
+     * @return 分类副本（不含子分类），不存在时返回null
+     */
+    public Category findById(Integer id) {
+        Integer index = id != null ? indexById.get(id) : null;
+        return index != null ? copyOf(nodes[index]) : null;
+    }
+
+    /**
+     * 查询所有分类
+     *
+     * @return 分类副本列表
+     */
+    public List<Category> findAll() {
+        List<Category> list = new ArrayList<>(nodes.length);
+        for (Category node : nodes) {
+            list.add(copyOf(node));
+        }
+        return list;
+    }
+
+    /**
+     * 根据父分类ID查询直接子分类
+     *
+     * @param parentId 父分类ID，0表示顶级分类
+     * @return 子分类副本列表
+     */
+    public List<Category> findByParentId(Integer parentId) {
+        List<Category> list = new ArrayList<>();
+        for (Category node : nodes) {
+            if (node.getParentId() != null && node.getParentId().equals(parentId)) {
+                list.add(copyOf(node));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 获取分类及其所有后代分类的ID
+     *
+     * @param id 分类ID
+     * @return 分类ID数组（先序，第一个为自身，为快照内部数组，调用方不得修改），分类不存在时返回null
+     */
+    public int[] getSubtreeIds(Integer id) {
+        Integer index = id != null ? indexById.get(id) : null;
+        return index != null ? subtreeIds[index] : null;
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    private static Category copyOf(Category source) {
+        Category copy = new Category();
+        copy.setId(source.getId());
+        copy.setName(source.getName());
+        copy.setParentId(source.getParentId());
+        copy.setLevel(source.getLevel());
+        copy.setSort(source.getSort());
+        copy.setIcon(source.getIcon());
+        copy.setDescription(source.getDescription());
+        copy.setCreateTime(source.getCreateTime());
+        copy.setUpdateTime(source.getUpdateTime());
+        copy.setProductCount(source.getProductCount());
+        copy.setActiveProductCount(source.getActiveProductCount());
+        return copy;
+    }
+}
@@ -0,0 +1,111 @@
+package com.ecommerce.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 计数缓存
+ * 按查询条件缓存COUNT结果，条目在TTL后过期，数据变更时整体失效。
+ * 写入时携带读取前的版本号，避免失效之前开始的计数在失效之后写回旧值。
+ *
+ * <pre>
+ * long version = cache.version();
+ * int total = 查询总数;
+ * cache.put(key, total, version);
+ * </pre>
+ */
+public class CountCache {
+
+    private static class Entry {
+        final int value;
+        final long expireAt;
+
+        Entry(int value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    /**
+     * @param ttlMillis 条目存活时间（毫秒）
+     * @param maxEntries 最大条目数，超出时清理过期条目，仍超出则清空
+     */
+    public CountCache(long ttlMillis, int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 获取缓存的计数
+     *
+     * @param key 查询条件
+     * @return 计数，未命中或已过期时返回null
+     */
+    public Integer get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expireAt < System.currentTimeMillis()) {
+            if (entry != null) {
+                entries.remove(key, entry);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * 当前版本号，计数查询前获取，写回时传入
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * 缓存计数，查询期间发生过失效时丢弃
+     *
+     * @param key 查询条件
+     * @param value 计数
+     * @param readVersion 查询前获取的版本号
+     */
+    public void put(String key, int value, long readVersion) {
+        if (readVersion != version.get()) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            long now = System.currentTimeMillis();
+            entries.values().removeIf(e -> e.expireAt < now);
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+        }
+        entries.put(key, new Entry(value, System.currentTimeMillis() + ttlMillis));
+        // 写入后再次校验，写入期间发生的失效同样生效
+        if (readVersion != version.get()) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * 使全部计数失效
+     */
+    public void invalidateAll() {
+        version.incrementAndGet();
+        entries.clear();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,23 @@
+package com.ecommerce.utils;
+
+import java.sql.SQLException;
+
+/**
+ * 数据访问异常
+ * 事务中DAO执行SQL失败时抛出，使事务回滚（死锁等可重试错误会由TransactionTemplate自动重试）
+ */
+public class DataAccessException extends RuntimeException {
+
+    public DataAccessException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    /**
+     * 获取原始SQL异常
+     *
+     * @return SQL异常
+     */
+    public SQLException getSQLException() {
+        return (SQLException) getCause();
+    }
+}
@@ -7,10 +7,31 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
 
 public class DatabaseInitListener implements ServletContextListener {
+    /**
+     * 数据库迁移脚本（位于sql/migration/目录），按顺序执行，每个脚本只执行一次。
+     * 新建数据库时ecommerce_init.sql已包含最新结构，所有迁移直接记为已执行。
+     */
+    private static final String[] MIGRATIONS = {
+            "V001__cart_item_unique_key",
+            "V002__product_listing_index",
+            "V003__category_closure",
+            "V004__sales_rollup",
+            "V005__sales_rollup_daily",
+            "V006__category_product_count",
+            "V007__order_console_index",
+            "V008__order_item_snapshot",
+            "V009__flash_sale",
+            "V010__product_stock_shard",
+            "V011__order_item_category"
+    };
+
     @Override
     public void contextInitialized(ServletContextEvent sce) {
         String hostUrl = "jdbc:mysql://localhost:3306/?useUnicode=true&characterEncoding=utf-8&useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true";
@@ -64,6 +85,11 @@ public class DatabaseInitListener implements ServletContextListener {
             } else {
                 System.out.println("数据库已存在且包含数据，跳过初始化");
             }
+
+            // 执行尚未执行的迁移脚本
+            try (Connection conn = DriverManager.getConnection(dbUrl, username, password)) {
+                migrate(conn, needInit);
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -73,6 +99,42 @@ public class DatabaseInitListener implements ServletContextListener {
     public void contextDestroyed(ServletContextEvent sce) {
     }
 
+    /**
+     * 执行数据库迁移，已执行的迁移记录在schema_migration表中
+     *
+     * @param conn 数据库连接
+     * @param freshInstall 是否刚由初始化脚本创建（此时只记录迁移，不执行）
+     */
+    private static void migrate(Connection conn, boolean freshInstall) throws Exception {
+        Set<String> applied = new HashSet<>();
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS schema_migration ("
+                    + "version VARCHAR(128) PRIMARY KEY, "
+                    + "applied_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
+                    + ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+            try (ResultSet rs = st.executeQuery("SELECT version FROM schema_migration")) {
+                while (rs.next()) {
+                    applied.add(rs.getString(1));
+                }
+            }
+        }
+        for (String version : MIGRATIONS) {
+            if (applied.contains(version)) {
+                continue;
+            }
+            if (!freshInstall) {
+                try (Statement st = conn.createStatement()) {
+                    executeSqlScript(st, readSqlScript("sql/migration/" + version + ".sql"));
+                }
+                System.out.println("数据库迁移完成：" + version);
+            }
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO schema_migration (version) VALUES (?)")) {
+                ps.setString(1, version);
+                ps.executeUpdate();
+            }
+        }
+    }
+
     /**
      * 读取SQL脚本文件
      */
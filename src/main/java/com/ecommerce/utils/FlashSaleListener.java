@@ -0,0 +1,29 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.service.FlashSaleService;
+import com.ecommerce.service.impl.FlashSaleServiceImpl;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * 秒杀生命周期
+ * 秒杀名额只保存在内存中：启动时结算上次运行遗留的进行中活动，停机时结束全部活动，
+ * 两种情况都会把未售出的预扣库存退回商品表
+ */
+public class FlashSaleListener implements ServletContextListener {
+    private final FlashSaleService flashSaleService = new FlashSaleServiceImpl();
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        int settled = flashSaleService.recover();
+        if (settled > 0) {
+            System.out.println("已结算遗留的秒杀活动：" + settled + "个");
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        flashSaleService.shutdown();
+    }
+}
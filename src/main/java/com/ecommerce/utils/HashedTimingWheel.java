@@ -0,0 +1,179 @@
+package com.ecommerce.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 哈希时间轮
+ * 时间轴被划分为固定长度的tick，wheelSize个槽位循环使用；定时任务按到期tick取模放入槽位，
+ * 超过一圈的任务记录剩余圈数。添加任务只是入队（O(1)、无锁），由唯一的工作线程在每个tick
+ * 把新任务转入槽位、扫描当前槽位，并把本tick到期的任务一次性交给处理器。
+ * 任意数量的定时任务只占用一个线程，到期精度为一个tick。
+ *
+ * @param <T> 任务携带的数据类型
+ */
+public class HashedTimingWheel<T> {
+
+    /**
+     * 定时任务，cancel后到期时不再交给处理器
+     */
+    public static final class Timeout<T> {
+        private final T payload;
+        private final long deadline;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+
+        private Timeout(T payload, long deadline) {
+            this.payload = payload;
+            this.deadline = deadline;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<List<Timeout<T>>> wheel;
+    private final Queue<Timeout<T>> pending = new ConcurrentLinkedQueue<>();
+    private final Consumer<List<T>> handler;
+    private final Thread worker;
+    private final long startTime;
+    private volatile boolean stopped;
+    // 已处理的tick数，只由工作线程读写
+    private long tick;
+
+    /**
+     * @param name 工作线程名称
+     * @param tickMillis 每个tick的毫秒数
+     * @param wheelSize 槽位数，向上取整为2的幂
+     * @param handler 到期任务处理器，在工作线程中按tick批量调用
+     */
+    public HashedTimingWheel(String name, long tickMillis, int wheelSize, Consumer<List<T>> handler) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMillis和wheelSize必须为正数");
+        }
+        int size = Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.handler = handler;
+        this.startTime = System.currentTimeMillis();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+    }
+
+    public void start() {
+        worker.start();
+    }
+
+    /**
+     * 停止工作线程，未到期的任务被丢弃
+     */
+    public void stop() {
+        stopped = true;
+        worker.interrupt();
+    }
+
+    /**
+     * 添加定时任务
+     *
+     * @param payload 任务数据
+     * @param deadline 到期时间（毫秒时间戳），已过期的任务在下一个tick交给处理器
+     * @return 定时任务
+     */
+    public Timeout<T> schedule(T payload, long deadline) {
+        Timeout<T> timeout = new Timeout<>(payload, deadline);
+        pending.offer(timeout);
+        return timeout;
+    }
+
+    /**
+     * 尚未转入槽位的任务数
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    private void run() {
+        while (!stopped) {
+            long tickDeadline = startTime + (tick + 1) * tickMillis;
+            long sleep = tickDeadline - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (stopped) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            transferPending();
+            List<T> expired = expire(wheel.get((int) (tick & mask)));
+            tick++;
+            if (!expired.isEmpty()) {
+                // 处理器抛出的异常不能终止工作线程
+                try {
+                    handler.accept(expired);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * 把新任务放入对应槽位；已过期的任务放入当前槽位
+     */
+    private void transferPending() {
+        Timeout<T> timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long calculated = Math.max(0, (timeout.deadline - startTime + tickMillis - 1) / tickMillis - 1);
+            long ticks = Math.max(calculated, tick);
+            timeout.remainingRounds = (ticks - tick) / wheel.size();
+            wheel.get((int) (ticks & mask)).add(timeout);
+        }
+    }
+
+    /**
+     * 扫描槽位：剩余圈数为0的任务到期，其余减少一圈；原地压缩槽位列表
+     */
+    private List<T> expire(List<Timeout<T>> bucket) {
+        List<T> expired = new ArrayList<>();
+        int kept = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            Timeout<T> timeout = bucket.get(i);
+            if (timeout.cancelled) {
+                continue;
+            }
+            if (timeout.remainingRounds <= 0) {
+                expired.add(timeout.payload);
+            } else {
+                timeout.remainingRounds--;
+                bucket.set(kept++, timeout);
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+        return expired;
+    }
+}
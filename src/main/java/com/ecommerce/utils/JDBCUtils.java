@@ -10,7 +10,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 数据库连接工具类
@@ -21,6 +25,15 @@ public class JDBCUtils {
     private static Properties properties;
     // 使用ThreadLocal存储当前线程的Connection，用于事务管理
     private static ThreadLocal<Connection> connectionThreadLocal = new ThreadLocal<>();
+    // 请求级连接绑定：开启后同一请求内的DAO调用共用一个连接，首次使用时才从连接池获取
+    private static ThreadLocal<RequestScope> requestScopeThreadLocal = new ThreadLocal<>();
+    private static boolean requestScopeEnabled;
+
+    // 连接池获取次数统计
+    private static final AtomicLong totalCheckouts = new AtomicLong();
+    private static final AtomicLong scopedRequests = new AtomicLong();
+    private static final AtomicLong scopedRequestCheckouts = new AtomicLong();
+    private static final AtomicInteger maxCheckoutsPerRequest = new AtomicInteger();
 
     static {
         // 加载数据库配置文件
@@ -34,6 +47,17 @@ public class JDBCUtils {
         } catch (IOException e) {
             throw new RuntimeException("Failed to load db.properties", e);
         }
+        requestScopeEnabled = Boolean.parseBoolean(properties.getProperty("requestScopedConnection", "true"));
+    }
+
+    /**
+     * 请求级连接状态
+     */
+    private static class RequestScope {
+        // 本请求绑定的连接，首次使用时才获取
+        private Connection connection;
+        // 本请求从连接池获取连接的次数
+        private int checkouts;
     }
 
     /**
@@ -48,7 +72,26 @@ public class JDBCUtils {
         if (conn != null) {
             return conn;
         }
-        
+
+        // 请求级绑定模式下复用本请求的连接，首次使用时获取
+        RequestScope scope = requestScopeThreadLocal.get();
+        if (scope != null) {
+            if (scope.connection == null || scope.connection.isClosed()) {
+                scope.connection = checkout();
+                scope.checkouts++;
+            }
+            return scope.connection;
+        }
+        return checkout();
+    }
+
+    /**
+     * 从连接池获取新的连接
+     *
+     * @return 数据库连接
+     * @throws SQLException SQL异常
+     */
+    private static Connection checkout() throws SQLException {
         // 如果数据源尚未初始化，则进行初始化
         if (dataSource == null) {
             synchronized (JDBCUtils.class) {
@@ -73,10 +116,70 @@ public class JDBCUtils {
             }
         }
         // 从数据源获取新的Connection
-        conn = dataSource.getConnection();
+        Connection conn = dataSource.getConnection();
+        totalCheckouts.incrementAndGet();
         return conn;
     }
 
+    /**
+     * 是否开启请求级连接绑定
+     *
+     * @return 是否开启
+     */
+    public static boolean isRequestScopeEnabled() {
+        return requestScopeEnabled;
+    }
+
+    /**
+     * 开始请求级连接绑定，连接在首次使用时才从连接池获取
+     */
+    public static void beginRequestScope() {
+        requestScopeThreadLocal.set(new RequestScope());
+    }
+
+    /**
+     * 结束请求级连接绑定，归还本请求使用的连接并记录获取次数
+     */
+    public static void endRequestScope() {
+        RequestScope scope = requestScopeThreadLocal.get();
+        if (scope == null) {
+            return;
+        }
+        requestScopeThreadLocal.remove();
+        if (scope.connection != null) {
+            try {
+                // 未正常结束的事务一律回滚
+                if (!scope.connection.getAutoCommit()) {
+                    scope.connection.rollback();
+                    scope.connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            } finally {
+                try {
+                    scope.connection.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        connectionThreadLocal.remove();
+        scopedRequests.incrementAndGet();
+        scopedRequestCheckouts.addAndGet(scope.checkouts);
+        maxCheckoutsPerRequest.accumulateAndGet(scope.checkouts, Math::max);
+    }
+
+    /**
+     * 判断连接是否由当前线程的事务或请求持有，持有中的连接不能由DAO关闭
+     */
+    private static boolean isBound(Connection conn) {
+        if (conn == connectionThreadLocal.get()) {
+            return true;
+        }
+        RequestScope scope = requestScopeThreadLocal.get();
+        return scope != null && conn == scope.connection;
+    }
+
     /**
      * 开启事务
      *
@@ -88,7 +191,7 @@ public class JDBCUtils {
         if (conn != null) {
             throw new SQLException("事务已经开启，不能重复开启");
         }
-        // 获取新的Connection
+        // 获取Connection（请求级绑定时复用本请求的连接）
         conn = getConnection();
         // 设置自动提交为false
         conn.setAutoCommit(false);
@@ -108,11 +211,13 @@ public class JDBCUtils {
             throw new SQLException("事务尚未开启，不能提交");
         }
         // 提交事务
-        conn.commit();
-        // 关闭Connection
-        conn.close();
-        // 从ThreadLocal中移除Connection
-        connectionThreadLocal.remove();
+        try {
+            conn.commit();
+        } finally {
+            // 从ThreadLocal中移除Connection，并归还或恢复连接
+            connectionThreadLocal.remove();
+            releaseTransactionConnection(conn);
+        }
     }
 
     /**
@@ -127,11 +232,93 @@ public class JDBCUtils {
             throw new SQLException("事务尚未开启，不能回滚");
         }
         // 回滚事务
-        conn.rollback();
-        // 关闭Connection
-        conn.close();
-        // 从ThreadLocal中移除Connection
-        connectionThreadLocal.remove();
+        try {
+            conn.rollback();
+        } finally {
+            // 从ThreadLocal中移除Connection，并归还或恢复连接
+            connectionThreadLocal.remove();
+            releaseTransactionConnection(conn);
+        }
+    }
+
+    /**
+     * 处理DAO中捕获的SQL异常
+     * 事务中抛出DataAccessException使事务回滚；非事务时保持原有行为，仅打印异常
+     *
+     * @param e SQL异常
+     */
+    public static void handleSQLException(SQLException e) {
+        if (connectionThreadLocal.get() != null) {
+            throw new DataAccessException(e);
+        }
+        e.printStackTrace();
+    }
+
+    /**
+     * 获取当前线程的事务连接
+     */
+    static Connection getTransactionConnection() {
+        return connectionThreadLocal.get();
+    }
+
+    /**
+     * 绑定或解除（传入null）当前线程的事务连接，供TransactionTemplate挂起/恢复事务
+     */
+    static void bindTransactionConnection(Connection conn) {
+        if (conn == null) {
+            connectionThreadLocal.remove();
+        } else {
+            connectionThreadLocal.set(conn);
+        }
+    }
+
+    /**
+     * 为新事务获取连接
+     *
+     * @param independent 是否必须使用独立于当前请求的新连接（REQUIRES_NEW）
+     */
+    static Connection openTransactionConnection(boolean independent) throws SQLException {
+        if (!independent) {
+            return getConnection();
+        }
+        Connection conn = checkout();
+        RequestScope scope = requestScopeThreadLocal.get();
+        if (scope != null) {
+            scope.checkouts++;
+        }
+        return conn;
+    }
+
+    /**
+     * 事务结束后处理连接：请求绑定的连接恢复自动提交后继续供本请求使用，否则归还连接池
+     */
+    static void releaseTransactionConnection(Connection conn) throws SQLException {
+        if (isBound(conn)) {
+            conn.setAutoCommit(true);
+        } else {
+            conn.close();
+        }
+    }
+
+    /**
+     * 获取连接池统计信息
+     *
+     * @return 统计数据：累计获取次数、绑定请求数、平均/最大每请求获取次数、活动/空闲连接数
+     */
+    public static Map<String, Object> getPoolStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long requests = scopedRequests.get();
+        stats.put("totalCheckouts", totalCheckouts.get());
+        stats.put("scopedRequests", requests);
+        stats.put("avgCheckoutsPerRequest", requests == 0 ? 0.0 : (double) scopedRequestCheckouts.get() / requests);
+        stats.put("maxCheckoutsPerRequest", maxCheckoutsPerRequest.get());
+        if (dataSource instanceof BasicDataSource) {
+            BasicDataSource ds = (BasicDataSource) dataSource;
+            stats.put("numActive", ds.getNumActive());
+            stats.put("numIdle", ds.getNumIdle());
+            stats.put("maxTotal", ds.getMaxTotal());
+        }
+        return stats;
     }
 
     /**
@@ -165,8 +352,8 @@ public class JDBCUtils {
                 e.printStackTrace();
             }
         }
-        // 如果当前线程有事务连接，则不关闭传入的连接
-        if (conn != null && connectionThreadLocal.get() == null) {
+        // 如果连接由当前线程的事务或请求持有，则不关闭传入的连接
+        if (conn != null && !isBound(conn)) {
             try {
                 conn.close();
             } catch (SQLException e) {
@@ -0,0 +1,76 @@
+package com.ecommerce.utils;
+
+/**
+ * LTTB（Largest-Triangle-Three-Buckets）降采样
+ * 保留首尾两点，中间的点均分为threshold-2个桶，每个桶选出与“上一个选中点”和“下一个桶平均点”
+ * 构成三角形面积最大的点。相比按桶取平均，能保留峰值与拐点，折线形状更接近原始数据。
+ */
+public final class LttbDownsampler {
+
+    private LttbDownsampler() {
+    }
+
+    /**
+     * 降采样
+     *
+     * @param x 横坐标（升序）
+     * @param y 纵坐标
+     * @param threshold 目标点数
+     * @return 选中点的下标（升序）；点数不超过目标或目标小于3时返回全部下标
+     */
+    public static int[] downsample(long[] x, double[] y, int threshold) {
+        int n = x.length;
+        if (threshold >= n || threshold < 3) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        int[] selected = new int[threshold];
+        int count = 0;
+        selected[count++] = 0;
+        // 中间n-2个点分成threshold-2个桶
+        double bucketSize = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int start = (int) Math.floor(bucket * bucketSize) + 1;
+            int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+
+            // 下一个桶的平均点（最后一个桶以末点为准）
+            int nextStart = end;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, n);
+            if (bucket == threshold - 3) {
+                nextStart = n - 1;
+                nextEnd = n;
+            }
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += x[i];
+                avgY += y[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            // 三角形面积（省略1/2），只用坐标差相乘，时间戳较大也不影响精度
+            double ax = x[a];
+            double ay = y[a];
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (y[i] - ay) - (ax - x[i]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+            selected[count++] = maxIndex;
+            a = maxIndex;
+        }
+        selected[count] = n - 1;
+        return selected;
+    }
+}
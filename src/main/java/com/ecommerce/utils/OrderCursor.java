@@ -0,0 +1,72 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.pojo.Order;
+
+import java.sql.Timestamp;
+
+/**
+ * 订单列表游标
+ * 由最后一个订单的(create_time, id)组成，序列化为"创建时间毫秒_订单ID"形式的字符串，
+ * 用于后台订单列表的游标（keyset）分页。
+ */
+public class OrderCursor {
+    private final Timestamp createTime;
+    private final int id;
+
+    public OrderCursor(Timestamp createTime, int id) {
+        this.createTime = createTime;
+        this.id = id;
+    }
+
+    /**
+     * 根据订单生成游标
+     *
+     * @param order 订单对象
+     * @return 游标，订单缺少创建时间或ID时返回null
+     */
+    public static OrderCursor of(Order order) {
+        if (order == null || order.getId() == null || order.getCreateTime() == null) {
+            return null;
+        }
+        return new OrderCursor(new Timestamp(order.getCreateTime().getTime()), order.getId());
+    }
+
+    /**
+     * 解析游标字符串
+     *
+     * @param value 游标字符串
+     * @return 游标，为空或格式不正确时返回null
+     */
+    public static OrderCursor parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        int sep = value.indexOf('_');
+        if (sep <= 0 || sep == value.length() - 1) {
+            return null;
+        }
+        try {
+            long millis = Long.parseLong(value.substring(0, sep).trim());
+            int id = Integer.parseInt(value.substring(sep + 1).trim());
+            if (millis < 0 || id <= 0) {
+                return null;
+            }
+            return new OrderCursor(new Timestamp(millis), id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public Timestamp getCreateTime() {
+        return createTime;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return createTime.getTime() + "_" + id;
+    }
+}
@@ -0,0 +1,123 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.service.OrderService;
+import com.ecommerce.service.impl.OrderServiceImpl;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 待付款订单超时取消
+ * 每个新订单按支付截止时间登记到哈希时间轮（O(1)，不占线程、不轮询数据库），到期的订单按批在一个事务中
+ * 取消并恢复库存；订单支付或被手动取消时撤销登记。启动时流式读取全部待付款订单重建时间轮，
+ * 停机期间已超时的订单在启动后的第一个tick取消。
+ */
+public class OrderExpiryScheduler implements ServletContextListener {
+    // 支付期限（毫秒）
+    public static final long PAYMENT_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+    // 时间轮：1秒一个tick，512个槽位（约8.5分钟一圈）
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 512;
+    // 每个事务最多取消的订单数
+    private static final int BATCH_SIZE = 100;
+    // 取消失败（如数据库不可用）时的重试间隔（毫秒）
+    private static final long RETRY_DELAY_MILLIS = 60 * 1000L;
+
+    private static final ConcurrentHashMap<Integer, HashedTimingWheel.Timeout<Integer>> TIMEOUTS = new ConcurrentHashMap<>();
+    private static volatile HashedTimingWheel<Integer> wheel;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        OrderService orderService = new OrderServiceImpl();
+        HashedTimingWheel<Integer> created = new HashedTimingWheel<>("order-expiry-wheel", TICK_MILLIS, WHEEL_SIZE,
+                orderIds -> cancelExpired(orderService, orderIds));
+        wheel = created;
+        // 先启动时间轮，重建期间新下的订单也能登记
+        created.start();
+
+        AtomicInteger restored = new AtomicInteger();
+        orderService.streamOrders(0, null, null, null, order -> {
+            if (order.getCreateTime() != null) {
+                register(order.getId(), order.getCreateTime());
+                restored.incrementAndGet();
+            }
+        });
+        System.out.println("待付款订单超时任务已重建：" + restored.get() + "个");
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        HashedTimingWheel<Integer> current = wheel;
+        wheel = null;
+        if (current != null) {
+            current.stop();
+        }
+        TIMEOUTS.clear();
+    }
+
+    /**
+     * 登记订单的支付截止时间
+     *
+     * @param orderId 订单ID
+     * @param createTime 下单时间
+     */
+    public static void register(Integer orderId, Date createTime) {
+        schedule(orderId, createTime.getTime() + PAYMENT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * 撤销订单的超时任务（订单已支付或已取消）
+     *
+     * @param orderId 订单ID
+     */
+    public static void unregister(Integer orderId) {
+        HashedTimingWheel.Timeout<Integer> timeout = TIMEOUTS.remove(orderId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * 当前登记中的订单数
+     */
+    public static int size() {
+        return TIMEOUTS.size();
+    }
+
+    private static void schedule(Integer orderId, long deadline) {
+        HashedTimingWheel<Integer> current = wheel;
+        if (current == null || orderId == null) {
+            return;
+        }
+        HashedTimingWheel.Timeout<Integer> previous = TIMEOUTS.put(orderId, current.schedule(orderId, deadline));
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    /**
+     * 在时间轮工作线程中调用：分批取消到期订单，失败的批次稍后重试
+     */
+    private static void cancelExpired(OrderService orderService, List<Integer> orderIds) {
+        for (int from = 0; from < orderIds.size(); from += BATCH_SIZE) {
+            List<Integer> batch = new ArrayList<>(orderIds.subList(from, Math.min(from + BATCH_SIZE, orderIds.size())));
+            for (Integer orderId : batch) {
+                TIMEOUTS.remove(orderId);
+            }
+            List<Integer> cancelled = orderService.cancelOrders(batch);
+            if (cancelled == null) {
+                long retryAt = System.currentTimeMillis() + RETRY_DELAY_MILLIS;
+                for (Integer orderId : batch) {
+                    schedule(orderId, retryAt);
+                }
+            } else if (!cancelled.isEmpty()) {
+                System.out.println("超时未支付订单已取消：" + cancelled);
+            }
+        }
+    }
+}
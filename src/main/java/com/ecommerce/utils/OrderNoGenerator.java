@@ -0,0 +1,119 @@
+package com.ecommerce.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单号生成器（Snowflake风格）
+ * 64位ID = 41位毫秒时间戳（自2024-01-01起）| 10位节点号 | 12位序列号，按生成时间递增。
+ * 最近一次的(时间戳, 序列号)保存在一个AtomicLong中，通过CAS分配，不加锁；
+ * 同一毫秒内序列号用完或系统时钟回拨时，沿用上次的时间戳继续递增，保证不重复且不倒退。
+ * 订单号为ID的13位Crockford Base32编码（定长、只含大写字母和数字，去掉了易混淆的I、L、O、U），
+ * 字符串顺序与ID数值顺序一致，新订单号总是插入到唯一索引的尾部，不会像随机UUID那样分散写入各个索引页。
+ * 多实例部署时需通过系统属性ecommerce.nodeId或环境变量ECOMMERCE_NODE_ID为每个实例配置不同的节点号（0-1023）。
+ */
+public final class OrderNoGenerator {
+    // 2024-01-01T00:00:00Z
+    private static final long EPOCH = 1704067200000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int ENCODED_LENGTH = 13;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private static final long NODE_ID = resolveNodeId();
+    // 最近一次分配的 (时间戳 << SEQUENCE_BITS) | 序列号
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private OrderNoGenerator() {
+    }
+
+    private static long resolveNodeId() {
+        String value = System.getProperty("ecommerce.nodeId");
+        if (value == null || value.trim().isEmpty()) {
+            value = System.getenv("ECOMMERCE_NODE_ID");
+        }
+        if (value == null || value.trim().isEmpty()) {
+            return 0;
+        }
+        try {
+            long nodeId = Long.parseLong(value.trim());
+            if (nodeId >= 0 && nodeId <= MAX_NODE) {
+                return nodeId;
+            }
+        } catch (NumberFormatException e) {
+            // 按无效配置处理
+        }
+        System.out.println("订单号节点号配置无效（应为0-" + MAX_NODE + "）：" + value + "，使用0");
+        return 0;
+    }
+
+    /**
+     * 生成下一个ID
+     *
+     * @return 64位ID（非负，按生成时间递增）
+     */
+    public static long nextId() {
+        while (true) {
+            long last = LAST.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            // 时间前进则序列号从0开始，否则（同一毫秒或时钟回拨）在上一个值上加1，序列号溢出时自然进位到下一毫秒
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (LAST.compareAndSet(last, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (NODE_ID << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 生成下一个订单号
+     *
+     * @return 13位订单号
+     */
+    public static String nextOrderNo() {
+        return encode(nextId());
+    }
+
+    /**
+     * 把ID编码为定长的Crockford Base32字符串
+     */
+    public static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 从订单号中取出生成时间
+     *
+     * @param orderNo 订单号
+     * @return 生成时间（毫秒），不是本生成器产生的订单号（如旧的UUID订单号）时返回-1
+     */
+    public static long timestampOf(String orderNo) {
+        if (orderNo == null || orderNo.length() != ENCODED_LENGTH) {
+            return -1;
+        }
+        long id = 0;
+        for (int i = 0; i < ENCODED_LENGTH; i++) {
+            int digit = indexOf(Character.toUpperCase(orderNo.charAt(i)));
+            if (digit < 0) {
+                return -1;
+            }
+            id = (id << 5) | digit;
+        }
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
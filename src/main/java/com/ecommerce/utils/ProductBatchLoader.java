@@ -0,0 +1,135 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.dao.ProductDao;
+import com.ecommerce.dao.impl.ProductDaoImpl;
+import com.ecommerce.pojo.Product;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 请求级商品批量加载器
+ * 收集同一个HTTP请求中需要的商品ID，在真正读取时合并为一次ProductDao.findByIds查询，
+ * 已加载的商品在本请求内复用。由RequestContextFilter在请求开始时绑定、结束时解绑。
+ */
+public class ProductBatchLoader {
+    // 当前线程（请求）绑定的加载器
+    private static final ThreadLocal<ProductBatchLoader> CURRENT = new ThreadLocal<>();
+
+    private final ProductDao productDao;
+    // 已登记但尚未查询的商品ID
+    private final Set<Integer> pendingIds = new LinkedHashSet<>();
+    // 已查询的商品，不存在的商品以null值记录，避免重复查询
+    private final Map<Integer, Product> loaded = new HashMap<>();
+
+    public ProductBatchLoader() {
+        this(new ProductDaoImpl());
+    }
+
+    public ProductBatchLoader(ProductDao productDao) {
+        this.productDao = productDao;
+    }
+
+    /**
+     * 为当前线程绑定新的加载器
+     */
+    public static void bind() {
+        CURRENT.set(new ProductBatchLoader());
+    }
+
+    /**
+     * 解除当前线程绑定的加载器
+     */
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    /**
+     * 获取当前请求的加载器，未绑定时返回一个仅本次使用的加载器
+     *
+     * @return 商品批量加载器
+     */
+    public static ProductBatchLoader current() {
+        ProductBatchLoader loader = CURRENT.get();
+        return loader != null ? loader : new ProductBatchLoader();
+    }
+
+    /**
+     * 商品被修改或删除后，丢弃当前请求中已加载的数据
+     *
+     * @param productId 商品ID
+     */
+    public static void evict(Integer productId) {
+        ProductBatchLoader loader = CURRENT.get();
+        if (loader != null && productId != null) {
+            loader.loaded.remove(productId);
+        }
+    }
+
+    /**
+     * 登记稍后需要的商品ID，不立即查询
+     *
+     * @param ids 商品ID集合
+     */
+    public void enqueue(Collection<Integer> ids) {
+        for (Integer id : ids) {
+            if (id != null && !loaded.containsKey(id)) {
+                pendingIds.add(id);
+            }
+        }
+    }
+
+    /**
+     * 加载单个商品，会连同已登记的其他ID一起查询
+     *
+     * @param id 商品ID
+     * @return 商品对象，不存在时返回null
+     */
+    public Product load(Integer id) {
+        if (id == null) {
+            return null;
+        }
+        if (!loaded.containsKey(id)) {
+            pendingIds.add(id);
+            dispatch();
+        }
+        return loaded.get(id);
+    }
+
+    /**
+     * 批量加载商品
+     *
+     * @param ids 商品ID集合
+     * @return 商品ID到商品对象的映射，不存在的商品不在映射中
+     */
+    public Map<Integer, Product> loadMany(Collection<Integer> ids) {
+        enqueue(ids);
+        dispatch();
+        Map<Integer, Product> result = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            Product product = loaded.get(id);
+            if (product != null) {
+                result.put(id, product);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 一次性查询所有已登记的商品ID
+     */
+    public void dispatch() {
+        if (pendingIds.isEmpty()) {
+            return;
+        }
+        Map<Integer, Product> products = productDao.findByIds(pendingIds);
+        for (Integer id : pendingIds) {
+            loaded.put(id, products.get(id));
+        }
+        pendingIds.clear();
+    }
+}
@@ -0,0 +1,124 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.pojo.Product;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 商品本地缓存（按商品ID，跨请求共享）
+ * 基于TinyLfuCache，商品写入（修改、库存变化、删除）后由ProductDaoImpl逐条失效；
+ * 缓存中保存与返回的都是副本，调用方修改返回的商品对象不会影响缓存。
+ * 库存敏感的场景（下单、库存校验）应直接查询数据库，不经过本缓存。
+ */
+public final class ProductCache {
+    // 最大缓存商品数
+    private static final int MAXIMUM_SIZE = 10000;
+    // 兜底存活时间：5分钟
+    private static final long TTL_MILLIS = 5 * 60 * 1000L;
+
+    private static final TinyLfuCache<Integer, Product> CACHE = new TinyLfuCache<>(MAXIMUM_SIZE, TTL_MILLIS);
+
+    private ProductCache() {
+    }
+
+    /**
+     * 读穿透获取商品
+     *
+     * @param id 商品ID
+     * @param loader 未命中时的加载函数
+     * @return 商品副本，不存在时返回null
+     */
+    public static Product get(Integer id, Function<Integer, Product> loader) {
+        if (id == null) {
+            return null;
+        }
+        return copyOf(CACHE.get(id, key -> copyOf(loader.apply(key))));
+    }
+
+    /**
+     * 获取已缓存的商品
+     *
+     * @param id 商品ID
+     * @return 商品副本，未缓存时返回null
+     */
+    public static Product getIfPresent(Integer id) {
+        return id == null ? null : copyOf(CACHE.getIfPresent(id));
+    }
+
+    /**
+     * 当前版本号，批量加载前获取，写回时传入
+     */
+    public static long version() {
+        return CACHE.version();
+    }
+
+    /**
+     * 写入批量加载的商品，加载期间发生过失效时丢弃
+     */
+    public static void put(Product product, long readVersion) {
+        if (product != null && product.getId() != null) {
+            CACHE.put(product.getId(), copyOf(product), readVersion);
+        }
+    }
+
+    /**
+     * 商品变更后失效
+     *
+     * @param id 商品ID
+     */
+    public static void invalidate(Integer id) {
+        if (id != null) {
+            CACHE.invalidate(id);
+        }
+    }
+
+    /**
+     * 批量失效（事务提交后再次失效，防止事务期间被其他请求读入旧数据）
+     *
+     * @param ids 商品ID集合
+     */
+    public static void invalidateAll(Collection<Integer> ids) {
+        for (Integer id : ids) {
+            invalidate(id);
+        }
+    }
+
+    /**
+     * 获取缓存统计信息
+     *
+     * @return 命中、未命中、淘汰次数、命中率及条目数
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hits = CACHE.getHits();
+        long misses = CACHE.getMisses();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("evictions", CACHE.getEvictions());
+        stats.put("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        stats.put("size", CACHE.size());
+        stats.put("maximumSize", CACHE.getMaximumSize());
+        return stats;
+    }
+
+    private static Product copyOf(Product product) {
+        if (product == null) {
+            return null;
+        }
+        Product copy = new Product();
+        copy.setId(product.getId());
+        copy.setName(product.getName());
+        copy.setCategoryId(product.getCategoryId());
+        copy.setPrice(product.getPrice());
+        copy.setStock(product.getStock());
+        copy.setDescription(product.getDescription());
+        copy.setImage(product.getImage());
+        copy.setStatus(product.getStatus());
+        copy.setCreateTime(product.getCreateTime());
+        copy.setUpdateTime(product.getUpdateTime());
+        return copy;
+    }
+}
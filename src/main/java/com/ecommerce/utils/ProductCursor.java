@@ -0,0 +1,72 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.pojo.Product;
+
+import java.sql.Timestamp;
+
+/**
+ * 商品列表游标
+ * 由最后一个商品的(create_time, id)组成，序列化为"创建时间毫秒_商品ID"形式的字符串，
+ * 用于游标（keyset）分页：下一页从该位置之后继续读取，而不是跳过offset行。
+ */
+public class ProductCursor {
+    private final Timestamp createTime;
+    private final int id;
+
+    public ProductCursor(Timestamp createTime, int id) {
+        this.createTime = createTime;
+        this.id = id;
+    }
+
+    /**
+     * 根据商品生成游标
+     *
+     * @param product 商品对象
+     * @return 游标，商品缺少创建时间或ID时返回null
+     */
+    public static ProductCursor of(Product product) {
+        if (product == null || product.getId() == null || product.getCreateTime() == null) {
+            return null;
+        }
+        return new ProductCursor(new Timestamp(product.getCreateTime().getTime()), product.getId());
+    }
+
+    /**
+     * 解析游标字符串
+     *
+     * @param value 游标字符串
+     * @return 游标，为空或格式不正确时返回null
+     */
+    public static ProductCursor parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        int sep = value.indexOf('_');
+        if (sep <= 0 || sep == value.length() - 1) {
+            return null;
+        }
+        try {
+            long millis = Long.parseLong(value.substring(0, sep).trim());
+            int id = Integer.parseInt(value.substring(sep + 1).trim());
+            if (millis < 0 || id <= 0) {
+                return null;
+            }
+            return new ProductCursor(new Timestamp(millis), id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public Timestamp getCreateTime() {
+        return createTime;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return createTime.getTime() + "_" + id;
+    }
+}
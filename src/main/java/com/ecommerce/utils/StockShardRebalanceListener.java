@@ -0,0 +1,47 @@
+package com.ecommerce.utils;
+
+import com.ecommerce.service.ProductService;
+import com.ecommerce.service.impl.ProductServiceImpl;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 库存分片均衡任务
+ * 扣减随机落在各分片上，个别分片会先于其他分片耗尽；定期把库存过低的商品重新均分，
+ * 并把分片合计同步到product.stock，供列表、筛选与库存预警使用
+ */
+public class StockShardRebalanceListener implements ServletContextListener {
+    private static final long INITIAL_DELAY_SECONDS = 10;
+    private static final long PERIOD_SECONDS = 10;
+
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        ProductService productService = new ProductServiceImpl();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-shard-rebalance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            // 异常不能抛出，否则后续周期不再执行
+            try {
+                productService.rebalanceStockShards();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }, INITIAL_DELAY_SECONDS, PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
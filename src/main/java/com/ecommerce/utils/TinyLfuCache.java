@@ -0,0 +1,291 @@
+package com.ecommerce.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 有界本地缓存（W-TinyLFU）
+ * 新数据先进入占容量1%的窗口LRU；被挤出窗口时，与主区（分段LRU：试用区20%、保护区80%）的淘汰候选比较访问频率，
+ * 频率更高者留下。访问频率由4位计数的Count-Min Sketch估算并定期减半，偶发的大量一次性访问不会冲掉热点数据。
+ * 条目另有存活时间作为兜底，避免极端情况下长期保留旧数据。
+ *
+ * 读穿透加载与失效并发时，加载前记录版本号，加载期间发生过失效则不写入缓存。
+ */
+public class TinyLfuCache<K, V> {
+
+    private static final class Node<V> {
+        V value;
+        long expireAt;
+
+        Node(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private final int maximumSize;
+    private final long ttlMillis;
+    private final int windowMax;
+    private final int mainMax;
+    private final int protectedMax;
+    // 三个分段均按访问顺序排列，迭代器第一个元素为最久未访问
+    private final LinkedHashMap<K, Node<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    private long version;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maximumSize 最大条目数
+     * @param ttlMillis 条目存活时间（毫秒）
+     */
+    public TinyLfuCache(int maximumSize, long ttlMillis) {
+        this.maximumSize = Math.max(2, maximumSize);
+        this.ttlMillis = ttlMillis;
+        this.windowMax = Math.max(1, this.maximumSize / 100);
+        this.mainMax = this.maximumSize - windowMax;
+        this.protectedMax = (int) (mainMax * 0.8);
+        this.sketch = new FrequencySketch(this.maximumSize);
+    }
+
+    /**
+     * 读穿透获取：未命中时调用loader加载并写入缓存
+     *
+     * @param key 键
+     * @param loader 加载函数，返回null时不缓存
+     * @return 值
+     */
+    public V get(K key, Function<K, V> loader) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        long readVersion = version();
+        value = loader.apply(key);
+        if (value != null) {
+            put(key, value, readVersion);
+        }
+        return value;
+    }
+
+    public synchronized V getIfPresent(K key) {
+        sketch.increment(key);
+        long now = System.currentTimeMillis();
+
+        Node<V> node = window.get(key);
+        if (node != null) {
+            return hitOrExpire(window, key, node, now);
+        }
+        node = protectedSegment.get(key);
+        if (node != null) {
+            return hitOrExpire(protectedSegment, key, node, now);
+        }
+        node = probation.remove(key);
+        if (node != null) {
+            if (node.expireAt < now) {
+                misses++;
+                return null;
+            }
+            // 试用区再次命中，晋升到保护区；保护区超出容量时最久未访问的条目降回试用区
+            protectedSegment.put(key, node);
+            if (protectedSegment.size() > protectedMax) {
+                Iterator<Map.Entry<K, Node<V>>> it = protectedSegment.entrySet().iterator();
+                Map.Entry<K, Node<V>> demoted = it.next();
+                it.remove();
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+            hits++;
+            return node.value;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * 当前版本号，读穿透加载前获取，写回时传入
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * 写入缓存，加载期间发生过失效时丢弃
+     *
+     * @param key 键
+     * @param value 值
+     * @param readVersion 加载前获取的版本号
+     */
+    public synchronized void put(K key, V value, long readVersion) {
+        if (readVersion != version) {
+            return;
+        }
+        Node<V> node = new Node<>(value, System.currentTimeMillis() + ttlMillis);
+        if (window.containsKey(key)) {
+            window.put(key, node);
+            return;
+        }
+        if (protectedSegment.containsKey(key)) {
+            protectedSegment.put(key, node);
+            return;
+        }
+        if (probation.containsKey(key)) {
+            probation.put(key, node);
+            return;
+        }
+        window.put(key, node);
+        if (window.size() > windowMax) {
+            Iterator<Map.Entry<K, Node<V>>> it = window.entrySet().iterator();
+            Map.Entry<K, Node<V>> candidate = it.next();
+            it.remove();
+            admit(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    /**
+     * 使单个条目失效
+     */
+    public synchronized void invalidate(K key) {
+        version++;
+        window.remove(key);
+        probation.remove(key);
+        protectedSegment.remove(key);
+    }
+
+    /**
+     * 使全部条目失效
+     */
+    public synchronized void invalidateAll() {
+        version++;
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    public synchronized int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private V hitOrExpire(LinkedHashMap<K, Node<V>> segment, K key, Node<V> node, long now) {
+        if (node.expireAt < now) {
+            segment.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return node.value;
+    }
+
+    /**
+     * 窗口淘汰的候选与主区淘汰的对象比较频率，决定谁留在缓存中
+     */
+    private void admit(K candidateKey, Node<V> candidate) {
+        if (probation.size() + protectedSegment.size() < mainMax) {
+            probation.put(candidateKey, candidate);
+            return;
+        }
+        LinkedHashMap<K, Node<V>> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+        Iterator<Map.Entry<K, Node<V>>> it = victimSegment.entrySet().iterator();
+        Map.Entry<K, Node<V>> victim = it.next();
+        evictions++;
+        if (sketch.frequency(candidateKey) > sketch.frequency(victim.getKey())) {
+            it.remove();
+            probation.put(candidateKey, candidate);
+        }
+    }
+
+    /**
+     * 4位计数的Count-Min Sketch，每个long容纳16个计数器，累计写入达到样本数时全部计数减半
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+        };
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final long ONE_MASK = 0x1111111111111111L;
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int size;
+
+        FrequencySketch(int maximumSize) {
+            int length = Integer.highestOneBit(Math.max(maximumSize, 16) - 1) << 1;
+            table = new long[length];
+            tableMask = length - 1;
+            sampleSize = 10 * maximumSize;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int offset = (start + i) << 2;
+                long mask = 0xfL << offset;
+                if ((table[index] & mask) != mask) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++size >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        private void reset() {
+            int odd = 0;
+            for (int i = 0; i < table.length; i++) {
+                odd += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            size = (size >>> 1) - (odd >>> 2);
+        }
+
+        private int indexOf(int item, int i) {
+            long hash = (item + SEEDS[i]) * SEEDS[i];
+            hash += hash >>> 32;
+            return ((int) hash) & tableMask;
+        }
+
+        private static int spread(int x) {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.ecommerce.utils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 事务模板
+ * 以回调方式执行事务，保证异常时一定回滚并归还连接，取代手工的begin/commit/rollback。
+ * 支持事务传播（REQUIRED/REQUIRES_NEW/NESTED）、基于保存点的嵌套事务、
+ * 隔离级别与只读设置，以及MySQL死锁/锁等待超时时的有限次数随机退避重试。
+ *
+ * <pre>
+ * Order order = new TransactionTemplate().execute(status -&gt; {
+ *     ...
+ *     if (库存不足) {
+ *         status.setRollbackOnly();
+ *         return null;
+ *     }
+ *     return order;
+ * });
+ * </pre>
+ */
+public class TransactionTemplate {
+
+    /**
+     * 事务传播行为
+     */
+    public enum Propagation {
+        // 已有事务则加入，否则开启新事务
+        REQUIRED,
+        // 挂起已有事务，使用新连接开启独立事务
+        REQUIRES_NEW,
+        // 已有事务则在保存点上执行，失败只回滚到保存点；否则开启新事务
+        NESTED
+    }
+
+    /**
+     * 事务回调
+     */
+    @FunctionalInterface
+    public interface TransactionCallback<T> {
+        T doInTransaction(TransactionStatus status) throws SQLException;
+    }
+
+    /**
+     * 事务状态，回调中可通过它标记回滚
+     */
+    public static class TransactionStatus {
+        private boolean rollbackOnly;
+        private final TransactionStatus outer;
+
+        private TransactionStatus(TransactionStatus outer) {
+            this.outer = outer;
+        }
+
+        /**
+         * 标记事务只能回滚，回调正常返回后也不会提交
+         */
+        public void setRollbackOnly() {
+            rollbackOnly = true;
+        }
+
+        public boolean isRollbackOnly() {
+            return rollbackOnly;
+        }
+
+        /**
+         * 是否为本次新开启的事务（加入已有事务时为false）
+         */
+        public boolean isNewTransaction() {
+            return outer == null;
+        }
+    }
+
+    // MySQL死锁错误码
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    // MySQL锁等待超时错误码
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    // 默认隔离级别（使用连接当前设置）
+    public static final int ISOLATION_DEFAULT = -1;
+
+    // 当前线程正在执行的事务状态
+    private static final ThreadLocal<TransactionStatus> currentStatus = new ThreadLocal<>();
+
+    private Propagation propagation = Propagation.REQUIRED;
+    private int isolation = ISOLATION_DEFAULT;
+    private boolean readOnly;
+    private int maxRetries = 3;
+    private long retryBackoffMillis = 50;
+
+    public TransactionTemplate() {
+    }
+
+    public TransactionTemplate(Propagation propagation) {
+        this.propagation = propagation;
+    }
+
+    public TransactionTemplate propagation(Propagation propagation) {
+        this.propagation = propagation;
+        return this;
+    }
+
+    /**
+     * @param isolation java.sql.Connection中的TRANSACTION_*常量
+     */
+    public TransactionTemplate isolation(int isolation) {
+        this.isolation = isolation;
+        return this;
+    }
+
+    public TransactionTemplate readOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+        return this;
+    }
+
+    /**
+     * @param maxRetries 死锁/锁等待超时时的最大重试次数，0表示不重试
+     */
+    public TransactionTemplate maxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * @param retryBackoffMillis 重试退避基数（毫秒），实际等待时间随重试次数递增并加入随机抖动
+     */
+    public TransactionTemplate retryBackoffMillis(long retryBackoffMillis) {
+        this.retryBackoffMillis = retryBackoffMillis;
+        return this;
+    }
+
+    /**
+     * 在事务中执行回调
+     *
+     * @param action 事务回调
+     * @return 回调返回值
+     * @throws SQLException SQL异常（事务已回滚）
+     */
+    public <T> T execute(TransactionCallback<T> action) throws SQLException {
+        Connection existing = JDBCUtils.getTransactionConnection();
+        if (existing == null) {
+            return executeInNewTransaction(action, false);
+        }
+        switch (propagation) {
+            case REQUIRES_NEW:
+                return executeSuspended(action, existing);
+            case NESTED:
+                return executeWithSavepoint(action, existing);
+            case REQUIRED:
+            default:
+                // 加入已有事务，回滚标记作用于外层事务
+                TransactionStatus outer = currentStatus.get();
+                return action.doInTransaction(outer != null ? outer : new TransactionStatus(null));
+        }
+    }
+
+    /**
+     * 挂起当前事务，在独立连接上执行新事务，完成后恢复
+     */
+    private <T> T executeSuspended(TransactionCallback<T> action, Connection suspended) throws SQLException {
+        TransactionStatus suspendedStatus = currentStatus.get();
+        JDBCUtils.bindTransactionConnection(null);
+        try {
+            return executeInNewTransaction(action, true);
+        } finally {
+            JDBCUtils.bindTransactionConnection(suspended);
+            currentStatus.set(suspendedStatus);
+        }
+    }
+
+    /**
+     * 在已有事务中设置保存点执行，失败或标记回滚时只回滚到保存点
+     */
+    private <T> T executeWithSavepoint(TransactionCallback<T> action, Connection conn) throws SQLException {
+        TransactionStatus outer = currentStatus.get();
+        TransactionStatus status = new TransactionStatus(outer);
+        Savepoint savepoint = conn.setSavepoint();
+        currentStatus.set(status);
+        try {
+            T result = action.doInTransaction(status);
+            if (status.isRollbackOnly()) {
+                conn.rollback(savepoint);
+            } else {
+                conn.releaseSavepoint(savepoint);
+            }
+            return result;
+        } catch (Throwable t) {
+            conn.rollback(savepoint);
+            throw t;
+        } finally {
+            currentStatus.set(outer);
+        }
+    }
+
+    /**
+     * 开启新事务执行，遇到死锁或锁等待超时时整体回滚并重试
+     */
+    private <T> T executeInNewTransaction(TransactionCallback<T> action, boolean independent) throws SQLException {
+        int attempt = 0;
+        while (true) {
+            // 重试前先退避：上一次的连接已在finally中回滚并归还，等待期间不占用连接
+            if (attempt > 0) {
+                backoff(attempt);
+            }
+            attempt++;
+            Connection conn = JDBCUtils.openTransactionConnection(independent);
+            int originalIsolation = conn.getTransactionIsolation();
+            boolean originalReadOnly = conn.isReadOnly();
+            TransactionStatus status = new TransactionStatus(null);
+            try {
+                if (isolation != ISOLATION_DEFAULT && isolation != originalIsolation) {
+                    conn.setTransactionIsolation(isolation);
+                }
+                if (readOnly && !originalReadOnly) {
+                    conn.setReadOnly(true);
+                }
+                conn.setAutoCommit(false);
+                JDBCUtils.bindTransactionConnection(conn);
+                currentStatus.set(status);
+
+                T result = action.doInTransaction(status);
+                if (status.isRollbackOnly()) {
+                    conn.rollback();
+                } else {
+                    conn.commit();
+                }
+                return result;
+            } catch (Throwable t) {
+                rollbackQuietly(conn);
+                if (attempt <= maxRetries && isRetryable(t)) {
+                    continue;
+                }
+                throw t;
+            } finally {
+                currentStatus.remove();
+                JDBCUtils.bindTransactionConnection(null);
+                restoreAndRelease(conn, originalIsolation, originalReadOnly);
+            }
+        }
+    }
+
+    /**
+     * 是否为可重试的锁冲突错误（死锁、锁等待超时）
+     */
+    static boolean isRetryable(Throwable t) {
+        while (t != null) {
+            if (t instanceof SQLException) {
+                SQLException e = (SQLException) t;
+                if (e.getErrorCode() == ER_LOCK_DEADLOCK || e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT
+                        || "40001".equals(e.getSQLState())) {
+                    return true;
+                }
+            }
+            t = t.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * 指数退避并加入随机抖动，避免冲突事务同时重试再次冲突
+     */
+    private void backoff(int attempt) {
+        long base = retryBackoffMillis * (1L << Math.min(attempt - 1, 6));
+        long sleep = base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+        try {
+            Thread.sleep(sleep);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 恢复连接的隔离级别与只读设置，并归还连接
+     */
+    private static void restoreAndRelease(Connection conn, int originalIsolation, boolean originalReadOnly) {
+        try {
+            conn.setAutoCommit(true);
+            if (conn.getTransactionIsolation() != originalIsolation) {
+                conn.setTransactionIsolation(originalIsolation);
+            }
+            if (conn.isReadOnly() != originalReadOnly) {
+                conn.setReadOnly(originalReadOnly);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                JDBCUtils.releaseTransactionConnection(conn);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -3,11 +3,16 @@ USE ecommerce_new;
 
 -- 删除所有表，确保重新创建
 SET FOREIGN_KEY_CHECKS = 0;
+DROP TABLE IF EXISTS flash_sale;
+DROP TABLE IF EXISTS product_stock_shard;
+DROP TABLE IF EXISTS sales_rollup_daily;
+DROP TABLE IF EXISTS sales_rollup;
 DROP TABLE IF EXISTS order_item;
 DROP TABLE IF EXISTS `order`;
 DROP TABLE IF EXISTS cart_item;
 DROP TABLE IF EXISTS cart;
 DROP TABLE IF EXISTS product;
+DROP TABLE IF EXISTS category_closure;
 DROP TABLE IF EXISTS category;
 DROP TABLE IF EXISTS user;
 SET FOREIGN_KEY_CHECKS = 1;
@@ -35,9 +40,20 @@ CREATE TABLE IF NOT EXISTS category (
   description TEXT,
   create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
   update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  product_count INT NOT NULL DEFAULT 0,
+  active_product_count INT NOT NULL DEFAULT 0,
   UNIQUE KEY uk_name_parent (name, parent_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- 分类闭包表：每个分类与其所有祖先（含自身，depth为0）各一行
+CREATE TABLE IF NOT EXISTS category_closure (
+  ancestor_id INT NOT NULL,
+  descendant_id INT NOT NULL,
+  depth INT NOT NULL,
+  PRIMARY KEY (ancestor_id, descendant_id),
+  KEY idx_descendant_ancestor (descendant_id, ancestor_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 CREATE TABLE IF NOT EXISTS product (
   id INT AUTO_INCREMENT PRIMARY KEY,
   name VARCHAR(128) NOT NULL,
@@ -47,10 +63,13 @@ CREATE TABLE IF NOT EXISTS product (
   description TEXT,
   image VARCHAR(1024),
   status INT DEFAULT 1,
+  stock_shards INT NOT NULL DEFAULT 0,
   create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
   update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
   FOREIGN KEY (category_id) REFERENCES category(id),
-  UNIQUE KEY uk_name_category (name, category_id)
+  UNIQUE KEY uk_name_category (name, category_id),
+  KEY idx_status_create_time_id (status, create_time, id),
+  KEY idx_category_status_create_time_id (category_id, status, create_time, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 CREATE TABLE IF NOT EXISTS cart (
@@ -66,6 +85,7 @@ CREATE TABLE IF NOT EXISTS cart_item (
   cart_id INT NOT NULL,
   product_id INT NOT NULL,
   quantity INT NOT NULL DEFAULT 1,
+  UNIQUE KEY uk_cart_product (cart_id, product_id),
   FOREIGN KEY (cart_id) REFERENCES cart(id) ON DELETE CASCADE,
   FOREIGN KEY (product_id) REFERENCES product(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -79,8 +99,12 @@ CREATE TABLE IF NOT EXISTS `order` (
   receiver_name VARCHAR(64),
   receiver_phone VARCHAR(32),
   receiver_address VARCHAR(255),
+  item_count INT NOT NULL DEFAULT 0,
   create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
   update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  KEY idx_create_time_id (create_time, id),
+  KEY idx_status_create_time_id (status, create_time, id),
+  KEY idx_user_create_time_id (user_id, create_time, id),
   FOREIGN KEY (user_id) REFERENCES user(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
@@ -88,12 +112,62 @@ CREATE TABLE IF NOT EXISTS order_item (
   id INT AUTO_INCREMENT PRIMARY KEY,
   order_id INT NOT NULL,
   product_id INT NOT NULL,
+  product_name VARCHAR(128),
+  product_image VARCHAR(1024),
+  category_id INT,
   quantity INT NOT NULL DEFAULT 1,
   price DECIMAL(10,2) DEFAULT 0.00,
   FOREIGN KEY (order_id) REFERENCES `order`(id) ON DELETE CASCADE,
   FOREIGN KEY (product_id) REFERENCES product(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- 秒杀活动：开始时预扣reserved件库存到内存令牌，结束时把reserved - sold退回商品库存
+CREATE TABLE IF NOT EXISTS flash_sale (
+  id INT AUTO_INCREMENT PRIMARY KEY,
+  product_id INT NOT NULL,
+  price DECIMAL(10,2) NOT NULL,
+  reserved INT NOT NULL,
+  sold INT NOT NULL DEFAULT 0,
+  status INT NOT NULL DEFAULT 1,
+  start_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  end_time TIMESTAMP NULL,
+  KEY idx_status_product (status, product_id),
+  FOREIGN KEY (product_id) REFERENCES product(id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 库存分片：stock_shards > 0的商品库存拆分到多行，扣减随机选择一个分片，读取时按分片合计
+CREATE TABLE IF NOT EXISTS product_stock_shard (
+  product_id INT NOT NULL,
+  shard_no INT NOT NULL,
+  quantity INT NOT NULL DEFAULT 0,
+  PRIMARY KEY (product_id, shard_no),
+  FOREIGN KEY (product_id) REFERENCES product(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 销售汇总：按(小时, 分类, 订单状态)预聚合，category_id为0的行为整单合计
+CREATE TABLE IF NOT EXISTS sales_rollup (
+  stat_hour DATETIME NOT NULL,
+  category_id INT NOT NULL,
+  status INT NOT NULL,
+  order_count INT NOT NULL DEFAULT 0,
+  item_quantity INT NOT NULL DEFAULT 0,
+  amount DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+  PRIMARY KEY (stat_hour, category_id, status),
+  KEY idx_category_status_hour (category_id, status, stat_hour)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 按天销售汇总，结构与小时汇总相同，供长时间范围的报表使用
+CREATE TABLE IF NOT EXISTS sales_rollup_daily (
+  stat_date DATE NOT NULL,
+  category_id INT NOT NULL,
+  status INT NOT NULL,
+  order_count INT NOT NULL DEFAULT 0,
+  item_quantity INT NOT NULL DEFAULT 0,
+  amount DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+  PRIMARY KEY (stat_date, category_id, status),
+  KEY idx_category_status_date (category_id, status, stat_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 INSERT IGNORE INTO user (username, password, email, phone, address, status, role) VALUES
 ('devuser', MD5('dev123456'), 'dev@local.test', '13800000000', 'Beijing Road 1', 1, 'admin'),
 ('alice', MD5('alice123'), 'alice@example.com', '13900000000', 'Shenzhen Road 2', 1, 'user');
@@ -211,3 +285,46 @@ UPDATE product SET stock = stock - 1 WHERE id=@pFlagship AND stock >= 1;
 UPDATE product SET stock = stock - 3 WHERE id=@pTshirt AND stock >= 3;
 UPDATE product SET stock = stock - 1 WHERE id=@pAir AND stock >= 1;
 UPDATE product SET stock = stock - 2 WHERE id=@pDress AND stock >= 2;
+
+-- 生成分类闭包表
+INSERT IGNORE INTO category_closure (ancestor_id, descendant_id, depth)
+WITH RECURSIVE tree (ancestor_id, descendant_id, depth) AS (
+  SELECT id, id, 0 FROM category
+  UNION ALL
+  SELECT tree.ancestor_id, c.id, tree.depth + 1
+  FROM tree JOIN category c ON c.parent_id = tree.descendant_id
+  WHERE tree.depth < 32
+)
+SELECT ancestor_id, descendant_id, depth FROM tree;
+
+-- 补全订单商品快照与订单件数
+UPDATE order_item oi JOIN product p ON p.id = oi.product_id
+SET oi.product_name = p.name, oi.product_image = p.image, oi.category_id = p.category_id;
+
+UPDATE `order` o JOIN (SELECT order_id, SUM(quantity) AS quantity FROM order_item GROUP BY order_id) q ON q.order_id = o.id
+SET o.item_count = q.quantity;
+
+-- 生成分类商品计数（含子孙分类）
+UPDATE category c LEFT JOIN (
+  SELECT cc.ancestor_id, COUNT(*) AS total, SUM(p.status = 1) AS active
+  FROM category_closure cc JOIN product p ON p.category_id = cc.descendant_id
+  GROUP BY cc.ancestor_id
+) t ON t.ancestor_id = c.id
+SET c.product_count = COALESCE(t.total, 0), c.active_product_count = COALESCE(t.active, 0);
+
+-- 生成销售汇总
+INSERT INTO sales_rollup (stat_hour, category_id, status, order_count, item_quantity, amount)
+SELECT DATE_FORMAT(o.create_time, '%Y-%m-%d %H:00:00') AS d_hour, oi.category_id, o.status,
+  COUNT(DISTINCT o.id), SUM(oi.quantity), SUM(oi.price * oi.quantity)
+FROM `order` o JOIN order_item oi ON oi.order_id = o.id
+GROUP BY d_hour, oi.category_id, o.status;
+
+INSERT INTO sales_rollup (stat_hour, category_id, status, order_count, item_quantity, amount)
+SELECT DATE_FORMAT(o.create_time, '%Y-%m-%d %H:00:00') AS d_hour, 0, o.status,
+  COUNT(*), COALESCE(SUM(q.quantity), 0), SUM(o.total_amount)
+FROM `order` o LEFT JOIN (SELECT order_id, SUM(quantity) AS quantity FROM order_item GROUP BY order_id) q ON q.order_id = o.id
+GROUP BY d_hour, o.status;
+
+INSERT INTO sales_rollup_daily (stat_date, category_id, status, order_count, item_quantity, amount)
+SELECT DATE(stat_hour) AS d_date, category_id, status, SUM(order_count), SUM(item_quantity), SUM(amount)
+FROM sales_rollup GROUP BY d_date, category_id, status;
@@ -0,0 +1,17 @@
+-- 购物车商品项按(cart_id, product_id)唯一，支持INSERT ... ON DUPLICATE KEY UPDATE批量合并
+
+-- 合并已存在的重复商品项：数量累加到ID最小的一行
+UPDATE cart_item ci
+JOIN (
+  SELECT MIN(id) AS keep_id, SUM(quantity) AS total_quantity
+  FROM cart_item
+  GROUP BY cart_id, product_id
+  HAVING COUNT(*) > 1
+) dup ON ci.id = dup.keep_id
+SET ci.quantity = dup.total_quantity;
+
+-- 删除其余重复行
+DELETE ci FROM cart_item ci
+JOIN cart_item keep ON ci.cart_id = keep.cart_id AND ci.product_id = keep.product_id AND ci.id > keep.id;
+
+ALTER TABLE cart_item ADD UNIQUE KEY uk_cart_product (cart_id, product_id);
@@ -0,0 +1,4 @@
+-- 商品列表按(create_time, id)倒序分页，游标分页依赖该顺序的索引范围扫描
+ALTER TABLE product
+  ADD INDEX idx_status_create_time_id (status, create_time, id),
+  ADD INDEX idx_category_status_create_time_id (category_id, status, create_time, id);
@@ -0,0 +1,19 @@
+-- 分类闭包表：查询某分类及其所有子孙分类的商品时只需一次索引关联，不再拼接IN列表
+CREATE TABLE IF NOT EXISTS category_closure (
+  ancestor_id INT NOT NULL,
+  descendant_id INT NOT NULL,
+  depth INT NOT NULL,
+  PRIMARY KEY (ancestor_id, descendant_id),
+  KEY idx_descendant_ancestor (descendant_id, ancestor_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 由已有分类的parent_id递归生成闭包记录（深度限制防止脏数据成环）
+INSERT IGNORE INTO category_closure (ancestor_id, descendant_id, depth)
+WITH RECURSIVE tree (ancestor_id, descendant_id, depth) AS (
+  SELECT id, id, 0 FROM category
+  UNION ALL
+  SELECT tree.ancestor_id, c.id, tree.depth + 1
+  FROM tree JOIN category c ON c.parent_id = tree.descendant_id
+  WHERE tree.depth < 32
+)
+SELECT ancestor_id, descendant_id, depth FROM tree;
@@ -0,0 +1,18 @@
+-- 按天销售汇总：长时间范围（数月至数年）的销售曲线按天读取，每天每个状态一行
+CREATE TABLE IF NOT EXISTS sales_rollup_daily (
+  stat_date DATE NOT NULL,
+  category_id INT NOT NULL,
+  status INT NOT NULL,
+  order_count INT NOT NULL DEFAULT 0,
+  item_quantity INT NOT NULL DEFAULT 0,
+  amount DECIMAL(14,2) NOT NULL DEFAULT 0.00,
+  PRIMARY KEY (stat_date, category_id, status),
+  KEY idx_category_status_date (category_id, status, stat_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 由小时汇总回填
+DELETE FROM sales_rollup_daily;
+
+INSERT INTO sales_rollup_daily (stat_date, category_id, status, order_count, item_quantity, amount)
+SELECT DATE(stat_hour) AS d_date, category_id, status, SUM(order_count), SUM(item_quantity), SUM(amount)
+FROM sales_rollup GROUP BY d_date, category_id, status;
@@ -0,0 +1,12 @@
+-- 分类商品计数：product_count为分类及其子孙分类下的商品总数，active_product_count为其中上架的数量
+ALTER TABLE category
+  ADD COLUMN product_count INT NOT NULL DEFAULT 0,
+  ADD COLUMN active_product_count INT NOT NULL DEFAULT 0;
+
+-- 由商品表回填
+UPDATE category c LEFT JOIN (
+  SELECT cc.ancestor_id, COUNT(*) AS total, SUM(p.status = 1) AS active
+  FROM category_closure cc JOIN product p ON p.category_id = cc.descendant_id
+  GROUP BY cc.ancestor_id
+) t ON t.ancestor_id = c.id
+SET c.product_count = COALESCE(t.total, 0), c.active_product_count = COALESCE(t.active, 0);
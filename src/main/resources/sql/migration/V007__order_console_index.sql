@@ -0,0 +1,6 @@
+-- 后台订单列表按(create_time, id)倒序游标分页，可按状态、用户、下单时间筛选；每种筛选都有以(create_time, id)结尾的索引，
+-- 定位游标后只做索引范围扫描。user_id外键改由idx_user_create_time_id支撑
+ALTER TABLE `order`
+  ADD INDEX idx_create_time_id (create_time, id),
+  ADD INDEX idx_status_create_time_id (status, create_time, id),
+  ADD INDEX idx_user_create_time_id (user_id, create_time, id);
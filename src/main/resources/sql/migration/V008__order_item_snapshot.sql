@@ -0,0 +1,14 @@
+-- 订单商品项保存下单时的商品名称与图片，订单保存商品总件数；订单列表与详情不再关联product表
+ALTER TABLE order_item
+  ADD COLUMN product_name VARCHAR(128) AFTER product_id,
+  ADD COLUMN product_image VARCHAR(1024) AFTER product_name;
+
+ALTER TABLE `order`
+  ADD COLUMN item_count INT NOT NULL DEFAULT 0 AFTER receiver_address;
+
+-- 历史订单以当前商品信息回填
+UPDATE order_item oi JOIN product p ON p.id = oi.product_id
+SET oi.product_name = p.name, oi.product_image = p.image;
+
+UPDATE `order` o JOIN (SELECT order_id, SUM(quantity) AS quantity FROM order_item GROUP BY order_id) q ON q.order_id = o.id
+SET o.item_count = q.quantity;
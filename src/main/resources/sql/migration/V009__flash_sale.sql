@@ -0,0 +1,14 @@
+-- 秒杀活动：开始时从商品库存中预扣reserved件放入内存令牌，售出的件数随订单落库累加到sold，
+-- 结束（或异常重启后恢复）时把reserved - sold退回商品库存
+CREATE TABLE IF NOT EXISTS flash_sale (
+  id INT AUTO_INCREMENT PRIMARY KEY,
+  product_id INT NOT NULL,
+  price DECIMAL(10,2) NOT NULL,
+  reserved INT NOT NULL,
+  sold INT NOT NULL DEFAULT 0,
+  status INT NOT NULL DEFAULT 1,
+  start_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  end_time TIMESTAMP NULL,
+  KEY idx_status_product (status, product_id),
+  FOREIGN KEY (product_id) REFERENCES product(id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
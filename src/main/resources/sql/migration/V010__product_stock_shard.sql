@@ -0,0 +1,12 @@
+-- 库存分片：热门商品的库存拆分为stock_shards行，扣减只锁其中一行，不再争用同一商品行；
+-- stock_shards为0表示未分片，此时库存仍以product.stock为准；分片商品的product.stock由后台任务定期按分片合计同步
+ALTER TABLE product
+  ADD COLUMN stock_shards INT NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS product_stock_shard (
+  product_id INT NOT NULL,
+  shard_no INT NOT NULL,
+  quantity INT NOT NULL DEFAULT 0,
+  PRIMARY KEY (product_id, shard_no),
+  FOREIGN KEY (product_id) REFERENCES product(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -0,0 +1,27 @@
+-- 订单商品项保存下单时的商品分类，销售汇总按该快照分类计入与移出，商品改换分类后增减仍落在同一分类
+ALTER TABLE order_item
+  ADD COLUMN category_id INT AFTER product_image;
+
+-- 历史订单以当前商品分类回填
+UPDATE order_item oi JOIN product p ON p.id = oi.product_id
+SET oi.category_id = p.category_id;
+
+-- 按回填后的分类重建销售汇总，消除此前商品改换分类造成的偏差
+DELETE FROM sales_rollup;
+DELETE FROM sales_rollup_daily;
+
+INSERT INTO sales_rollup (stat_hour, category_id, status, order_count, item_quantity, amount)
+SELECT DATE_FORMAT(o.create_time, '%Y-%m-%d %H:00:00') AS d_hour, oi.category_id, o.status,
+  COUNT(DISTINCT o.id), SUM(oi.quantity), SUM(oi.price * oi.quantity)
+FROM `order` o JOIN order_item oi ON oi.order_id = o.id
+GROUP BY d_hour, oi.category_id, o.status;
+
+INSERT INTO sales_rollup (stat_hour, category_id, status, order_count, item_quantity, amount)
+SELECT DATE_FORMAT(o.create_time, '%Y-%m-%d %H:00:00') AS d_hour, 0, o.status,
+  COUNT(*), COALESCE(SUM(q.quantity), 0), SUM(o.total_amount)
+FROM `order` o LEFT JOIN (SELECT order_id, SUM(quantity) AS quantity FROM order_item GROUP BY order_id) q ON q.order_id = o.id
+GROUP BY d_hour, o.status;
+
+INSERT INTO sales_rollup_daily (stat_date, category_id, status, order_count, item_quantity, amount)
+SELECT DATE(stat_hour) AS d_date, category_id, status, SUM(order_count), SUM(item_quantity), SUM(amount)
+FROM sales_rollup GROUP BY d_date, category_id, status;
@@ -1,4 +1,7 @@
 <%@ page language="java" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8"%>
+<%@ page import="com.ecommerce.utils.CSRFTokenUtils" %>
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
+<%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt" %>
 <!DOCTYPE html>
 <html lang="zh-CN">
 <head>
@@ -49,10 +52,17 @@
             margin-bottom: 20px;
             color: #333;
         }
-        #categoryChart {
+        #categoryChart, #salesChart {
             width: 100%;
             height: 400px;
         }
+        .chart-toolbar {
+            margin-bottom: 10px;
+        }
+        .chart-toolbar select {
+            padding: 6px;
+            margin-right: 10px;
+        }
     </style>
     <!-- 引入 ECharts -->
     <script src="https://cdn.jsdelivr.net/npm/echarts@5.4.3/dist/echarts.min.js"></script>
@@ -76,27 +86,104 @@
 
     <div class="container">
         <h2>统计仪表盘</h2>
+        <c:if test="${not stats.complete}">
+            <p style="color:#e67e22;">部分统计查询超时或失败，以“—”显示（统计耗时 ${stats.elapsedMillis} ms）</p>
+        </c:if>
         
         <!-- 统计卡片 -->
         <div class="stats-grid">
             <div class="stat-card">
-                <div class="stat-value">${userCount}</div>
+                <div class="stat-value">${stats.userCount != null ? stats.userCount : '—'}</div>
                 <div class="stat-label">用户总数</div>
             </div>
             <div class="stat-card">
-                <div class="stat-value">${orderCount}</div>
+                <div class="stat-value">${stats.orderCount != null ? stats.orderCount : '—'}</div>
                 <div class="stat-label">订单总数</div>
             </div>
             <div class="stat-card">
-                <div class="stat-value">¥${totalSales}</div>
+                <div class="stat-value">
+                    <c:choose>
+                        <c:when test="${stats.totalSales != null}">¥<fmt:formatNumber value="${stats.totalSales}" pattern="0.00"/></c:when>
+                        <c:otherwise>—</c:otherwise>
+                    </c:choose>
+                </div>
                 <div class="stat-label">总销售额</div>
             </div>
             <div class="stat-card">
-                <div class="stat-value">${lowStockCount}</div>
+                <div class="stat-value">${stats.lowStockCount != null ? stats.lowStockCount : '—'}</div>
                 <div class="stat-label">库存紧张商品</div>
             </div>
         </div>
         
+        <!-- 销售汇总维护 -->
+        <form action="${pageContext.request.contextPath}/dashboard/rollup/rebuild" method="post" style="margin-bottom: 30px;"
+              onsubmit="return confirm('将由订单表重新生成全部销售汇总，确定继续吗？');">
+            <input type="hidden" name="csrfToken" value="<%= CSRFTokenUtils.getCSRFToken(session) %>">
+            <button type="submit" class="btn">重建销售汇总</button>
+            <c:if test="${param.rollupRebuilt == 'true'}"><span style="color:#27ae60; margin-left:10px;">销售汇总已重建</span></c:if>
+            <c:if test="${param.rollupRebuilt == 'false'}"><span style="color:#e74c3c; margin-left:10px;">销售汇总重建失败</span></c:if>
+        </form>
+
+        <!-- 连接池统计 -->
+        <div class="stats-grid">
+            <div class="stat-card">
+                <div class="stat-value">${poolStats.numActive} / ${poolStats.maxTotal}</div>
+                <div class="stat-label">活动连接 / 最大连接</div>
+            </div>
+            <div class="stat-card">
+                <div class="stat-value">${poolStats.totalCheckouts}</div>
+                <div class="stat-label">连接池累计获取次数</div>
+            </div>
+            <div class="stat-card">
+                <div class="stat-value"><fmt:formatNumber value="${poolStats.avgCheckoutsPerRequest}" maxFractionDigits="2"/></div>
+                <div class="stat-label">每请求平均获取次数</div>
+            </div>
+            <div class="stat-card">
+                <div class="stat-value">${poolStats.maxCheckoutsPerRequest}</div>
+                <div class="stat-label">每请求最大获取次数</div>
+            </div>
+        </div>
+
+        <!-- 商品缓存统计 -->
+        <div class="stats-grid">
+            <div class="stat-card">
+                <div class="stat-value"><fmt:formatNumber value="${productCacheStats.hitRate}" type="percent" maxFractionDigits="1"/></div>
+                <div class="stat-label">商品缓存命中率</div>
+            </div>
+            <div class="stat-card">
+                <div class="stat-value">${productCacheStats.hits} / ${productCacheStats.misses}</div>
+                <div class="stat-label">命中 / 未命中</div>
+            </div>
+            <div class="stat-card">
+                <div class="stat-value">${productCacheStats.evictions}</div>
+                <div class="stat-label">缓存淘汰次数</div>
+            </div>
+            <div class="stat-card">
+                <div class="stat-value">${productCacheStats.size} / ${productCacheStats.maximumSize}</div>
+                <div class="stat-label">缓存商品数 / 上限</div>
+            </div>
+        </div>
+
+        <!-- 销售趋势 -->
+        <div class="chart-container">
+            <div class="chart-title">销售趋势（已支付订单）</div>
+            <div class="chart-toolbar">
+                <select id="seriesMetric">
+                    <option value="revenue">销售额</option>
+                    <option value="orders">订单数</option>
+                    <option value="items">商品件数</option>
+                </select>
+                <select id="seriesRange">
+                    <option value="1">最近24小时</option>
+                    <option value="7">最近7天</option>
+                    <option value="30" selected>最近30天</option>
+                    <option value="365">最近1年</option>
+                    <option value="730">最近2年</option>
+                </select>
+            </div>
+            <div id="salesChart"></div>
+        </div>
+
         <!-- 图表容器 -->
         <div class="chart-container">
             <div class="chart-title">各分类商品数量占比</div>
@@ -109,8 +196,8 @@
         var myChart = echarts.init(document.getElementById('categoryChart'));
         
         // 准备数据
-        var categoryNames = ${categoryNames};
-        var productCounts = ${productCounts};
+        var chartData = ${categoryChartData};
+        var categoryNames = chartData.map(function(item) { return item.name; });
         
         // 配置项
         var option = {
@@ -133,12 +220,7 @@
                     type: 'pie',
                     radius: '50%',
                     center: ['50%', '60%'],
-                    data: categoryNames.map(function(name, index) {
-                        return {
-                            value: productCounts[index],
-                            name: name
-                        };
-                    }),
+                    data: chartData,
                     emphasis: {
                         itemStyle: {
                             shadowBlur: 10,
@@ -153,9 +235,45 @@
         // 使用配置项显示图表
         myChart.setOption(option);
         
+        // 销售趋势：服务端按汇总表查询并降采样，返回列式数组 t（时间戳）与 v（指标值）
+        var salesChart = echarts.init(document.getElementById('salesChart'));
+        var metricNames = {revenue: '销售额', orders: '订单数', items: '商品件数'};
+        function loadSalesSeries() {
+            var metric = document.getElementById('seriesMetric').value;
+            var days = parseInt(document.getElementById('seriesRange').value, 10);
+            var to = Date.now();
+            var from = to - days * 24 * 3600 * 1000;
+            var buckets = Math.max(50, Math.min(500, Math.floor(document.getElementById('salesChart').clientWidth / 3)));
+            var url = '${pageContext.request.contextPath}/dashboard/series.json?metric=' + metric
+                    + '&from=' + from + '&to=' + to + '&buckets=' + buckets;
+            fetch(url, {credentials: 'same-origin'})
+                .then(function(resp) { return resp.json(); })
+                .then(function(data) {
+                    if (!data.success) {
+                        return;
+                    }
+                    var points = data.t.map(function(t, i) { return [t, data.v[i]]; });
+                    salesChart.setOption({
+                        tooltip: {trigger: 'axis'},
+                        xAxis: {type: 'time'},
+                        yAxis: {type: 'value'},
+                        series: [{
+                            name: metricNames[metric],
+                            type: 'line',
+                            showSymbol: false,
+                            data: points
+                        }]
+                    }, true);
+                });
+        }
+        document.getElementById('seriesMetric').addEventListener('change', loadSalesSeries);
+        document.getElementById('seriesRange').addEventListener('change', loadSalesSeries);
+        loadSalesSeries();
+
         // 响应式调整
         window.addEventListener('resize', function() {
             myChart.resize();
+            salesChart.resize();
         });
     </script>
 </body>
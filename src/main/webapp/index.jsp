@@ -273,9 +273,29 @@
             <h2>欢迎来到电商网站</h2>
             <div>
                 <form class="search-form" action="${pageContext.request.contextPath}/product/search" method="post" style="display:inline-block; margin-right:10px;">
-                    <input type="text" name="keyword" placeholder="搜索商品...">
+                    <input type="text" id="keyword-input" name="keyword" placeholder="搜索商品..." list="keyword-input-suggest" autocomplete="off">
+                    <datalist id="keyword-input-suggest"></datalist>
                     <button type="submit">搜索</button>
                 </form>
+                <script>
+                    (function(){
+                        // 输入联想：防抖后请求/product/suggest.json，结果填入datalist
+                        const input=document.getElementById('keyword-input');
+                        const list=document.getElementById('keyword-input-suggest');
+                        let timer=null;
+                        input.addEventListener('input',()=>{
+                            clearTimeout(timer);
+                            const q=input.value.trim();
+                            if(!q){list.innerHTML='';return;}
+                            timer=setTimeout(()=>{
+                                fetch('${pageContext.request.contextPath}/product/suggest.json?q='+encodeURIComponent(q)).then(r=>r.json()).then(data=>{
+                                    list.innerHTML='';
+                                    (data.items||[]).forEach(it=>{const opt=document.createElement('option');opt.value=it.name;list.appendChild(opt);});
+                                }).catch(()=>{});
+                            },150);
+                        });
+                    })();
+                </script>
                 <c:if test="${not empty user and user.role == 'admin'}">
                     <a href="${pageContext.request.contextPath}/product/add" class="btn">添加商品</a>
                 </c:if>
@@ -36,7 +36,7 @@
                 </tr>
                 <c:forEach var="item" items="${order.orderItems}">
                     <tr>
-                        <td>${item.product.name}</td>
+                        <td><c:out value="${item.productName}"/></td>
                         <td>¥ ${item.price}</td>
                         <td>${item.quantity}</td>
                         <td>¥ ${item.price * item.quantity}</td>
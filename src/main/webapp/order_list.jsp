@@ -13,6 +13,10 @@
         th{background:#f8f9fa}
         .btn{display:inline-block;padding:6px 12px;background:#3498db;color:#fff;text-decoration:none;border-radius:3px}
         .btn:hover{background:#2980b9}
+        .filter{margin-bottom:15px}
+        .filter label{margin-right:10px}
+        .filter input,.filter select{padding:5px}
+        .pager{margin-top:15px}
     </style>
 </head>
 <body>
@@ -23,6 +27,31 @@
                 <c:otherwise>我的订单</c:otherwise>
             </c:choose>
         </h1>
+        <c:if test="${not empty user and user.role == 'admin'}">
+            <form class="filter" method="get" action="${pageContext.request.contextPath}/order/list">
+                <label>状态
+                    <select name="status">
+                        <option value="">全部</option>
+                        <option value="0" ${filterStatus == 0 ? 'selected' : ''}>待付款</option>
+                        <option value="1" ${filterStatus == 1 ? 'selected' : ''}>待发货</option>
+                        <option value="2" ${filterStatus == 2 ? 'selected' : ''}>已发货</option>
+                        <option value="3" ${filterStatus == 3 ? 'selected' : ''}>已完成</option>
+                        <option value="4" ${filterStatus == 4 ? 'selected' : ''}>已取消</option>
+                    </select>
+                </label>
+                <label>用户ID <input type="text" name="userId" size="6" value="<c:out value='${filterUserId}'/>"></label>
+                <label>下单日期 <input type="date" name="startDate" value="<c:out value='${filterStartDate}'/>">
+                    至 <input type="date" name="endDate" value="<c:out value='${filterEndDate}'/>"></label>
+                <button type="submit" class="btn">筛选</button>
+                <c:url var="exportUrl" value="/order/export.csv">
+                    <c:param name="status" value="${filterStatus}"/>
+                    <c:param name="userId" value="${filterUserId}"/>
+                    <c:param name="startDate" value="${filterStartDate}"/>
+                    <c:param name="endDate" value="${filterEndDate}"/>
+                </c:url>
+                <a class="btn" href="${exportUrl}">导出CSV</a>
+            </form>
+        </c:if>
         <c:choose>
             <c:when test="${empty orders}">
                 <p>暂无订单。</p>
@@ -32,6 +61,7 @@
                 <table>
                     <tr>
                         <th>订单号</th>
+                        <th>件数</th>
                         <th>总价</th>
                         <th>状态</th>
                         <th>创建时间</th>
@@ -40,6 +70,7 @@
                     <c:forEach var="order" items="${orders}">
                         <tr>
                             <td>${order.orderNo}</td>
+                            <td>${order.itemCount}</td>
                             <td>¥ ${order.totalPrice}</td>
                             <td>
                                 <c:choose>
@@ -83,6 +114,29 @@
                 </table>
             </c:otherwise>
         </c:choose>
+        <c:if test="${not empty user and user.role == 'admin' and (hasMore or not firstPage)}">
+            <div class="pager">
+                <c:url var="firstUrl" value="/order/list">
+                    <c:param name="status" value="${filterStatus}"/>
+                    <c:param name="userId" value="${filterUserId}"/>
+                    <c:param name="startDate" value="${filterStartDate}"/>
+                    <c:param name="endDate" value="${filterEndDate}"/>
+                </c:url>
+                <c:if test="${not firstPage}">
+                    <a class="btn" href="${firstUrl}">首页</a>
+                </c:if>
+                <c:if test="${hasMore}">
+                    <c:url var="nextUrl" value="/order/list">
+                        <c:param name="status" value="${filterStatus}"/>
+                        <c:param name="userId" value="${filterUserId}"/>
+                        <c:param name="startDate" value="${filterStartDate}"/>
+                        <c:param name="endDate" value="${filterEndDate}"/>
+                        <c:param name="after" value="${nextCursor}"/>
+                    </c:url>
+                    <a class="btn" href="${nextUrl}">下一页</a>
+                </c:if>
+            </div>
+        </c:if>
     </div>
 </body>
 </html>
\ No newline at end of file
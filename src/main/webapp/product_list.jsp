@@ -132,9 +132,29 @@
         
         <!-- 搜索表单 -->
         <form class="search-form" action="${pageContext.request.contextPath}/product/search" method="post">
-            <input type="text" name="keyword" placeholder="搜索商品..." value="${keyword}">
+            <input type="text" id="keyword-input" name="keyword" placeholder="搜索商品..." value="${keyword}" list="keyword-input-suggest" autocomplete="off">
+            <datalist id="keyword-input-suggest"></datalist>
             <button type="submit">搜索</button>
         </form>
+        <script>
+            (function(){
+                // 输入联想：防抖后请求/product/suggest.json，结果填入datalist
+                const input=document.getElementById('keyword-input');
+                const list=document.getElementById('keyword-input-suggest');
+                let timer=null;
+                input.addEventListener('input',()=>{
+                    clearTimeout(timer);
+                    const q=input.value.trim();
+                    if(!q){list.innerHTML='';return;}
+                    timer=setTimeout(()=>{
+                        fetch('${pageContext.request.contextPath}/product/suggest.json?q='+encodeURIComponent(q)).then(r=>r.json()).then(data=>{
+                            list.innerHTML='';
+                            (data.items||[]).forEach(it=>{const opt=document.createElement('option');opt.value=it.name;list.appendChild(opt);});
+                        }).catch(()=>{});
+                    },150);
+                });
+            })();
+        </script>
 
         <!-- 分类筛选 -->
         <div class="filter-section">
@@ -259,7 +279,7 @@
 
         <!-- 分页信息 -->
         <div style="text-align: center; margin-top: 10px; color: #666;">
-            共 ${totalCount} 件商品，第 ${currentPage}/${totalPages} 页
+            共 ${not exactTotal and user.role == 'admin' ? '约 ' : ''}${totalCount} 件商品，第 ${currentPage}/${totalPages} 页
         </div>
     </div>
 